@@ -0,0 +1,19 @@
+package chess.core;
+
+import java.util.EventListener;
+
+/**
+ * Receives the moves and result of a {@link HeadlessGame}, on the thread that plays them.
+ */
+public interface GameListener extends EventListener{
+	/**
+	 * Called once a game has ended, after the move that ended it has been reported.
+	 */
+	void gameEnded(HeadlessGame game, Result result);
+	
+	/**
+	 * @param move
+	 *            the move played, encoded as by {@link HeadlessGame#encode(int, int, chess.game.PieceType)}
+	 */
+	void movePlayed(HeadlessGame game, int move);
+}
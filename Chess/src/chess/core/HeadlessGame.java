@@ -0,0 +1,600 @@
+package chess.core;
+
+import java.util.Arrays;
+
+import chess.game.Location;
+import chess.game.PieceType;
+import chess.game.Player;
+
+/**
+ * A game of chess with the same rules as {@link chess.game.Game}, for servers and tools that hold many games at once
+ * and have no display. It needs nothing outside java.base: results are returned from {@link #play(int)} and reported to
+ * {@link GameListener}s rather than shown in dialogs, and there are no threads, movers or property change events.
+ * <p>
+ * The state is a byte per square, a few primitive fields and a log of one short per move, so a game of a hundred moves
+ * takes well under a kilobyte. Moves are ints giving the square index (row times 8 plus column) moved from times 64,
+ * plus the square index moved to, plus the type promoted to, if any, times 4096; {@link #encode(int, int, PieceType)}
+ * builds them. A move that does not promote has the same code as {@link chess.game.Board.Move#getCode()}. Undo
+ * replays the log from the start rather than keeping the state of every position, so it takes time in proportion to
+ * the moves played.
+ * <p>
+ * As in {@link chess.game.Board}, a move counts towards the run of moves without a capture unless it lands on an
+ * occupied square, so en passant captures extend the run. Games are not thread-safe.
+ */
+public class HeadlessGame{
+	private static final int SIZE = 8, SQUARES = SIZE * SIZE;
+	private static final int BLACK = 8, TYPE_MASK = 7;
+	private static final int KING = code(PieceType.KING), QUEEN = code(PieceType.QUEEN), BISHOP = code(PieceType.BISHOP),
+			KNIGHT = code(PieceType.KNIGHT), ROOK = code(PieceType.ROOK), PAWN = code(PieceType.PAWN);
+	private static final PieceType[] TYPES = PieceType.values();
+	/**
+	 * Castling rights, kept while the king and the rook in that corner have not moved.
+	 */
+	private static final int WHITE_EAST = 1, WHITE_WEST = 2, BLACK_EAST = 4, BLACK_WEST = 8;
+	private static final int NO_SQUARE = -1;
+	private static final int STALEMATE_MOVES = 49;
+	private static final int PROMOTION_SHIFT = 12;
+	/**
+	 * Enough for the moves of any position, including those that leave the player in check.
+	 */
+	public static final int MAX_MOVES = 256;
+	private static final int[][] ORTHOGONAL = { {-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+	private static final int[][] DIAGONAL = { {-1, -1}, {-1, 1}, {1, -1}, {1, 1}};
+	private static final int[][] KNIGHT_STEPS = { {-2, -1}, {-2, 1}, {-1, -2}, {-1, 2}, {1, -2}, {1, 2}, {2, -1}, {2, 1}};
+	private static final int[][] KING_STEPS = { {-1, 0}, {1, 0}, {0, -1}, {0, 1}, {-1, -1}, {-1, 1}, {1, -1}, {1, 1}};
+	private static final byte[] STANDARD_RANK = {(byte)ROOK, (byte)KNIGHT, (byte)BISHOP, (byte)QUEEN, (byte)KING,
+			(byte)BISHOP, (byte)KNIGHT, (byte)ROOK};
+	private static final GameListener[] NO_LISTENERS = new GameListener[0];
+	
+	/**
+	 * @param promotion
+	 *            the type a pawn moving to its last row becomes, or null if the move does not promote
+	 * @return the move of the piece on square from to square to.
+	 */
+	public static int encode(int from, int to, PieceType promotion){
+		return (promotion == null ? 0 : promotion.ordinal()) << PROMOTION_SHIFT | from << 6 | to;
+	}
+	
+	/**
+	 * @return move written as its locations, as {@link chess.game.Board.Move} is, followed by the type promoted to.
+	 */
+	public static String format(int move){
+		PieceType promotion = getPromotion(move);
+		return location(getFrom(move)) + "->" + location(getTo(move)) + (promotion == null ? "" : "=" + promotion.label);
+	}
+	
+	public static int getFrom(int move){
+		return move >>> 6 & SQUARES - 1;
+	}
+	
+	/**
+	 * @return the type move promotes a pawn to, or null if it does not promote.
+	 */
+	public static PieceType getPromotion(int move){
+		int promotion = move >>> PROMOTION_SHIFT;
+		return promotion == 0 ? null : TYPES[promotion];
+	}
+	
+	public static int getTo(int move){
+		return move & SQUARES - 1;
+	}
+	
+	public static int square(int row, int column){
+		return row * SIZE + column;
+	}
+	
+	private static int code(PieceType type){
+		return type.ordinal() + 1;
+	}
+	
+	private static String location(int square){
+		return Location.getRowLabel(square / SIZE) + Location.getColumnLabel(square % SIZE);
+	}
+	
+	private boolean blackToMove;
+	private int castles;
+	/**
+	 * The player who declared stalemate before the last move, if any.
+	 */
+	private Player declared;
+	private GameListener[] listeners = NO_LISTENERS;
+	private short[] log = new short[32];
+	private int nonCaptureMoves;
+	/**
+	 * The square a pawn passed over moving two rows in the last move, or {@link #NO_SQUARE}.
+	 */
+	private int passant;
+	private int plies;
+	private Result result;
+	/**
+	 * Room for the moves generated to check a move's legality.
+	 */
+	private final int[] scratch = new int[MAX_MOVES];
+	private final byte[] squares = new byte[SQUARES];
+	
+	/**
+	 * Creates a game in the standard starting position.
+	 */
+	public HeadlessGame(){
+		reset();
+	}
+	
+	public void addGameListener(GameListener listener){
+		if (listener == null) return;
+		GameListener[] old = this.listeners;
+		this.listeners = Arrays.copyOf(old, old.length + 1);
+		this.listeners[old.length] = listener;
+	}
+	
+	public boolean canDeclareStalemate(){
+		return this.nonCaptureMoves >= STALEMATE_MOVES;
+	}
+	
+	/**
+	 * Declares stalemate for the player to move. The game ends as {@link Result#DECLARED_STALEMATE} unless the player's
+	 * next move captures.
+	 *
+	 * @throws IllegalStateException
+	 *             if stalemate may not be declared now
+	 */
+	public void declareStalemate(){
+		if (this.result.isOver() || !canDeclareStalemate()) throw new IllegalStateException("Stalemate not available now");
+		this.declared = getTurn();
+	}
+	
+	/**
+	 * @return the move played at ply, counting from 0.
+	 */
+	public int getMove(int ply){
+		if (ply < 0 || ply >= this.plies) throw new IndexOutOfBoundsException("No move " + ply);
+		return this.log[ply] & 0xFFFF;
+	}
+	
+	/**
+	 * @return the legal moves of the player to move, none once the game is over.
+	 */
+	public int[] getMoves(){
+		int[] moves = new int[MAX_MOVES];
+		return Arrays.copyOf(moves, getMoves(moves));
+	}
+	
+	/**
+	 * Writes the legal moves of the player to move into moves, which must have room for {@link #MAX_MOVES}.
+	 *
+	 * @return the number of moves written.
+	 */
+	public int getMoves(int[] moves){
+		if (this.result.isOver()) return 0;
+		int pseudo = generate(moves);
+		int count = 0;
+		for (int i = 0; i < pseudo; i++){
+			int move = moves[i];
+			long state = make(move);
+			boolean legal = !kingAttacked(!this.blackToMove);
+			unmake(move, state);
+			if (legal) moves[count++] = move;
+		}
+		return count;
+	}
+	
+	public int getNonCaptureMoves(){
+		return this.nonCaptureMoves;
+	}
+	
+	/**
+	 * @return the type of the piece on square, or null if it is empty.
+	 */
+	public PieceType getPiece(int square){
+		int piece = this.squares[square];
+		return piece == 0 ? null : TYPES[(piece & TYPE_MASK) - 1];
+	}
+	
+	/**
+	 * @return the number of moves played.
+	 */
+	public int getPlies(){
+		return this.plies;
+	}
+	
+	/**
+	 * @return the player whose piece is on square, or null if it is empty.
+	 */
+	public Player getPlayer(int square){
+		int piece = this.squares[square];
+		return piece == 0 ? null : (piece & BLACK) == 0 ? Player.WHITE : Player.BLACK;
+	}
+	
+	/**
+	 * Writes the moves of the player to move that follow the rules of each piece into moves, which must have room for
+	 * {@link #MAX_MOVES}, without checking whether they leave the player in check, which is far quicker than finding the
+	 * legal moves.
+	 *
+	 * @return the number of moves written, none once the game is over.
+	 */
+	public int getPseudoLegalMoves(int[] moves){
+		if (this.result.isOver()) return 0;
+		return generate(moves);
+	}
+	
+	public Result getResult(){
+		return this.result;
+	}
+	
+	/**
+	 * @return the player to move, or {@link Player#GAME_OVER} once the game is over.
+	 */
+	public Player getTurn(){
+		if (this.result.isOver()) return Player.GAME_OVER;
+		return this.blackToMove ? Player.BLACK : Player.WHITE;
+	}
+	
+	/**
+	 * @return the player who gave checkmate, or null if the game did not end in checkmate.
+	 */
+	public Player getWinner(){
+		if (this.result != Result.CHECKMATE) return null;
+		return this.blackToMove ? Player.WHITE : Player.BLACK;
+	}
+	
+	public boolean isCheck(Player player){
+		if (!Player.getPlayers().contains(player)) throw new IllegalArgumentException();
+		return kingAttacked(player == Player.BLACK);
+	}
+	
+	public boolean isLegal(int move){
+		int count = getMoves(this.scratch);
+		for (int i = 0; i < count; i++)
+			if (this.scratch[i] == move) return true;
+		return false;
+	}
+	
+	/**
+	 * Plays move for the player to move, and tells listeners of the move and of the end of the game, if it ends.
+	 *
+	 * @return the result of the game after move.
+	 * @throws IllegalArgumentException
+	 *             if move is not legal, including a pawn moving to its last row without a promotion type
+	 */
+	public Result play(int move){
+		if (this.result.isOver()) throw new IllegalStateException("Game over");
+		if (!isLegal(move)) throw new IllegalArgumentException("Illegal move " + format(move));
+		return playLegal(move);
+	}
+	
+	/**
+	 * Plays move as {@link #play(int)} does, without checking that it is legal, for callers that took it from
+	 * {@link #getMoves(int[])} for the current position.
+	 *
+	 * @return the result of the game after move.
+	 */
+	public Result playLegal(int move){
+		make(move);
+		if (this.plies == this.log.length) this.log = Arrays.copyOf(this.log, 2 * this.plies);
+		this.log[this.plies++] = (short)move;
+		if (this.declared != null && canDeclareStalemate()){
+			this.result = Result.DECLARED_STALEMATE;
+		} else{
+			this.declared = null;
+			if (!hasMove()) this.result = kingAttacked(this.blackToMove) ? Result.CHECKMATE : Result.STALEMATE;
+		}
+		for (GameListener l : this.listeners)
+			l.movePlayed(this, move);
+		if (this.result.isOver()){
+			for (GameListener l : this.listeners)
+				l.gameEnded(this, this.result);
+		}
+		return this.result;
+	}
+	
+	public void removeGameListener(GameListener listener){
+		GameListener[] old = this.listeners;
+		for (int i = 0; i < old.length; i++){
+			if (old[i] == listener){
+				GameListener[] listeners = new GameListener[old.length - 1];
+				System.arraycopy(old, 0, listeners, 0, i);
+				System.arraycopy(old, i + 1, listeners, i, listeners.length - i);
+				this.listeners = listeners;
+				return;
+			}
+		}
+	}
+	
+	@Override
+	public String toString(){
+		StringBuilder moves = new StringBuilder("[");
+		for (int i = 0; i < this.plies; i++)
+			moves.append(i == 0 ? "" : ", ").append(format(getMove(i)));
+		return moves.append("] ").append(this.result).toString();
+	}
+	
+	/**
+	 * Takes back the last move by replaying the others from the starting position.
+	 *
+	 * @return false if there was no move to take back.
+	 */
+	public boolean undo(){
+		if (this.plies == 0) return false;
+		int plies = this.plies - 1;
+		reset();
+		for (int i = 0; i < plies; i++)
+			make(this.log[i] & 0xFFFF);
+		this.plies = plies;
+		return true;
+	}
+	
+	/**
+	 * @return the castling rights, a bit for each corner whose king and rook have not moved.
+	 */
+	int getCastles(){
+		return this.castles;
+	}
+	
+	/**
+	 * @return the type and owner of the piece on square, packed as a position's squares are, 0 if it is empty.
+	 */
+	int getCode(int square){
+		return this.squares[square];
+	}
+	
+	/**
+	 * @return the square a pawn passed over moving two rows in the last move, or {@link #NO_SQUARE}.
+	 */
+	int getPassant(){
+		return this.passant;
+	}
+	
+	private int add(int[] moves, int count, int from, int to){
+		moves[count++] = encode(from, to, null);
+		return count;
+	}
+	
+	/**
+	 * Adds the moves of a pawn from from to to, one per promotion type if to is on the last row.
+	 */
+	private int addPawn(int[] moves, int count, int from, int to){
+		int row = to / SIZE;
+		if (row != 0 && row != SIZE - 1) return add(moves, count, from, to);
+		for (int promotion = QUEEN; promotion <= ROOK; promotion++)
+			moves[count++] = (promotion - 1) << PROMOTION_SHIFT | from << 6 | to;
+		return count;
+	}
+	
+	/**
+	 * @return the piece at row and column, 0 if there is none, or -1 if the square is off the board.
+	 */
+	private int at(int row, int column){
+		if (row < 0 || row >= SIZE || column < 0 || column >= SIZE) return -1;
+		return this.squares[row * SIZE + column];
+	}
+	
+	private boolean attacked(int square, boolean byBlack){
+		int row = square / SIZE, column = square % SIZE;
+		int color = byBlack ? BLACK : 0;
+		int pawnRow = byBlack ? row - 1 : row + 1;
+		if (at(pawnRow, column - 1) == (PAWN | color) || at(pawnRow, column + 1) == (PAWN | color)) return true;
+		for (int[] step : KNIGHT_STEPS)
+			if (at(row + step[0], column + step[1]) == (KNIGHT | color)) return true;
+		for (int[] step : KING_STEPS)
+			if (at(row + step[0], column + step[1]) == (KING | color)) return true;
+		return slides(row, column, ORTHOGONAL, ROOK | color, QUEEN | color)
+				|| slides(row, column, DIAGONAL, BISHOP | color, QUEEN | color);
+	}
+	
+	/**
+	 * Writes the moves of the player to move that follow the rules of each piece, without checking whether they leave
+	 * the player in check.
+	 */
+	private int generate(int[] moves){
+		int color = this.blackToMove ? BLACK : 0;
+		int count = 0;
+		for (int from = 0; from < SQUARES; from++){
+			int piece = this.squares[from];
+			if (piece == 0 || (piece & BLACK) != color) continue;
+			int type = piece & TYPE_MASK;
+			int row = from / SIZE, column = from % SIZE;
+			if (type == PAWN){
+				int forward = this.blackToMove ? 1 : -1;
+				int next = row + forward;
+				if (at(next, column) == 0){
+					count = addPawn(moves, count, from, square(next, column));
+					if (row == (this.blackToMove ? 1 : SIZE - 2) && at(next + forward, column) == 0) count = add(moves,
+																													count,
+																													from,
+																													square(next + forward, column));
+				}
+				for (int side = -1; side <= 1; side += 2){
+					int target = at(next, column + side);
+					if (target > 0 && (target & BLACK) != color) count = addPawn(moves, count, from, square(next, column + side));
+					else if (target == 0 && square(next, column + side) == this.passant) count = add(	moves,
+																										count,
+																										from,
+																										this.passant);
+				}
+			} else if (type == KNIGHT || type == KING){
+				for (int[] step : type == KNIGHT ? KNIGHT_STEPS : KING_STEPS){
+					int target = at(row + step[0], column + step[1]);
+					if (target == 0 || target > 0 && (target & BLACK) != color) count = add(moves,
+																							count,
+																							from,
+																							square(row + step[0], column + step[1]));
+				}
+				if (type == KING) count = generateCastles(moves, count, from);
+			} else{
+				if (type != BISHOP) count = generateSlides(moves, count, from, ORTHOGONAL, color);
+				if (type != ROOK) count = generateSlides(moves, count, from, DIAGONAL, color);
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * Adds the castles of the king on from: it moves two squares towards an unmoved rook with nothing in between,
+	 * provided it is not in check and does not pass through check.
+	 */
+	private int generateCastles(int[] moves, int count, int from){
+		int east = this.blackToMove ? BLACK_EAST : WHITE_EAST, west = this.blackToMove ? BLACK_WEST : WHITE_WEST;
+		if ((this.castles & (east | west)) == 0 || kingAttacked(this.blackToMove)) return count;
+		int row = from / SIZE, column = from % SIZE;
+		for (int direction = -1; direction <= 1; direction += 2){
+			if ((this.castles & (direction > 0 ? east : west)) == 0) continue;
+			int c = column + direction;
+			while (at(row, c) == 0)
+				c += direction;
+			if (c != (direction > 0 ? SIZE - 1 : 0)) continue;
+			int passing = encode(from, from + direction, null);
+			long state = make(passing);
+			boolean safe = !kingAttacked(!this.blackToMove);
+			unmake(passing, state);
+			if (safe) count = add(moves, count, from, from + 2 * direction);
+		}
+		return count;
+	}
+	
+	private int generateSlides(int[] moves, int count, int from, int[][] directions, int color){
+		int row = from / SIZE, column = from % SIZE;
+		for (int[] direction : directions){
+			int r = row + direction[0], c = column + direction[1];
+			int target;
+			while ((target = at(r, c)) == 0){
+				count = add(moves, count, from, square(r, c));
+				r += direction[0];
+				c += direction[1];
+			}
+			if (target > 0 && (target & BLACK) != color) count = add(moves, count, from, square(r, c));
+		}
+		return count;
+	}
+	
+	/**
+	 * @return if the player to move has a legal move, generating moves only until the first legal one is found.
+	 */
+	private boolean hasMove(){
+		int[] moves = this.scratch;
+		int pseudo = generate(moves);
+		for (int i = 0; i < pseudo; i++){
+			long state = make(moves[i]);
+			boolean legal = !kingAttacked(!this.blackToMove);
+			unmake(moves[i], state);
+			if (legal) return true;
+		}
+		return false;
+	}
+	
+	private boolean kingAttacked(boolean black){
+		int king = KING | (black ? BLACK : 0);
+		for (int square = 0; square < SQUARES; square++)
+			if (this.squares[square] == king) return attacked(square, !black);
+		return false;
+	}
+	
+	/**
+	 * @return the castling rights lost by a move from or to square.
+	 */
+	private static int lostCastles(int square){
+		switch (square){
+		case 0:
+			return BLACK_WEST;
+		case 4:
+			return BLACK_EAST | BLACK_WEST;
+		case SIZE - 1:
+			return BLACK_EAST;
+		case SQUARES - SIZE:
+			return WHITE_WEST;
+		case SQUARES - SIZE + 4:
+			return WHITE_EAST | WHITE_WEST;
+		case SQUARES - 1:
+			return WHITE_EAST;
+		default:
+			return 0;
+		}
+	}
+	
+	/**
+	 * Plays move without checking it or recording it.
+	 *
+	 * @return the state needed to unmake move.
+	 */
+	private long make(int move){
+		int from = getFrom(move), to = getTo(move);
+		int piece = this.squares[from], captured = this.squares[to];
+		long state = captured | this.castles << 8 | (this.passant + 1) << 16 | (long)this.nonCaptureMoves << 32;
+		int type = piece & TYPE_MASK;
+		this.squares[from] = 0;
+		this.squares[to] = (byte)piece;
+		if (type == PAWN){
+			int promotion = move >>> PROMOTION_SHIFT;
+			if (to == this.passant && from % SIZE != to % SIZE) this.squares[from / SIZE * SIZE + to % SIZE] = 0;
+			else if (promotion != 0) this.squares[to] = (byte)(promotion + 1 | piece & BLACK);
+		} else if (type == KING && Math.abs(to - from) == 2){
+			int direction = to > from ? 1 : -1;
+			int corner = from / SIZE * SIZE + (direction > 0 ? SIZE - 1 : 0);
+			this.squares[from + direction] = this.squares[corner];
+			this.squares[corner] = 0;
+		}
+		this.passant = type == PAWN && Math.abs(to - from) == 2 * SIZE ? (from + to) / 2 : NO_SQUARE;
+		this.castles &= ~(lostCastles(from) | lostCastles(to));
+		this.nonCaptureMoves = captured == 0 ? this.nonCaptureMoves + 1 : 0;
+		this.blackToMove = !this.blackToMove;
+		return state;
+	}
+	
+	/**
+	 * Sets up the standard starting position with no moves played.
+	 */
+	private void reset(){
+		Arrays.fill(this.squares, (byte)0);
+		for (int column = 0; column < SIZE; column++){
+			this.squares[column] = (byte)(STANDARD_RANK[column] | BLACK);
+			this.squares[SIZE + column] = (byte)(PAWN | BLACK);
+			this.squares[SQUARES - 2 * SIZE + column] = (byte)PAWN;
+			this.squares[SQUARES - SIZE + column] = STANDARD_RANK[column];
+		}
+		this.blackToMove = false;
+		this.castles = WHITE_EAST | WHITE_WEST | BLACK_EAST | BLACK_WEST;
+		this.passant = NO_SQUARE;
+		this.nonCaptureMoves = 0;
+		this.declared = null;
+		this.result = Result.NONE;
+		this.plies = 0;
+	}
+	
+	/**
+	 * @return if a piece moving from row and column in one of directions first meets a or b.
+	 */
+	private boolean slides(int row, int column, int[][] directions, int a, int b){
+		for (int[] direction : directions){
+			int r = row + direction[0], c = column + direction[1];
+			int target;
+			while ((target = at(r, c)) == 0){
+				r += direction[0];
+				c += direction[1];
+			}
+			if (target == a || target == b) return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Restores the position before move, given the state returned by {@link #make(int)}.
+	 */
+	private void unmake(int move, long state){
+		int from = getFrom(move), to = getTo(move);
+		int piece = this.squares[to];
+		this.blackToMove = !this.blackToMove;
+		this.castles = (int)(state >>> 8) & 0xFF;
+		this.passant = ((int)(state >>> 16) & 0xFF) - 1;
+		this.nonCaptureMoves = (int)(state >>> 32);
+		if (move >>> PROMOTION_SHIFT != 0) piece = PAWN | piece & BLACK;
+		this.squares[from] = (byte)piece;
+		this.squares[to] = (byte)(state & 0xFF);
+		int type = piece & TYPE_MASK;
+		if (type == PAWN && to == this.passant && from % SIZE != to % SIZE){
+			this.squares[from / SIZE * SIZE + to % SIZE] = (byte)(PAWN | (piece & BLACK) ^ BLACK);
+		} else if (type == KING && Math.abs(to - from) == 2){
+			int direction = to > from ? 1 : -1;
+			int corner = from / SIZE * SIZE + (direction > 0 ? SIZE - 1 : 0);
+			this.squares[corner] = this.squares[from + direction];
+			this.squares[from + direction] = 0;
+		}
+	}
+}
@@ -0,0 +1,31 @@
+package chess.core;
+
+/**
+ * How a game stands: still in progress, or how it ended.
+ */
+public enum Result{
+	/**
+	 * The game is still in progress.
+	 */
+	NONE,
+	/**
+	 * The player to move is in check and has no move.
+	 */
+	CHECKMATE,
+	/**
+	 * The player to move is not in check but has no move.
+	 */
+	STALEMATE,
+	/**
+	 * A player declared stalemate after a long run of moves without a capture, and the next move did not capture.
+	 */
+	DECLARED_STALEMATE,
+	/**
+	 * The player to move ran out of time on a {@link chess.game.Clock}. {@link HeadlessGame}s are not timed.
+	 */
+	TIME_FORFEIT;
+	
+	public boolean isOver(){
+		return this != NONE;
+	}
+}
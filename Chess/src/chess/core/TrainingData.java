@@ -0,0 +1,239 @@
+package chess.core;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import chess.game.PieceType;
+import chess.game.Player;
+
+/**
+ * Reads the labelled positions written by {@link TrainingDataWriter}, in any order.
+ * <p>
+ * Each position is a record of {@value #RECORD_BYTES} bytes: the 64 squares packed two to a byte, low half first, each
+ * as the type's ordinal plus one plus 8 for black, or 0 if empty; a byte of flags, with black to move in bit 0, the
+ * castling rights in bits 1 to 4 and the result in bits 5 and 6; the square passed over by a pawn's double step, or -1;
+ * the move played as a short, encoded as by {@link HeadlessGame#encode(int, int, PieceType)}; the mover's score of the
+ * position for the player to move, clamped to a short, or {@link #NO_SCORE}; and the ply as a short.
+ * <p>
+ * A file starts with a header of magic number, version, record size and records per block. Blocks follow, each of a
+ * compressed length and a record count then the deflated records, all full but the last. Last come the index, the
+ * offset of each block, and a trailer of the index offset, the record count, the block count and the magic number
+ * again. Shorts, ints and longs are big-endian. Readers are not thread-safe.
+ */
+public class TrainingData implements AutoCloseable{
+	public static final int MAGIC = 0x4A435444;
+	public static final int VERSION = 1;
+	public static final int RECORD_BYTES = 40;
+	/**
+	 * The score of a position whose mover gave none.
+	 */
+	public static final short NO_SCORE = Short.MIN_VALUE;
+	/**
+	 * Results, from white's point of view, as stored in the flags.
+	 */
+	public static final int BLACK_WINS = 0, DRAW = 1, WHITE_WINS = 2;
+	static final int HEADER_BYTES = 16, BLOCK_HEADER_BYTES = 8, TRAILER_BYTES = 24;
+	static final int FLAGS = 32, PASSANT = 33, MOVE = 34, SCORE = 36, PLY = 38;
+	static final int BLACK_TO_MOVE = 1, CASTLES_SHIFT = 1, RESULT_SHIFT = 5;
+	private static final int BLACK = 8, TYPE_MASK = 7;
+	private static final PieceType[] TYPES = PieceType.values();
+	
+	/**
+	 * Writes the current position of game, the move about to be played and the mover's score to record at offset. The
+	 * result is left as a black win until {@link #setResult(byte[], int, int)} is called.
+	 */
+	public static void encode(HeadlessGame game, int move, int score, byte[] record, int offset){
+		for (int i = 0; i < FLAGS; i++)
+			record[offset + i] = (byte)(game.getCode(2 * i) | game.getCode(2 * i + 1) << 4);
+		record[offset + FLAGS] = (byte)((game.getTurn() == Player.BLACK ? BLACK_TO_MOVE : 0) | game.getCastles()
+				<< CASTLES_SHIFT);
+		record[offset + PASSANT] = (byte)game.getPassant();
+		putShort(record, offset + MOVE, move);
+		putShort(record, offset + SCORE, score == NO_SCORE ? NO_SCORE : Math.max(-Short.MAX_VALUE, Math.min(Short.MAX_VALUE,
+				score)));
+		putShort(record, offset + PLY, Math.min(game.getPlies(), 0xFFFF));
+	}
+	
+	/**
+	 * @return the type of the piece on square of record, or null if it is empty.
+	 */
+	public static PieceType getPiece(byte[] record, int square){
+		int code = getCode(record, square);
+		return code == 0 ? null : TYPES[(code & TYPE_MASK) - 1];
+	}
+	
+	/**
+	 * @return the owner of the piece on square of record, or null if it is empty.
+	 */
+	public static Player getPlayer(byte[] record, int square){
+		int code = getCode(record, square);
+		return code == 0 ? null : (code & BLACK) == 0 ? Player.WHITE : Player.BLACK;
+	}
+	
+	/**
+	 * @return the castling rights of record, a bit for each corner, as {@link HeadlessGame} keeps them.
+	 */
+	public static int getCastles(byte[] record){
+		return record[FLAGS] >>> CASTLES_SHIFT & 15;
+	}
+	
+	/**
+	 * @return the move played from record's position.
+	 */
+	public static int getMove(byte[] record){
+		return getShort(record, MOVE) & 0xFFFF;
+	}
+	
+	/**
+	 * @return the square passed over by the pawn that moved two rows just before record's position, or -1.
+	 */
+	public static int getPassant(byte[] record){
+		return record[PASSANT];
+	}
+	
+	/**
+	 * @return the number of moves played before record's position.
+	 */
+	public static int getPly(byte[] record){
+		return getShort(record, PLY) & 0xFFFF;
+	}
+	
+	/**
+	 * @return the result of record's game: {@link #BLACK_WINS}, {@link #DRAW} or {@link #WHITE_WINS}.
+	 */
+	public static int getResult(byte[] record){
+		return record[FLAGS] >>> RESULT_SHIFT & 3;
+	}
+	
+	/**
+	 * @return the mover's score of record's position for the player to move, or {@link #NO_SCORE}.
+	 */
+	public static short getScore(byte[] record){
+		return getShort(record, SCORE);
+	}
+	
+	public static Player getTurn(byte[] record){
+		return (record[FLAGS] & BLACK_TO_MOVE) == 0 ? Player.WHITE : Player.BLACK;
+	}
+	
+	/**
+	 * Sets the result of the record at offset, once its game has ended.
+	 */
+	public static void setResult(byte[] record, int offset, int result){
+		record[offset + FLAGS] = (byte)(record[offset + FLAGS] & ~(3 << RESULT_SHIFT) | result << RESULT_SHIFT);
+	}
+	
+	private static int getCode(byte[] record, int square){
+		return record[square / 2] >>> (square % 2) * 4 & 15;
+	}
+	
+	private static short getShort(byte[] record, int offset){
+		return (short)(record[offset] << 8 | record[offset + 1] & 0xFF);
+	}
+	
+	private static void putShort(byte[] record, int offset, int value){
+		record[offset] = (byte)(value >>> 8);
+		record[offset + 1] = (byte)value;
+	}
+	
+	private final byte[] block;
+	private final int blockRecords;
+	private final FileChannel channel;
+	private final long count;
+	private final long[] offsets;
+	/**
+	 * The block inflated into {@link #block}, or -1.
+	 */
+	private int current = -1;
+	private ByteBuffer compressed = ByteBuffer.allocate(0);
+	private final Inflater inflater = new Inflater();
+	
+	/**
+	 * Opens the file at path, reading its header and index.
+	 *
+	 * @throws IOException
+	 *             if it cannot be read or is not a complete training data file of this version
+	 */
+	public TrainingData(Path path) throws IOException{
+		this.channel = FileChannel.open(path, StandardOpenOption.READ);
+		try{
+			ByteBuffer header = read(0, HEADER_BYTES);
+			if (header.getInt() != MAGIC) throw new IOException("Not a training data file: " + path);
+			if (header.getInt() != VERSION || header.getInt() != RECORD_BYTES) throw new IOException(
+					"Unsupported training data version: " + path);
+			this.blockRecords = header.getInt();
+			ByteBuffer trailer = read(this.channel.size() - TRAILER_BYTES, TRAILER_BYTES);
+			long index = trailer.getLong();
+			this.count = trailer.getLong();
+			int blocks = trailer.getInt();
+			if (trailer.getInt() != MAGIC) throw new IOException("Training data file not closed: " + path);
+			this.offsets = new long[blocks];
+			read(index, blocks * 8).asLongBuffer().get(this.offsets);
+			this.block = new byte[this.blockRecords * RECORD_BYTES];
+		} catch (IOException | RuntimeException e){
+			this.channel.close();
+			throw e;
+		}
+	}
+	
+	@Override
+	public void close() throws IOException{
+		this.inflater.end();
+		this.channel.close();
+	}
+	
+	public int getBlockRecords(){
+		return this.blockRecords;
+	}
+	
+	public long getCount(){
+		return this.count;
+	}
+	
+	/**
+	 * Copies record index into record, inflating its block unless it holds the last record read.
+	 */
+	public void read(long index, byte[] record) throws IOException{
+		if (index < 0 || index >= this.count) throw new IndexOutOfBoundsException("No record " + index);
+		int b = (int)(index / this.blockRecords);
+		if (b != this.current) inflate(b);
+		System.arraycopy(this.block, (int)(index % this.blockRecords) * RECORD_BYTES, record, 0, RECORD_BYTES);
+	}
+	
+	private void inflate(int b) throws IOException{
+		this.current = -1;
+		ByteBuffer header = read(this.offsets[b], BLOCK_HEADER_BYTES);
+		int length = header.getInt(), records = header.getInt();
+		if (this.compressed.capacity() < length) this.compressed = ByteBuffer.allocate(length);
+		this.compressed.clear().limit(length);
+		readFully(this.offsets[b] + BLOCK_HEADER_BYTES, this.compressed);
+		this.inflater.reset();
+		this.inflater.setInput(this.compressed.array(), 0, length);
+		try{
+			if (this.inflater.inflate(this.block, 0, records * RECORD_BYTES) != records * RECORD_BYTES) throw new IOException(
+					"Truncated block " + b);
+		} catch (DataFormatException e){
+			throw new IOException("Corrupt block " + b, e);
+		}
+		this.current = b;
+	}
+	
+	private ByteBuffer read(long position, int length) throws IOException{
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		readFully(position, buffer);
+		buffer.flip();
+		return buffer;
+	}
+	
+	private void readFully(long position, ByteBuffer buffer) throws IOException{
+		while (buffer.hasRemaining()){
+			if (this.channel.read(buffer, position + buffer.position()) < 0) throw new EOFException();
+		}
+	}
+}
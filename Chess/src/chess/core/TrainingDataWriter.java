@@ -0,0 +1,205 @@
+package chess.core;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * Writes labelled positions in the format read by {@link TrainingData}, from any number of threads. Records are copied
+ * into one of two block buffers; when it fills, it is handed to the writer's own thread to be deflated and written
+ * while the other fills. Threads calling {@link #write(byte[], int)} therefore only copy, and wait only if the disk
+ * falls a whole block behind. Callers should write each game's records in one call, so that they take the lock once a
+ * game.
+ */
+public class TrainingDataWriter implements AutoCloseable{
+	public static final int DEFAULT_BLOCK_RECORDS = 4096;
+	private final int blockRecords;
+	private final FileChannel channel;
+	private long count;
+	private IOException failure;
+	/**
+	 * The buffer records are copied into, the full buffer waiting for or being written by the writer thread, or null,
+	 * and the buffer free for the next swap, null while the other is pending.
+	 */
+	private byte[] filling, pending, free;
+	private int filled, pendingRecords;
+	private boolean closing;
+	private long[] offsets = new long[16];
+	private int blocks;
+	private long position;
+	private final Thread thread;
+	
+	/**
+	 * Creates or replaces the file at path.
+	 *
+	 * @param blockRecords
+	 *            the records to a compressed block, of which one is inflated to read any record
+	 */
+	public TrainingDataWriter(Path path, int blockRecords) throws IOException{
+		if (blockRecords <= 0) throw new IllegalArgumentException("Block records must be positive");
+		this.blockRecords = blockRecords;
+		this.filling = new byte[blockRecords * TrainingData.RECORD_BYTES];
+		this.free = new byte[this.filling.length];
+		this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.WRITE);
+		ByteBuffer header = ByteBuffer.allocate(TrainingData.HEADER_BYTES);
+		header.putInt(TrainingData.MAGIC).putInt(TrainingData.VERSION).putInt(TrainingData.RECORD_BYTES).putInt(blockRecords);
+		header.flip();
+		writeFully(header);
+		this.thread = new Thread(new Runnable(){
+			@Override
+			public void run(){
+				writeBlocks();
+			}
+		}, "Training data writer");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+	
+	/**
+	 * Writes the last block, the index and the trailer, and closes the file.
+	 */
+	@Override
+	public void close() throws IOException{
+		synchronized (this){
+			if (this.closing) return;
+			try{
+				if (this.filled > 0) handOff();
+			} catch (IOException e){
+				// the writer thread failed, and the failure is thrown below
+			}
+			this.closing = true;
+			notifyAll();
+		}
+		try{
+			this.thread.join();
+		} catch (InterruptedException e){
+			Thread.currentThread().interrupt();
+			this.channel.close();
+			throw new InterruptedIOException("Interrupted closing training data");
+		}
+		try{
+			if (this.failure != null) throw this.failure;
+			ByteBuffer index = ByteBuffer.allocate(this.blocks * 8 + TrainingData.TRAILER_BYTES);
+			index.asLongBuffer().put(this.offsets, 0, this.blocks);
+			index.position(this.blocks * 8);
+			index.putLong(this.position).putLong(this.count).putInt(this.blocks).putInt(TrainingData.MAGIC);
+			index.flip();
+			writeFully(index);
+		} finally{
+			this.channel.close();
+		}
+	}
+	
+	/**
+	 * @return the records written so far, including those not yet on disk.
+	 */
+	public synchronized long getCount(){
+		return this.count;
+	}
+	
+	/**
+	 * Appends the first records records of batch, each {@link TrainingData#RECORD_BYTES} long.
+	 *
+	 * @throws IOException
+	 *             if an earlier block could not be written
+	 */
+	public synchronized void write(byte[] batch, int records) throws IOException{
+		if (this.closing) throw new IOException("Training data closed");
+		int offset = 0;
+		while (records > 0){
+			int n = Math.min(records, this.blockRecords - this.filled);
+			System.arraycopy(batch, offset, this.filling, this.filled * TrainingData.RECORD_BYTES, n
+					* TrainingData.RECORD_BYTES);
+			this.filled += n;
+			this.count += n;
+			offset += n * TrainingData.RECORD_BYTES;
+			records -= n;
+			if (this.filled == this.blockRecords) handOff();
+		}
+	}
+	
+	/**
+	 * Gives the filling buffer to the writer thread, once it has finished the last one, and fills the free one.
+	 */
+	private void handOff() throws IOException{
+		boolean interrupted = false;
+		while (this.pending != null && this.failure == null){
+			try{
+				wait();
+			} catch (InterruptedException e){
+				interrupted = true;
+			}
+		}
+		if (interrupted) Thread.currentThread().interrupt();
+		if (this.failure != null) throw this.failure;
+		this.pending = this.filling;
+		this.pendingRecords = this.filled;
+		this.filling = this.free;
+		this.free = null;
+		this.filled = 0;
+		notifyAll();
+	}
+	
+	/**
+	 * Deflates and writes blocks as they are handed off, until closed.
+	 */
+	private void writeBlocks(){
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		byte[] out = new byte[(this.blockRecords + 1) * TrainingData.RECORD_BYTES];
+		try{
+			while (true){
+				byte[] block;
+				int records;
+				synchronized (this){
+					while (this.pending == null && !this.closing){
+						try{
+							wait();
+						} catch (InterruptedException e){
+							// keep writing until closed
+						}
+					}
+					if (this.pending == null) return;
+					block = this.pending;
+					records = this.pendingRecords;
+				}
+				deflater.reset();
+				deflater.setInput(block, 0, records * TrainingData.RECORD_BYTES);
+				deflater.finish();
+				int length = 0;
+				while (!deflater.finished()){
+					if (length == out.length - TrainingData.BLOCK_HEADER_BYTES) out = Arrays.copyOf(out, 2 * out.length);
+					length += deflater.deflate(out, TrainingData.BLOCK_HEADER_BYTES + length, out.length
+							- TrainingData.BLOCK_HEADER_BYTES - length);
+				}
+				ByteBuffer buffer = ByteBuffer.wrap(out, 0, TrainingData.BLOCK_HEADER_BYTES + length);
+				buffer.putInt(length).putInt(records).position(0);
+				if (this.blocks == this.offsets.length) this.offsets = Arrays.copyOf(this.offsets, 2 * this.blocks);
+				this.offsets[this.blocks++] = this.position;
+				writeFully(buffer);
+				synchronized (this){
+					this.free = block;
+					this.pending = null;
+					notifyAll();
+				}
+			}
+		} catch (IOException e){
+			synchronized (this){
+				this.failure = e;
+				notifyAll();
+			}
+		} finally{
+			deflater.end();
+		}
+	}
+	
+	private void writeFully(ByteBuffer buffer) throws IOException{
+		while (buffer.hasRemaining())
+			this.position += this.channel.write(buffer, this.position);
+	}
+}
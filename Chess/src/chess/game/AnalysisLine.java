@@ -0,0 +1,59 @@
+package chess.game;
+
+import java.util.List;
+
+import chess.game.Board.Move;
+
+/**
+ * One candidate move found by an {@link Analyzer}, with its score and the line of play expected to follow it.
+ */
+public class AnalysisLine{
+	private final int depth;
+	private final List<Move> line;
+	private final int score;
+	
+	/**
+	 * @param line
+	 *            the candidate move followed by the expected replies; must not be empty
+	 */
+	public AnalysisLine(int depth, int score, List<Move> line){
+		if (line.isEmpty()) throw new IllegalArgumentException("Empty line");
+		this.depth = depth;
+		this.score = score;
+		this.line = line;
+	}
+	
+	/**
+	 * @return the depth in plies to which the line was searched.
+	 */
+	public int getDepth(){
+		return this.depth;
+	}
+	
+	/**
+	 * @return the candidate move followed by the line of play expected to follow it. The moves belong to a copy of the
+	 *         game's board; match them to the game's own moves by location.
+	 */
+	public List<Move> getLine(){
+		return this.line;
+	}
+	
+	/**
+	 * @return the candidate move.
+	 */
+	public Move getMove(){
+		return this.line.get(0);
+	}
+	
+	/**
+	 * @return the score of the line in centipawns, from the point of view of the player to move.
+	 */
+	public int getScore(){
+		return this.score;
+	}
+	
+	@Override
+	public String toString(){
+		return this.score + " " + this.line;
+	}
+}
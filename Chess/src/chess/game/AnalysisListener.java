@@ -0,0 +1,17 @@
+package chess.game;
+
+import java.util.EventListener;
+import java.util.List;
+
+/**
+ * Receives the results of an {@link Analyzer} as its analysis deepens.
+ */
+public interface AnalysisListener extends EventListener{
+	/**
+	 * Called, on the analyzing thread, each time an iteration of the analysis completes.
+	 *
+	 * @param lines
+	 *            the best lines found to depth, best first
+	 */
+	void analysisUpdated(int depth, List<AnalysisLine> lines);
+}
@@ -0,0 +1,29 @@
+package chess.game;
+
+import java.util.List;
+
+/**
+ * Finds the best few moves of a game's current position, rather than only the best one.
+ */
+public interface Analyzer{
+	/**
+	 * Analyzes a position until stopped or out of time, reporting each completed iteration to listener.
+	 *
+	 * @param board
+	 *            the position, which the analysis may search, and which is left as it was found
+	 * @param turn
+	 *            the player to move in board
+	 * @param lines
+	 *            the number of candidate moves wanted
+	 * @param listener
+	 *            receives the lines found by each iteration, or null
+	 * @return the lines found by the last completed iteration, best first, which may be fewer than lines if the
+	 *         position has fewer moves
+	 */
+	List<AnalysisLine> analyze(Board board, Player turn, int lines, AnalysisListener listener);
+	
+	/**
+	 * Asks the analysis in progress, if any, to finish as soon as possible.
+	 */
+	void stop();
+}
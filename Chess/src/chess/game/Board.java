@@ -1,12 +1,16 @@
 package chess.game;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Random;
 import java.util.Set;
 
 /**
@@ -16,6 +20,23 @@ import java.util.Set;
  */
 public class Board implements Serializable{
 	public static final int SIZE = 8;
+	/**
+	 * Random keys for each piece on each square, indexed by player, type and square. Generated from a fixed seed so
+	 * that hashes are the same in every run.
+	 */
+	private static final long[][][] PIECE_KEYS = new long[Player.getPlayers().size()][PieceType.values().length][SIZE
+			* SIZE];
+	private static final long BLACK_TO_MOVE_KEY;
+	static{
+		Random random = new Random(0x5EED_C0DEL);
+		for (long[][] playerKeys : PIECE_KEYS){
+			for (long[] typeKeys : playerKeys){
+				for (int i = 0; i < typeKeys.length; i++)
+					typeKeys[i] = random.nextLong();
+			}
+		}
+		BLACK_TO_MOVE_KEY = random.nextLong();
+	}
 	
 	/**
 	 * @return if loc is on this board.
@@ -30,8 +51,23 @@ public class Board implements Serializable{
 	}
 	
 	public abstract class Move implements Serializable{
+		/**
+		 * @return if this move captures a pawn en passant, which {@link #getCaptured()} does not report.
+		 */
+		public boolean capturesEnPassant(){
+			return false;
+		}
+		
 		public abstract boolean checksPlayer();
 		
+		/**
+		 * @return the {@link Location#getSquare() square} moved from times 64, plus the square moved to: the same for
+		 *         this move on every board, and the one encoding of moves the engine's tables and book store.
+		 */
+		public int getCode(){
+			return getOldLocation().getSquare() << 6 | getNewLocation().getSquare();
+		}
+		
 		/**
 		 * @return The piece captured after executing this move. Null if no capture did/will occurr.
 		 */
@@ -54,6 +90,10 @@ public class Board implements Serializable{
 		protected abstract void execute();
 		
 		protected abstract void undo();
+		
+		private Board getBoard(){
+			return Board.this;
+		}
 	}
 	/**
 	 * A snapshot of where a Piece is located when this object is created.
@@ -118,6 +158,11 @@ public class Board implements Serializable{
 			this.secondNew = secondNew;
 		}
 		
+		@Override
+		public boolean capturesEnPassant(){
+			return this.secondNew == null;
+		}
+		
 		@Override
 		public String toString(){
 			return super.toString() + ", " + this.secondOld + "->" + this.secondNew;
@@ -126,10 +171,10 @@ public class Board implements Serializable{
 		@Override
 		protected void execute(){
 			super.execute();
-			this.secondMoving = Board.this.pieces.remove(this.secondOld);
+			this.secondMoving = Board.this.removePiece(this.secondOld);
 			if (this.secondMoving == null) throw new EmptyLocationException(this.secondOld);
 			if (this.secondNew != null){
-				this.secondCapture = Board.this.pieces.put(this.secondNew, this.secondMoving);
+				this.secondCapture = Board.this.putPiece(this.secondNew, this.secondMoving);
 				this.secondMoving.incrementMoves();
 				Board.this.fireBoardChanged(new Location[]{this.secondOld, this.secondNew});
 			} else{
@@ -143,13 +188,13 @@ public class Board implements Serializable{
 			Location[] changedLocations;
 			if (this.secondNew != null){
 				this.secondMoving.decrementMoves();
-				if (this.secondCapture == null) Board.this.pieces.remove(this.secondNew);
-				else Board.this.pieces.put(this.secondNew, this.secondCapture);
+				if (this.secondCapture == null) Board.this.removePiece(this.secondNew);
+				else Board.this.putPiece(this.secondNew, this.secondCapture);
 				changedLocations = new Location[]{this.secondOld, this.secondNew};
 			} else{
 				changedLocations = new Location[]{this.secondOld};
 			}
-			Board.this.pieces.put(this.secondOld, this.secondMoving);
+			Board.this.putPiece(this.secondOld, this.secondMoving);
 			this.secondMoving = null;
 			Board.this.fireBoardChanged(changedLocations);
 			super.undo();
@@ -230,9 +275,9 @@ public class Board implements Serializable{
 		protected void execute(){
 			if (this.executed) throw new IllegalStateException("Move already executed");
 			this.executed = true;
-			this.moving = Board.this.pieces.remove(this.oldLocation);
+			this.moving = Board.this.removePiece(this.oldLocation);
 			if (this.moving == null) throw new EmptyLocationException(this.oldLocation);
-			this.captured = Board.this.pieces.put(this.newLocation, this.moving);
+			this.captured = Board.this.putPiece(this.newLocation, this.moving);
 			prevNonCaptureMoves = nonCaptureMoves;
 			if (this.captured == null) nonCaptureMoves++;
 			else nonCaptureMoves = 0;
@@ -246,9 +291,9 @@ public class Board implements Serializable{
 			if (!this.executed) throw new IllegalStateException("Move not executed");
 			this.moving.decrementMoves();
 			nonCaptureMoves = prevNonCaptureMoves;
-			if (this.captured == null) Board.this.pieces.remove(this.newLocation);
-			else Board.this.pieces.put(this.newLocation, this.captured);
-			Board.this.pieces.put(this.oldLocation, this.moving);
+			if (this.captured == null) Board.this.removePiece(this.newLocation);
+			else Board.this.putPiece(this.newLocation, this.captured);
+			Board.this.putPiece(this.oldLocation, this.moving);
 			this.executed = false;
 			Board.this.last = this.previous;
 			Board.this.fireBoardChanged(new Location[]{this.oldLocation, this.newLocation});
@@ -256,11 +301,16 @@ public class Board implements Serializable{
 	}
 	
 	protected Move last;
+	/**
+	 * Zobrist hashes of all pieces and of pawns alone.
+	 */
+	protected long hash, pawnHash;
 	protected int nonCaptureMoves;
 	protected boolean notifyListeners = true;
 	protected Map<Location, Piece> pieces;
 	private Piece blackKing, whiteKing;
 	private transient List<BoardListener> listeners;
+	private transient PieceListener[] pieceListeners = new PieceListener[0];
 	public Board(){
 		this.pieces = new HashMap<>(Board.SIZE * Board.SIZE, 1.0f);
 	}
@@ -271,6 +321,47 @@ public class Board implements Serializable{
 		this.listeners.add(listener);
 	}
 	
+	/**
+	 * Registers listener to be told of every piece placed on or removed from this board, including those of moves
+	 * executed without notifying BoardListeners.
+	 */
+	public void addPieceListener(PieceListener listener){
+		if (listener == null) return;
+		PieceListener[] old = this.pieceListeners;
+		this.pieceListeners = Arrays.copyOf(old, old.length + 1);
+		this.pieceListeners[old.length] = listener;
+	}
+	
+	/**
+	 * @return a copy of this board, with copies of its pieces, that has no listeners. Moves on the copy do not affect
+	 *         this board.
+	 */
+	public Board copy(){
+		Board copy = new Board();
+		for (Entry<Location, Piece> pieceLocation : this.pieces.entrySet()){
+			Piece piece = new Piece(pieceLocation.getValue(), copy);
+			copy.trackKings(piece);
+			copy.pieces.put(pieceLocation.getKey(), piece);
+		}
+		copy.hash = this.hash;
+		copy.pawnHash = this.pawnHash;
+		copy.last = this.last;
+		copy.nonCaptureMoves = this.nonCaptureMoves;
+		return copy;
+	}
+	
+	/**
+	 * Executes move, which must have been created by this board, without any of the bookkeeping done by {@link Game}.
+	 * 
+	 * @param promotion
+	 *            The type a promoting pawn becomes. Ignored if move does not promote a piece.
+	 */
+	public void execute(Move move, PieceType promotion){
+		if (move.getBoard() != this) throw new IllegalArgumentException("Move does not belong to this board");
+		move.execute();
+		if (move.promotesPiece()) move.getMoving().setType(promotion);
+	}
+	
 	/**
 	 * @return the location of piece on the board, null if piece is not present. Uses object identity to identify piece.
 	 */
@@ -287,6 +378,40 @@ public class Board implements Serializable{
 		return this.blackKing;
 	}
 	
+	/**
+	 * @return the pseudo-legal captures, en passant included, and promotions available to player. The moves are not
+	 *         checked for leaving player in check.
+	 */
+	public List<Move> getCaptures(Player player){
+		List<Move> captures = new ArrayList<>();
+		for (Location loc : getPlayerLocations(player)){
+			for (Move move : this.pieces.get(loc).getMoves(loc)){
+				if (move.getCaptured() != null || move.capturesEnPassant() || move.promotesPiece()) captures.add(move);
+			}
+		}
+		return captures;
+	}
+	
+	/**
+	 * @return all moves available to player that do not leave player in check.
+	 */
+	public List<Move> getMoves(Player player){
+		List<Move> moves = new ArrayList<>();
+		for (Location loc : getPlayerLocations(player)){
+			for (Move move : this.pieces.get(loc).getMoves(loc)){
+				if (!move.checksPlayer()) moves.add(move);
+			}
+		}
+		return moves;
+	}
+	
+	/**
+	 * @return a Zobrist hash of the placement of pieces and toMove. Castling and en passant rights are not included.
+	 */
+	public long getHash(Player toMove){
+		return toMove == Player.BLACK ? this.hash ^ BLACK_TO_MOVE_KEY : this.hash;
+	}
+	
 	public int getNonCaptureMoves(){
 		return this.nonCaptureMoves;
 	}
@@ -298,6 +423,13 @@ public class Board implements Serializable{
 		return this.pieces.get(location);
 	}
 	
+	/**
+	 * @return a Zobrist hash of the placement of pawns alone.
+	 */
+	public long getPawnHash(){
+		return this.pawnHash;
+	}
+	
 	public Set<Location> getPlayerLocations(Player player){
 		Set<Location> locations = new HashSet<>();
 		for (Entry<Location, Piece> entry : this.pieces.entrySet()){
@@ -341,6 +473,28 @@ public class Board implements Serializable{
 		if (this.listeners != null) this.listeners.remove(listener);
 	}
 	
+	public void removePieceListener(PieceListener listener){
+		PieceListener[] old = this.pieceListeners;
+		for (int i = 0; i < old.length; i++){
+			if (old[i] == listener){
+				PieceListener[] listeners = new PieceListener[old.length - 1];
+				System.arraycopy(old, 0, listeners, 0, i);
+				System.arraycopy(old, i + 1, listeners, i, listeners.length - i);
+				this.pieceListeners = listeners;
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Undoes move, which must have been executed through {@link #execute(Move, PieceType)}.
+	 */
+	public void undo(Move move){
+		if (move.getBoard() != this) throw new IllegalArgumentException("Move does not belong to this board");
+		if (move.promotesPiece()) move.getMoving().setType(PieceType.PAWN);
+		move.undo();
+	}
+	
 	/**
 	 * Causes all BoardListeners registered on this board to recieve a BoardChangedEvent for loc
 	 */
@@ -375,6 +529,24 @@ public class Board implements Serializable{
 		return new DoubleMove(oldLocation, newLocation, secondOld, secondNew);
 	}
 	
+	/**
+	 * Records that piece has been placed at location, updating the hashes and telling PieceListeners of the change.
+	 */
+	protected void piecePlaced(Piece piece, Location location){
+		toggleHash(piece, location);
+		for (PieceListener l : this.pieceListeners)
+			l.piecePlaced(piece, location);
+	}
+	
+	/**
+	 * Records that piece has been removed from location, updating the hashes and telling PieceListeners of the change.
+	 */
+	protected void pieceRemoved(Piece piece, Location location){
+		toggleHash(piece, location);
+		for (PieceListener l : this.pieceListeners)
+			l.pieceRemoved(piece, location);
+	}
+	
 	/**
 	 * Puts piece on the board at location.
 	 * 
@@ -388,7 +560,7 @@ public class Board implements Serializable{
 		}
 		Piece piece = new Piece(type, player, this);
 		trackKings(piece);
-		Piece removed = this.pieces.put(location, piece);
+		Piece removed = putPiece(location, piece);
 		fireBoardChanged(new Location[]{location});
 		return removed;
 	}
@@ -404,6 +576,43 @@ public class Board implements Serializable{
 		return locations;
 	}
 	
+	/**
+	 * Puts piece at location, telling PieceListeners of the change.
+	 * 
+	 * @return the piece previously at location.
+	 */
+	private Piece putPiece(Location location, Piece piece){
+		Piece removed = this.pieces.put(location, piece);
+		if (removed != null) pieceRemoved(removed, location);
+		piecePlaced(piece, location);
+		return removed;
+	}
+	
+	private void readObject(java.io.ObjectInputStream in)
+			throws IOException, ClassNotFoundException{
+		in.defaultReadObject();
+		this.pieceListeners = new PieceListener[0];
+	}
+	
+	/**
+	 * Removes the piece at location, telling PieceListeners of the change.
+	 * 
+	 * @return the piece removed.
+	 */
+	private Piece removePiece(Location location){
+		Piece removed = this.pieces.remove(location);
+		if (removed != null) pieceRemoved(removed, location);
+		return removed;
+	}
+	
+	private void toggleHash(Piece piece, Location location){
+		long key = PIECE_KEYS[piece.getPlayer().ordinal()][piece.getType().ordinal()][location.row
+				* SIZE
+				+ location.column];
+		this.hash ^= key;
+		if (piece.getType() == PieceType.PAWN) this.pawnHash ^= key;
+	}
+	
 	private void trackKings(Piece piece){
 		if (piece.getType() == PieceType.KING){
 			switch (piece.getPlayer()){
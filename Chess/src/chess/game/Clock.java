@@ -0,0 +1,151 @@
+package chess.game;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The chess clocks of a {@link Game}: each player has a base time, gains an increment after each of their turns, and
+ * may have a delay at the start of each turn before their time starts to run. The game switches the clock as the turn
+ * changes, undoing a move included, and ends when the player to move runs out of time. Flag-fall is detected by a
+ * {@link TimingWheel}, shared by every clock by default, rather than a thread or scheduled task per clock.
+ */
+public class Clock{
+	private final long baseNanos, incrementNanos, delayNanos;
+	private final TimingWheel wheel;
+	private final long[] remaining = new long[2];
+	/**
+	 * The player whose time is running, or null, and when their turn started.
+	 */
+	private Player running;
+	private long started;
+	private TimingWheel.Timeout flag;
+	/**
+	 * Told when the running player's time has run out.
+	 */
+	private Runnable flagFall;
+	
+	/**
+	 * @return clocks of baseMillis for each player, with incrementMillis added after each turn.
+	 */
+	public static Clock increment(long baseMillis, long incrementMillis){
+		return new Clock(baseMillis, incrementMillis, 0, TimingWheel.getShared());
+	}
+	
+	/**
+	 * @return clocks of baseMillis for each player, which wait delayMillis at the start of each turn before running.
+	 */
+	public static Clock delay(long baseMillis, long delayMillis){
+		return new Clock(baseMillis, 0, delayMillis, TimingWheel.getShared());
+	}
+	
+	public Clock(long baseMillis, long incrementMillis, long delayMillis, TimingWheel wheel){
+		if (baseMillis <= 0 || incrementMillis < 0 || delayMillis < 0) throw new IllegalArgumentException("Bad time control "
+				+ baseMillis
+				+ "+"
+				+ incrementMillis);
+		this.baseNanos = TimeUnit.MILLISECONDS.toNanos(baseMillis);
+		this.incrementNanos = TimeUnit.MILLISECONDS.toNanos(incrementMillis);
+		this.delayNanos = TimeUnit.MILLISECONDS.toNanos(delayMillis);
+		this.wheel = wheel;
+		this.remaining[0] = this.remaining[1] = this.baseNanos;
+	}
+	
+	public long getBaseMillis(){
+		return TimeUnit.NANOSECONDS.toMillis(this.baseNanos);
+	}
+	
+	public long getDelayMillis(){
+		return TimeUnit.NANOSECONDS.toMillis(this.delayNanos);
+	}
+	
+	public long getIncrementMillis(){
+		return TimeUnit.NANOSECONDS.toMillis(this.incrementNanos);
+	}
+	
+	/**
+	 * @return the time player has left, not counting the delay of a turn in progress, and never less than 0.
+	 * @throws IllegalArgumentException
+	 *             if player is not one of the {@link Player#getPlayers() players}
+	 */
+	public synchronized long getRemainingMillis(Player player){
+		return TimeUnit.NANOSECONDS.toMillis(Math.max(0, remaining(player, System.nanoTime())));
+	}
+	
+	/**
+	 * @return the player whose time is running, or null if the clock is stopped.
+	 */
+	public synchronized Player getRunning(){
+		return this.running;
+	}
+	
+	/**
+	 * @return how long player's mover may think about its next move, spreading its remaining time over the game.
+	 */
+	public TimeBudget getTimeBudget(Player player){
+		return TimeBudget.forClock(getRemainingMillis(player) + getDelayMillis(), getIncrementMillis(), 0);
+	}
+	
+	/**
+	 * @return if player's time has run out, which is never so for {@link Player#GAME_OVER}.
+	 */
+	public synchronized boolean isFlagged(Player player){
+		if (!Player.getPlayers().contains(player)) return false;
+		return remaining(player, System.nanoTime()) <= 0;
+	}
+	
+	@Override
+	public String toString(){
+		return getRemainingMillis(Player.WHITE) + "/" + getRemainingMillis(Player.BLACK) + "ms";
+	}
+	
+	/**
+	 * Sets what to tell when the running player's time runs out, once the clock is given to a game.
+	 */
+	synchronized void setFlagFall(Runnable flagFall){
+		this.flagFall = flagFall;
+	}
+	
+	/**
+	 * Stops the running player's time, adding their increment unless it has run out, and starts next's, if next is a
+	 * player.
+	 */
+	synchronized void switchTo(Player next){
+		long now = System.nanoTime();
+		if (this.running != null){
+			long left = remaining(this.running, now);
+			this.remaining[this.running.ordinal()] = left > 0 ? left + this.incrementNanos : 0;
+			this.running = null;
+		}
+		if (this.flag != null){
+			this.flag.cancel();
+			this.flag = null;
+		}
+		if (!Player.getPlayers().contains(next)) return;
+		this.running = next;
+		this.started = now;
+		this.flag = this.wheel.schedule(new Runnable(){
+			@Override
+			public void run(){
+				flagFell();
+			}
+		}, this.delayNanos + this.remaining[next.ordinal()], TimeUnit.NANOSECONDS);
+	}
+	
+	private void flagFell(){
+		Runnable flagFall;
+		synchronized (this){
+			if (this.running == null || !isFlagged(this.running)) return;
+			flagFall = this.flagFall;
+		}
+		if (flagFall != null) flagFall.run();
+	}
+	
+	/**
+	 * @return player's time left at now, which is negative once it has run out.
+	 */
+	private long remaining(Player player, long now){
+		if (!Player.getPlayers().contains(player)) throw new IllegalArgumentException("No clock for " + player);
+		long left = this.remaining[player.ordinal()];
+		if (player == this.running) left -= Math.max(0, now - this.started - this.delayNanos);
+		return left;
+	}
+}
@@ -1,6 +1,8 @@
 package chess.game;
 
+import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.beans.PropertyChangeListenerProxy;
 import java.beans.PropertyChangeSupport;
 import java.io.IOException;
 import java.io.Serializable;
@@ -11,18 +13,32 @@ import java.util.Collections;
 import java.util.Deque;
 import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
-import javax.swing.JOptionPane;
-
+import chess.core.HeadlessGame;
+import chess.core.Result;
 import chess.game.Board.Move;
 
-public class Game implements Serializable{
+public class Game implements Serializable, AutoCloseable{
 	/**
 	 * Represents an action in this Game
 	 * 
@@ -149,15 +165,105 @@ public class Game implements Serializable{
 		}
 	}
 	
+	/**
+	 * A change to this game, or a question about it, waiting in the queue for the thread that owns the game.
+	 */
+	private static class Action<T>{
+		private final Supplier<T> supplier;
+		private final CompletableFuture<T> result = new CompletableFuture<>();
+		
+		Action(Supplier<T> supplier){
+			this.supplier = supplier;
+		}
+		
+		void run(){
+			try{
+				this.result.complete(this.supplier.get());
+			} catch (Throwable e){
+				this.result.completeExceptionally(e);
+			}
+		}
+	}
+	/**
+	 * What the actions of one batch changed, reported once they have all been applied.
+	 */
+	private static class Batch{
+		private final List<Move> completed = new ArrayList<>();
+		private boolean historyChanged, positionChanged, startMover;
+		/**
+		 * The value of each bound property changed, before the batch.
+		 */
+		private final Map<String, Object> oldValues = new LinkedHashMap<>();
+	}
+	
+	/**
+	 * How long the threads this game creates wait for work before ending.
+	 */
+	private static final long IDLE_SECONDS = 30;
 	protected Board board;
-	protected Piece promoting;
+	protected volatile Piece promoting;
+	/**
+	 * Changes and questions waiting to be applied by the thread that owns this game.
+	 */
+	private transient Queue<Action<?>> actions = new ConcurrentLinkedQueue<>();
+	private transient ExecutorService analysisExecutor;
+	/**
+	 * The batch being applied, if any.
+	 */
+	private transient Batch batch;
 	private boolean blackCheck;
+	/**
+	 * The clocks of the game, if it is timed.
+	 */
+	private transient volatile Clock clock;
 	private Deque<GameCommand> commandHistory = new ArrayDeque<>();
-	private Future<Move> lastMovement;
-	private ExecutorService moveExecutor = Executors.newSingleThreadExecutor();
+	/**
+	 * The descriptions of commandHistory as of the last batch.
+	 */
+	private transient volatile List<String> history = Collections.emptyList();
+	/**
+	 * Set while replay plays a move known to be legal and not to end the game, which is played without looking for
+	 * checks or legal moves; the last move replayed sets them.
+	 */
+	private transient boolean replaying;
+	/**
+	 * Runs movers, one at a time for this game. Created on first use unless given to the constructor.
+	 */
+	private transient Executor moveExecutor;
+	/**
+	 * The executor this game created for its movers, if it did.
+	 */
+	private transient ExecutorService ownExecutor;
+	/**
+	 * Completes when the last mover started has returned, so the next waits for it even if its move was discarded.
+	 */
+	private transient CompletableFuture<?> moverTail;
 	private Map<Player, Mover> movers = new EnumMap<>(Player.class);
+	/**
+	 * The thread applying actions to this game, if any. Only that thread touches the board and commands.
+	 */
+	private transient AtomicReference<Thread> owner = new AtomicReference<>();
+	/**
+	 * The move being chosen by pendingMover, if any.
+	 */
+	private transient CompletableFuture<Move> pendingMove;
+	private transient Mover pendingMover;
+	/**
+	 * The snapshot of the position published after the last change.
+	 */
+	private transient volatile Position position;
 	private transient PropertyChangeSupport propertyChange = new PropertyChangeSupport(this);
-	private Player turn;
+	private Result result = Result.NONE;
+	/**
+	 * The player the result concerns: the winner of a checkmate, the player left without a move in a stalemate, or the
+	 * player who declared stalemate.
+	 */
+	private Player resultPlayer;
+	private volatile Player turn;
+	/**
+	 * Counts the changes to this game, so that a move chosen for one position is not played in another.
+	 */
+	private volatile int version;
 	private boolean whiteCheck;
 	
 	/**
@@ -177,6 +283,29 @@ public class Game implements Serializable{
 		this.board = new Board();
 		this.turn = Player.WHITE;
 		if (standard) standardGameSetup();
+		publishPosition();
+	}
+	
+	/**
+	 * Creates a standard game whose movers run on moveExecutor, which may be shared with other games. The game's movers
+	 * still choose one move at a time.
+	 */
+	public Game(Executor moveExecutor){
+		this(true);
+		this.moveExecutor = moveExecutor;
+	}
+	
+	/**
+	 * @return the result of an action, rethrowing its failure.
+	 */
+	private static <T> T await(CompletableFuture<T> result){
+		try{
+			return result.join();
+		} catch (CompletionException e){
+			if (e.getCause() instanceof RuntimeException) throw (RuntimeException)e.getCause();
+			if (e.getCause() instanceof Error) throw (Error)e.getCause();
+			throw e;
+		}
 	}
 	
 	public void addBoardListener(BoardListener listener){
@@ -191,75 +320,252 @@ public class Game implements Serializable{
 		this.propertyChange.addPropertyChangeListener(propertyName, listener);
 	}
 	
+	/**
+	 * Analyzes the current position of this game with analyzer on a background thread. The analysis runs until analyzer
+	 * is stopped or runs out of time, and works on a copy of the board, so the game may go on meanwhile.
+	 *
+	 * @param lines
+	 *            the number of candidate moves wanted
+	 * @param listener
+	 *            receives the lines found as the analysis deepens, or null
+	 * @return the lines found by the deepest completed iteration
+	 */
+	public Future<List<AnalysisLine>> analyze(final Analyzer analyzer, final int lines, final AnalysisListener listener){
+		return query(new Supplier<Future<List<AnalysisLine>>>(){
+			@Override
+			public Future<List<AnalysisLine>> get(){
+				final Board board = Game.this.board.copy();
+				final Player turn = Game.this.turn;
+				if (Game.this.analysisExecutor == null) Game.this.analysisExecutor = new IdleExecutor("Analysis", IDLE_SECONDS);
+				return Game.this.analysisExecutor.submit(new Callable<List<AnalysisLine>>(){
+					@Override
+					public List<AnalysisLine> call(){
+						return analyzer.analyze(board, turn, lines, listener);
+					}
+				});
+			}
+		});
+	}
+	
+	/**
+	 * Stops any mover choosing a move, removes the movers, and shuts down the threads this game created. Threads of an
+	 * executor given to the constructor are left to its owner.
+	 */
+	@Override
+	public void close(){
+		change(new Supplier<Void>(){
+			@Override
+			public Void get(){
+				shutDown();
+				return null;
+			}
+		});
+	}
+	
 	public boolean canDeclareStalemate(){
 		//System.out.println(this.board.getNonCaptureMoves());
 		return this.board.getNonCaptureMoves() >= 49;
 	}
 	
+	/**
+	 * @return a copy of the current board that may be searched without affecting this game or firing its events.
+	 */
+	public Board copyBoard(){
+		return query(new Supplier<Board>(){
+			@Override
+			public Board get(){
+				return Game.this.board.copy();
+			}
+		});
+	}
+	
 	protected Player playerStalemate = null;
+	
 	public void declareStalemate(){
-		if (!canDeclareStalemate()) throw new IllegalStateException("Stalemate not available now");
-		this.playerStalemate = this.turn;
+		change(new Supplier<Void>(){
+			@Override
+			public Void get(){
+				if (!canDeclareStalemate()) throw new IllegalStateException("Stalemate not available now");
+				Game.this.playerStalemate = Game.this.turn;
+				return null;
+			}
+		});
 	}
 	
 	public void executeMove(Move move){
-		//TODO: strict turn enforcement
-		GameCommand command = new MoveCommand(move);
-		this.commandHistory.addLast(command);
-		command.execute();
-		this.propertyChange.firePropertyChange("history", null, getHistory());
-		executeMover();
+		executeMove(move, null);
 	}
-
+	
+	/**
+	 * Plays move and, if it leaves a pawn to be promoted and promotion is not null, promotes the pawn to promotion, as a
+	 * single change.
+	 */
+	public void executeMove(final Move move, final PieceType promotion){
+		change(new Supplier<Void>(){
+			@Override
+			public Void get(){
+				playMove(move.getOldLocation(), move.getNewLocation(), promotion);
+				return null;
+			}
+		});
+	}
+	
+	/**
+	 * Plays the legal move of the piece at from to to, if there is one.
+	 * 
+	 * @return false if there is no such move, as when the position has changed since the caller looked at it, if the
+	 *         player's time had run out, which ends the game instead, or if called by a listener of this game, when the
+	 *         move is only queued.
+	 */
+	public boolean executeMove(final Location from, final Location to){
+		Boolean played = change(new Supplier<Boolean>(){
+			@Override
+			public Boolean get(){
+				for (Move move : moves(from)){
+					if (move.getNewLocation().equals(to)) return playMove(from, to, null);
+				}
+				return false;
+			}
+		});
+		return Boolean.TRUE.equals(played);
+	}
+	
 	public List<Move> getAllCurrentMoves(){
-		if (!Player.getPlayers().contains(this.turn)) return Collections.emptyList();
-		List<Move> allMoves = new ArrayList<>();
-		for (Location loc : this.board.getPlayerLocations(this.turn)){
-			allMoves.addAll(getMoves(loc));
-		}
-		return allMoves;
+		return query(new Supplier<List<Move>>(){
+			@Override
+			public List<Move> get(){
+				return currentMoves();
+			}
+		});
 	}
 	
 	public Piece getBlackKing(){
 		return this.board.getBlackKing();
 	}
 	
+	/**
+	 * @return the clocks of the game, or null if it is not timed.
+	 */
+	public Clock getClock(){
+		return this.clock;
+	}
+	
 	/**
 	 * Returns a list of strings describing commands performed on this game.
 	 */
 	public List<String> getHistory(){
-		List<String> commands = new ArrayList<>();
-		for (GameCommand c : this.commandHistory){
-			commands.add(c.toString());
-		}
-		return commands;
+		return this.history;
 	}
 	
-	public Mover getMover(Player p){
-		return movers.get(p);
+	public Mover getMover(final Player p){
+		return query(new Supplier<Mover>(){
+			@Override
+			public Mover get(){
+				return Game.this.movers.get(p);
+			}
+		});
+	}
+	
+	/**
+	 * @return the move being chosen by the current player's mover, or null if no mover is choosing a move. The future
+	 *         is cancelled if the game changes before the move is chosen, and completes once the move is chosen, before
+	 *         it is played.
+	 */
+	public CompletableFuture<Move> getPendingMove(){
+		return query(new Supplier<CompletableFuture<Move>>(){
+			@Override
+			public CompletableFuture<Move> get(){
+				return Game.this.pendingMove;
+			}
+		});
 	}
 	
 	/**
 	 * @return a list of locations that the piece at location may move to, or an empty list if it may not move or there
 	 *         is no piece there.
 	 */
-	public List<Move> getMoves(Location start){
-		Piece moving = this.board.getPiece(start);
-		List<Move> moves;
-		if (moving == null || moving.getPlayer() != this.turn) moves = Collections.emptyList();
-		else moves = moving.getMoves(start);
-		for (Iterator<Move> iterator = moves.iterator(); iterator.hasNext();){
-			Move move = iterator.next();
-			if (move.checksPlayer()) iterator.remove();
-		}
-		return moves;
+	public List<Move> getMoves(final Location start){
+		return query(new Supplier<List<Move>>(){
+			@Override
+			public List<Move> get(){
+				return moves(start);
+			}
+		});
+	}
+	
+	/**
+	 * @return the moves played to reach the current position from the start, in {@link Notation}, with the type each
+	 *         promotion chose.
+	 */
+	public List<String> getMovesPlayed(){
+		return query(new Supplier<List<String>>(){
+			@Override
+			public List<String> get(){
+				List<String> moves = new ArrayList<>(Game.this.commandHistory.size());
+				for (GameCommand command : Game.this.commandHistory){
+					if (command instanceof PawnPromotionCommand){
+						PawnPromotionCommand promotion = (PawnPromotionCommand)command;
+						moves.add(Notation.format(((MoveCommand)promotion.previous).getMove(), promotion.promotion));
+					} else moves.add(Notation.format(((MoveCommand)command).getMove(), null));
+				}
+				return moves;
+			}
+		});
+	}
+	
+	/**
+	 * @return the hash of the current position with the current player to move.
+	 * @see Board#getHash(Player)
+	 */
+	public long getHash(){
+		return query(new Supplier<Long>(){
+			@Override
+			public Long get(){
+				return Game.this.board.getHash(Game.this.turn);
+			}
+		});
 	}
 	
 	/**
 	 * @see Board.getPiece;
 	 */
-	public Piece getPiece(Location location){
-		return this.board.getPiece(location);
+	public Piece getPiece(final Location location){
+		return query(new Supplier<Piece>(){
+			@Override
+			public Piece get(){
+				return Game.this.board.getPiece(location);
+			}
+		});
+	}
+	
+	/**
+	 * Bound property for an immutable snapshot of the current position, which may be read from any thread without
+	 * locking. A new snapshot is published whenever a move is played, promoted or undone.
+	 */
+	public Position getPosition(){
+		return this.position;
+	}
+	
+	/**
+	 * Bound property for how the game ended, {@link Result#NONE} while it is in progress.
+	 */
+	public Result getResult(){
+		return this.result;
+	}
+	
+	/**
+	 * @return the winner of a checkmate or on time, the player left without a move in a stalemate, the player who
+	 *         declared a declared stalemate, or null while the game is in progress.
+	 */
+	public Player getResultPlayer(){
+		return this.resultPlayer;
+	}
+	
+	/**
+	 * @return a number that changes whenever a move is played or undone or a mover is set.
+	 */
+	public int getVersion(){
+		return this.version;
 	}
 	
 	/**
@@ -304,12 +610,14 @@ public class Game implements Serializable{
 	 * @throws IllegalArgumentException
 	 *             if promotion is not a valid promotion type
 	 */
-	public void promote(PieceType promotion){
-		GameCommand lastCommand = this.commandHistory.pollLast();
-		lastCommand = new PawnPromotionCommand(lastCommand, promotion);
-		lastCommand.execute();
-		this.commandHistory.addLast(lastCommand);
-		this.propertyChange.firePropertyChange("history", null, getHistory());
+	public void promote(final PieceType promotion){
+		change(new Supplier<Void>(){
+			@Override
+			public Void get(){
+				promotePawn(promotion);
+				return null;
+			}
+		});
 	}
 	
 	public void removeBoardListener(BoardListener listener){
@@ -324,12 +632,32 @@ public class Game implements Serializable{
 		this.propertyChange.removePropertyChangeListener(propertyName, listener);
 	}
 	
+	/**
+	 * Times the game with clock, starting the current player's time now, or stops timing it if clock is null. While the
+	 * game is timed, each mover is given a time budget from its clock when asked for a move, and the game ends as
+	 * {@link Result#TIME_FORFEIT} when the player to move runs out of time. A clock may only time one game.
+	 */
+	public void setClock(final Clock clock){
+		change(new Supplier<Void>(){
+			@Override
+			public Void get(){
+				startClock(clock);
+				return null;
+			}
+		});
+	}
+	
 	public void setMover(final Player player, final Mover mover){
 		if (player == Player.GAME_OVER){
 			throw new IllegalArgumentException("May not assign mover to " + Player.GAME_OVER);
 		}
-		this.movers.put(player, mover);
-		executeMover();
+		change(new Supplier<Void>(){
+			@Override
+			public Void get(){
+				assignMover(player, mover);
+				return null;
+			}
+		});
 	}
 	
 	public boolean turnHasMover(){
@@ -340,18 +668,41 @@ public class Game implements Serializable{
 	 * Unperforms the last action
 	 */
 	public void undo(){
-		GameCommand lastCommand;
-		Mover mover;
-		do{
-			lastCommand = this.commandHistory.pollLast();
-			if (lastCommand != null){
-				lastCommand.undo();
-				this.propertyChange.firePropertyChange("history", null, getHistory());
+		change(new Supplier<Void>(){
+			@Override
+			public Void get(){
+				undoCommands();
+				return null;
 			}
-			mover = this.movers.get(this.turn);
-			
-		}while(lastCommand != null && mover != null && mover.allowUndo());
-		if (lastCommand == null) executeMover();
+		});
+	}
+	
+	/**
+	 * Plays moves[start] to moves[end - 1], encoded as by {@link HeadlessGame}, as a single change, so that listeners
+	 * hear of them once, when all have been played. The moves must have been played on a {@link HeadlessGame} first,
+	 * which has found that none but the last ends the game, so only the last turn change looks for legal moves.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if a move is not legal
+	 */
+	void replay(final int[] moves, final int start, final int end){
+		change(new Supplier<Void>(){
+			@Override
+			public Void get(){
+				try{
+					for (int i = start; i < end; i++){
+						int from = HeadlessGame.getFrom(moves[i]), to = HeadlessGame.getTo(moves[i]);
+						Game.this.replaying = i < end - 1;
+						playMove(	new Location(from / Board.SIZE, from % Board.SIZE),
+									new Location(to / Board.SIZE, to % Board.SIZE),
+									HeadlessGame.getPromotion(moves[i]));
+					}
+				} finally{
+					Game.this.replaying = false;
+				}
+				return null;
+			}
+		});
 	}
 	
 	protected void nextTurn(){
@@ -365,50 +716,360 @@ public class Game implements Serializable{
 	
 	protected void setTurn(Player next){
 		Player current = this.turn;
-		if (current != Player.GAME_OVER){
-			boolean currentPlayerCheck = this.board.isCheck(current);
-			//TODO: check enforcement at model level - currently only the UI strictly enforces check movement rules
-			//if (currentPlayerCheck) throw new IllegalStateException("Player may not end turn in check.");
-			setCheck(current, currentPlayerCheck);
-		} else{
-			for (Player p : Player.getPlayers()){
-				setCheck(p, this.board.isCheck(p));
+		// checks during a replay are left to the last move replayed
+		if (!this.replaying){
+			if (current != Player.GAME_OVER){
+				boolean currentPlayerCheck = this.board.isCheck(current);
+				//TODO: check enforcement at model level - currently only the UI strictly enforces check movement rules
+				//if (currentPlayerCheck) throw new IllegalStateException("Player may not end turn in check.");
+				setCheck(current, currentPlayerCheck);
+			} else{
+				for (Player p : Player.getPlayers()){
+					setCheck(p, this.board.isCheck(p));
+				}
 			}
 		}
 		this.turn = next;
 		boolean nextPlayerCheck = false;
-		if (Player.getPlayers().contains(next)){
+		if (!this.replaying && Player.getPlayers().contains(next)){
 			nextPlayerCheck = this.board.isCheck(next);
 			setCheck(next, nextPlayerCheck);
 		}
-		List<Move> allMoves = getAllCurrentMoves();
-		if (allMoves.isEmpty() && !isPromoting()){
+		Result result = Result.NONE;
+		Player resultPlayer = null;
+		if (!this.replaying && !isPromoting() && currentMoves().isEmpty()){
 			this.turn = Player.GAME_OVER;
 			if (nextPlayerCheck){
-				//TODO: checkmate - no model logic for handling checkmate, no end-of-game events aside from the player changing to GAME_OVER 
-				JOptionPane.showMessageDialog(null, "Checkmate - "+current);
+				result = Result.CHECKMATE;
+				resultPlayer = current;
+			} else if (playerStalemate == null){
+				result = Result.STALEMATE;
+				resultPlayer = next;
 			} else{
-				//TODO: stalemate  - no model logic for handling stalemate, no end-of-game events aside from the player changing to GAME_OVER
-				String message ;
-				if (playerStalemate== null) message = "Stalemate: no possible move for "+next;
-				else message = "Stalemate - "+playerStalemate;
-				JOptionPane.showMessageDialog(null, message);
+				result = Result.DECLARED_STALEMATE;
+				resultPlayer = playerStalemate;
 			}
 		}
-		this.propertyChange.firePropertyChange("turn", current, this.turn);
+		Result oldResult = this.result;
+		this.result = result;
+		this.resultPlayer = resultPlayer;
+		if (this.clock != null) this.clock.switchTo(this.turn);
+		firePropertyChange("result", oldResult, result);
+		firePropertyChange("turn", current, this.turn);
+	}
+	
+	/**
+	 * Plays move, chosen by mover, unless the game has changed since version.
+	 */
+	private void applyMove(Mover mover, Move move, int expectedVersion){
+		if (move == null || this.version != expectedVersion || this.movers.get(this.turn) != mover) return;
+		boolean promotion = move.promotesPiece();
+		if (!promotion && canDeclareStalemate() && mover.checkStalemate()) this.playerStalemate = this.turn;
+		playMove(move.getOldLocation(), move.getNewLocation(), promotion ? mover.getPromotion() : null);
+	}
+	
+	private void assignMover(Player player, Mover mover){
+		this.version++;
+		Mover previous = this.movers.put(player, mover);
+		if (previous != null && previous != mover && !this.movers.containsValue(previous)) previous.removed();
+		this.batch.startMover = true;
+	}
+	
+	/**
+	 * Stops the mover choosing a move, if any, and discards its move.
+	 */
+	private void cancelMover(){
+		if (this.pendingMove != null && !this.pendingMove.isDone()){
+			this.pendingMove.cancel(false);
+			this.pendingMover.stop();
+		}
+		this.pendingMove = null;
+		this.pendingMover = null;
 	}
 	
+	/**
+	 * Has the thread owning this game make a change, and waits for it. Called on that thread, by a listener or mover
+	 * hook, the change is queued to be made once the current batch is done, and null is returned.
+	 */
+	private <T> T change(Supplier<T> change){
+		if (this.owner.get() != Thread.currentThread()) return await(submit(change));
+		submit(change).exceptionally(new Function<Throwable, T>(){
+			@Override
+			public T apply(Throwable e){
+				e.printStackTrace();
+				return null;
+			}
+		});
+		return null;
+	}
+	
+	/**
+	 * @return the legal moves of the player to move.
+	 */
+	private List<Move> currentMoves(){
+		if (!Player.getPlayers().contains(this.turn)) return Collections.emptyList();
+		List<Move> allMoves = new ArrayList<>();
+		for (Location loc : this.board.getPlayerLocations(this.turn)){
+			allMoves.addAll(moves(loc));
+		}
+		return allMoves;
+	}
+	
+	/**
+	 * Applies the queued actions in batches until none are left, unless another thread owns this game, in which case
+	 * that thread applies them. Each batch is reported once, after all of its actions. An action's failure goes to the
+	 * caller that queued it. A failure reporting a batch is printed, since the thread applying the batch may not be the
+	 * one that caused it, and the queue is drained regardless, so that no caller waits for an action that is never
+	 * applied; an error is rethrown once the queue is empty.
+	 */
+	private void drain(){
+		Thread current = Thread.currentThread();
+		Error error = null;
+		while (!this.actions.isEmpty() && this.owner.compareAndSet(null, current)){
+			try{
+				Batch batch = this.batch = new Batch();
+				for (Action<?> action = this.actions.poll(); action != null; action = this.actions.poll())
+					action.run();
+				this.batch = null;
+				finishBatch(batch);
+			} catch (RuntimeException e){
+				e.printStackTrace();
+			} catch (Error e){
+				if (error == null) error = e;
+			} finally{
+				this.batch = null;
+				this.owner.set(null);
+			}
+		}
+		if (error != null) throw error;
+	}
+	
+	/**
+	 * Has the current player's mover, if any, choose and play a move on the move executor, cancelling any move being
+	 * chosen.
+	 */
 	private void executeMover(){
-		Mover mover = this.movers.get(this.turn);
-		if (mover != null){
-			this.lastMovement = this.moveExecutor.submit(mover);
+		cancelMover();
+		final Mover mover = this.movers.get(this.turn);
+		if (mover == null || isPromoting()) return;
+		if (this.clock != null) mover.setTimeBudget(this.clock.getTimeBudget(this.turn));
+		final int expectedVersion = this.version;
+		final int search = mover.newSearch();
+		final CompletableFuture<Move> chosen = new CompletableFuture<>();
+		if (this.moveExecutor == null) this.moveExecutor = this.ownExecutor = new IdleExecutor("Mover", IDLE_SECONDS);
+		if (this.moverTail == null) this.moverTail = CompletableFuture.completedFuture(null);
+		this.moverTail = this.moverTail.handleAsync(new BiFunction<Object, Throwable, Void>(){
+			@Override
+			public Void apply(Object previous, Throwable failure){
+				if (chosen.isDone()) return null;
+				try{
+					chosen.complete(mover.findMove(search));
+				} catch (RuntimeException e){
+					chosen.completeExceptionally(e);
+				}
+				return null;
+			}
+		}, this.moveExecutor);
+		this.pendingMover = mover;
+		this.pendingMove = chosen;
+		chosen.thenAccept(new Consumer<Move>(){
+			@Override
+			public void accept(final Move move){
+				change(new Supplier<Void>(){
+					@Override
+					public Void get(){
+						applyMove(mover, move, expectedVersion);
+						return null;
+					}
+				});
+			}
+		}).exceptionally(new Function<Throwable, Void>(){
+			@Override
+			public Void apply(Throwable e){
+				if (!(e instanceof CancellationException || e.getCause() instanceof CancellationException)) e.printStackTrace();
+				return null;
+			}
+		});
+	}
+	
+	/**
+	 * Publishes the changes made by batch, fires one event per bound property it changed, and tells the movers.
+	 */
+	private void finishBatch(Batch batch){
+		if (batch.historyChanged){
+			List<String> commands = new ArrayList<>();
+			for (GameCommand c : this.commandHistory){
+				commands.add(c.toString());
+			}
+			this.history = Collections.unmodifiableList(commands);
+		}
+		try{
+			if (batch.historyChanged || batch.positionChanged) publishPosition();
+			for (Entry<String, Object> change : batch.oldValues.entrySet()){
+				notifyListeners(change.getKey(), change.getValue(), getProperty(change.getKey()));
+			}
+			if (batch.historyChanged) notifyListeners("history", null, this.history);
+			for (Move move : batch.completed){
+				try{
+					moveCompleted(move);
+				} catch (RuntimeException e){
+					e.printStackTrace();
+				}
+			}
+		} finally{
+			if (batch.startMover) executeMover();
+		}
+	}
+	
+	/**
+	 * Reports a change to a bound property, or if a batch is being applied, once the batch is done.
+	 */
+	private void firePropertyChange(String property, Object old, Object value){
+		if (this.batch == null) notifyListeners(property, old, value);
+		else if (!this.batch.oldValues.containsKey(property)) this.batch.oldValues.put(property, old);
+	}
+	
+	private Object getProperty(String property){
+		switch (property){
+		case "blackCheck":
+			return this.blackCheck;
+		case "result":
+			return this.result;
+		case "turn":
+			return this.turn;
+		case "whiteCheck":
+			return this.whiteCheck;
+		default:
+			throw new IllegalArgumentException("No property " + property);
 		}
 	}
 	
+	/**
+	 * Tells the mover of the player to move that move was played, then lets the mover that played it ponder.
+	 */
+	private void moveCompleted(Move move){
+		Player moved = move.getMoving().getPlayer();
+		Mover mover = this.movers.get(moved);
+		Mover waiting = this.movers.get(moved.next());
+		if (waiting != null && waiting != mover) waiting.opponentMoved(move);
+		if (mover != null && mover != waiting && Player.getPlayers().contains(this.turn)) mover.ponder();
+	}
+	
+	/**
+	 * @return the legal moves of the piece at start, if it belongs to the player to move.
+	 */
+	private List<Move> moves(Location start){
+		Piece moving = this.board.getPiece(start);
+		List<Move> moves;
+		if (moving == null || moving.getPlayer() != this.turn) moves = Collections.emptyList();
+		else moves = moving.getMoves(start);
+		for (Iterator<Move> iterator = moves.iterator(); iterator.hasNext();){
+			Move move = iterator.next();
+			if (move.checksPlayer()) iterator.remove();
+		}
+		return moves;
+	}
+	
+	/**
+	 * Plays the legal move of the piece at from to to and, if it leaves a pawn to be promoted and promotion is not null,
+	 * promotes the pawn. Moves arrive from several threads, so the move may have been made for an earlier position. A
+	 * move made after the player's time has run out, but before the clock's flag-fall was handled, ends the game
+	 * instead.
+	 * 
+	 * @return false if the game ended on time instead
+	 * @throws IllegalArgumentException
+	 *             if there is no such legal move now
+	 */
+	private boolean playMove(Location from, Location to, PieceType promotion){
+		if (this.clock != null && Player.getPlayers().contains(this.turn) && this.clock.isFlagged(this.turn)){
+			timeExpired();
+			return false;
+		}
+		// only the move played is checked for leaving the king in check, not every move of the piece
+		Piece moving = this.board.getPiece(from);
+		Move move = null;
+		if (moving != null && moving.getPlayer() == this.turn){
+			for (Move candidate : moving.getMoves(from)){
+				if (candidate.getNewLocation().equals(to)) move = candidate;
+			}
+		}
+		if (move == null || !this.replaying && move.checksPlayer()) throw new IllegalArgumentException("Move " + from + "->" + to
+				+ " is not legal now");
+		this.version++;
+		GameCommand command = new MoveCommand(move);
+		command.execute();
+		this.commandHistory.addLast(command);
+		this.batch.historyChanged = true;
+		this.batch.startMover = true;
+		if (!isPromoting()) this.batch.completed.add(move);
+		else if (promotion != null) promotePawn(promotion);
+		return true;
+	}
+	
+	private void promotePawn(PieceType promotion){
+		this.version++;
+		GameCommand lastCommand = this.commandHistory.pollLast();
+		Move move = lastCommand instanceof MoveCommand ? ((MoveCommand)lastCommand).getMove() : null;
+		GameCommand command = new PawnPromotionCommand(lastCommand, promotion);
+		try{
+			command.execute();
+		} catch (RuntimeException e){
+			if (lastCommand != null) this.commandHistory.addLast(lastCommand);
+			throw e;
+		}
+		this.commandHistory.addLast(command);
+		this.batch.historyChanged = true;
+		this.batch.startMover = true;
+		if (move != null) this.batch.completed.add(move);
+	}
+	
+	/**
+	 * Tells each listener to property that it has changed from old to value, unless they are equal. A listener that
+	 * throws has its exception printed, and the others are still told.
+	 */
+	private void notifyListeners(String property, Object old, Object value){
+		if (old != null && old.equals(value)) return;
+		PropertyChangeEvent event = new PropertyChangeEvent(this, property, old, value);
+		for (PropertyChangeListener listener : this.propertyChange.getPropertyChangeListeners()){
+			if (listener instanceof PropertyChangeListenerProxy
+					&& !((PropertyChangeListenerProxy)listener).getPropertyName().equals(property)) continue;
+			try{
+				listener.propertyChange(event);
+			} catch (RuntimeException e){
+				e.printStackTrace();
+			}
+		}
+	}
+	
+	/**
+	 * Takes a snapshot of the current position and publishes it to readers on other threads.
+	 */
+	private void publishPosition(){
+		List<Move> moves = isPromoting() ? Collections.<Move> emptyList() : currentMoves();
+		Position old = this.position;
+		this.position = new Position(this.board, this.turn, this.whiteCheck, this.blackCheck, isPromoting(), moves, this.version);
+		notifyListeners("position", old, this.position);
+	}
+	
+	/**
+	 * Answers a question about this game on the thread that owns it, waiting for the answer.
+	 */
+	private <T> T query(Supplier<T> question){
+		if (this.owner.get() == Thread.currentThread()) return question.get();
+		return await(submit(question));
+	}
+	
 	private void readObject(java.io.ObjectInputStream in)
 			throws IOException, ClassNotFoundException{
 		in.defaultReadObject();
 		this.propertyChange = new PropertyChangeSupport(this);
+		this.actions = new ConcurrentLinkedQueue<>();
+		this.owner = new AtomicReference<>();
+		Batch batch = new Batch();
+		batch.historyChanged = true;
+		finishBatch(batch);
+		if (this.result == null) this.result = Result.NONE;
+		publishPosition();
 	}
 	
 	private void setCheck(Player player, boolean check){
@@ -428,7 +1089,28 @@ public class Game implements Serializable{
 		default:
 			throw new IllegalArgumentException();
 		}
-		this.propertyChange.firePropertyChange(property, old, check);
+		firePropertyChange(property, old, check);
+	}
+	
+	/**
+	 * Stops any mover, removes the movers, and shuts down the threads this game created.
+	 */
+	private void shutDown(){
+		this.version++;
+		cancelMover();
+		for (Mover mover : new HashSet<>(this.movers.values()))
+			mover.removed();
+		this.movers.clear();
+		startClock(null);
+		if (this.ownExecutor != null){
+			this.ownExecutor.shutdown();
+			this.ownExecutor = null;
+			this.moveExecutor = null;
+		}
+		if (this.analysisExecutor != null){
+			this.analysisExecutor.shutdownNow();
+			this.analysisExecutor = null;
+		}
 	}
 	
 	private void standardGameSetup(){
@@ -454,4 +1136,80 @@ public class Game implements Serializable{
 		}
 		return;
 	}
+	
+	/**
+	 * Stops the current clock, if any, and starts clock, if not null, for the player to move.
+	 */
+	private void startClock(Clock clock){
+		if (this.clock != null){
+			this.clock.setFlagFall(null);
+			this.clock.switchTo(null);
+		}
+		this.clock = clock;
+		if (clock == null) return;
+		clock.setFlagFall(new Runnable(){
+			@Override
+			public void run(){
+				submit(new Supplier<Void>(){
+					@Override
+					public Void get(){
+						timeExpired();
+						return null;
+					}
+				}).exceptionally(new Function<Throwable, Void>(){
+					@Override
+					public Void apply(Throwable e){
+						e.printStackTrace();
+						return null;
+					}
+				});
+			}
+		});
+		clock.switchTo(this.turn);
+	}
+	
+	/**
+	 * Queues action for the thread that owns this game, becoming that thread if no other is.
+	 */
+	private <T> CompletableFuture<T> submit(Supplier<T> action){
+		Action<T> queued = new Action<>(action);
+		this.actions.add(queued);
+		if (this.owner.get() != Thread.currentThread()) drain();
+		return queued.result;
+	}
+	
+	/**
+	 * Ends the game as lost on time by the player to move, if their time has run out.
+	 */
+	private void timeExpired(){
+		Player loser = this.turn;
+		if (this.clock == null || !Player.getPlayers().contains(loser) || !this.clock.isFlagged(loser)) return;
+		this.version++;
+		cancelMover();
+		this.clock.switchTo(Player.GAME_OVER);
+		this.turn = Player.GAME_OVER;
+		Result oldResult = this.result;
+		this.result = Result.TIME_FORFEIT;
+		this.resultPlayer = loser.next();
+		firePropertyChange("result", oldResult, this.result);
+		firePropertyChange("turn", loser, this.turn);
+		this.batch.positionChanged = true;
+	}
+	
+	private void undoCommands(){
+		GameCommand lastCommand;
+		Mover mover;
+		this.version++;
+		cancelMover();
+		do{
+			lastCommand = this.commandHistory.pollLast();
+			if (lastCommand != null){
+				lastCommand.undo();
+				this.batch.historyChanged = true;
+			}
+			mover = this.movers.get(this.turn);
+			
+		}while(lastCommand != null && mover != null && mover.allowUndo());
+		this.batch.startMover = lastCommand == null;
+	}
 }
@@ -0,0 +1,89 @@
+package chess.game;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hosts many games whose movers share a small pool of threads. A game only occupies a thread while one of its movers
+ * is choosing a move, so idle games cost their memory and nothing more. Games should be ended with
+ * {@link #endGame(Game)}, and the host closed when it is no longer needed.
+ */
+public class GameHost implements AutoCloseable{
+	private final ExecutorService executor;
+	private final Set<Game> games = Collections.newSetFromMap(new ConcurrentHashMap<Game, Boolean>());
+	
+	/**
+	 * Creates a host with a thread per processor.
+	 */
+	public GameHost(){
+		this(Runtime.getRuntime().availableProcessors());
+	}
+	
+	/**
+	 * @param threads
+	 *            the number of movers that may choose moves at once, across all games
+	 */
+	public GameHost(int threads){
+		final AtomicInteger created = new AtomicInteger();
+		this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory(){
+			@Override
+			public Thread newThread(Runnable r){
+				Thread thread = new Thread(r, "Game host " + created.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+	
+	/**
+	 * Waits for the movers of ended games to return after {@link #close()}.
+	 *
+	 * @return false if timeout passed first
+	 */
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException{
+		return this.executor.awaitTermination(timeout, unit);
+	}
+	
+	/**
+	 * Ends all games and stops accepting new ones.
+	 */
+	@Override
+	public void close(){
+		for (Game game : this.games)
+			endGame(game);
+		this.executor.shutdown();
+	}
+	
+	/**
+	 * Stops game's movers and releases its resources.
+	 */
+	public void endGame(Game game){
+		this.games.remove(game);
+		game.close();
+	}
+	
+	/**
+	 * @return the games being hosted, as a live view.
+	 */
+	public Set<Game> getGames(){
+		return Collections.unmodifiableSet(this.games);
+	}
+	
+	/**
+	 * @return a new standard game whose movers run on this host's threads.
+	 * @throws IllegalStateException
+	 *             if the host has been closed
+	 */
+	public Game newGame(){
+		if (this.executor.isShutdown()) throw new IllegalStateException("Host closed");
+		Game game = new Game(this.executor);
+		this.games.add(game);
+		return game;
+	}
+}
@@ -0,0 +1,267 @@
+package chess.game;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import chess.core.HeadlessGame;
+import chess.core.Result;
+
+/**
+ * A game saved as tags, its result and its moves, far smaller and quicker to read and write than a serialized
+ * {@link Game}. Moves are indexed and decoded on a {@link HeadlessGame}, and a record is read by replaying its moves
+ * on a new game as a single change, so no events are fired for each move.
+ * <p>
+ * A file starts with a header: the magic number, the version as a short, the result's ordinal and the result player's
+ * ordinal, or -1, as bytes, the number of tags as a short, each tag's name and value as a short length then UTF-8
+ * bytes, and the number of moves as an int. Each move follows as its index in the
+ * {@link HeadlessGame#getPseudoLegalMoves(int[]) pseudo-legal moves} of its position, with a move for each type a pawn
+ * may promote to, encoded as by {@link HeadlessGame#encode(int, int, PieceType)} and sorted as ints: a byte if there
+ * are at most 256 such moves, and otherwise two. Shorts and ints are big-endian.
+ * <p>
+ * A game lost on time is saved with its result, but replays as a game in progress, since the replayed game has no
+ * clock.
+ */
+public class GameRecord{
+	public static final int MAGIC = 0x4A434752;
+	public static final int VERSION = 2;
+	public static final String EXTENSION = "chess";
+	public static final String WHITE = "White", BLACK = "Black", DATE = "Date";
+	private static final int BUFFER_BYTES = 8192;
+	private static final int MAX_TAG_BYTES = 0xFFFF;
+	private static final Result[] RESULTS = Result.values();
+	private static final Player[] PLAYERS = Player.values();
+	
+	/**
+	 * Reads the record at path, replaying its moves on a new game.
+	 *
+	 * @throws IOException
+	 *             if it cannot be read, or is not a game record of this version or is corrupt
+	 */
+	public static GameRecord read(Path path) throws IOException{
+		final ByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)){
+			buffer = ByteBuffer.allocate((int)Math.min(Integer.MAX_VALUE, channel.size()));
+			while (buffer.hasRemaining()){
+				if (channel.read(buffer) < 0) break;
+			}
+			buffer.flip();
+		}
+		try{
+			if (buffer.getInt() != MAGIC) throw new IOException("Not a game record: " + path);
+			if (buffer.getShort() != VERSION) throw new IOException("Unsupported game record version: " + path);
+			int result = buffer.get(), resultPlayer = buffer.get();
+			if (result < 0 || result >= RESULTS.length || resultPlayer >= PLAYERS.length) throw new IOException(
+					"Corrupt game record: " + path);
+			Map<String, String> tags = new LinkedHashMap<>();
+			for (int i = buffer.getShort() & 0xFFFF; i > 0; i--)
+				tags.put(getString(buffer), getString(buffer));
+			int count = buffer.getInt();
+			if (count < 0 || count > buffer.remaining()) throw new IllegalArgumentException("Bad move count " + count);
+			int[] played = new int[count];
+			List<String> moves = new ArrayList<>(count);
+			HeadlessGame decoder = new HeadlessGame();
+			int[] candidates = new int[HeadlessGame.MAX_MOVES];
+			for (int i = 0; i < count; i++){
+				int n = list(decoder, candidates);
+				if (n == 0) throw new IllegalArgumentException("Moves after the end of the game");
+				int index = n > 256 ? buffer.getShort() & 0xFFFF : buffer.get() & 0xFF;
+				if (index >= n) throw new IllegalArgumentException("No move " + index);
+				played[i] = candidates[index];
+				Player turn = decoder.getTurn();
+				decoder.playLegal(played[i]);
+				if (decoder.isCheck(turn)) throw new IllegalArgumentException("Illegal move " + format(played[i]));
+				moves.add(format(played[i]));
+			}
+			boolean declared = RESULTS[result] == Result.DECLARED_STALEMATE && count > 0;
+			Game game = new Game();
+			try{
+				game.replay(played, 0, declared ? count - 1 : count);
+				if (declared){
+					game.declareStalemate();
+					game.replay(played, count - 1, count);
+				}
+			} catch (RuntimeException e){
+				game.close();
+				throw e;
+			}
+			return new GameRecord(game, moves, tags, RESULTS[result], resultPlayer < 0 ? null : PLAYERS[resultPlayer]);
+		} catch (BufferUnderflowException | IllegalArgumentException | IllegalStateException e){
+			throw new IOException("Corrupt game record: " + path, e);
+		}
+	}
+	
+	private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException{
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+	
+	/**
+	 * @return move, encoded as by {@link HeadlessGame}, in {@link Notation}.
+	 */
+	private static String format(int move){
+		int from = HeadlessGame.getFrom(move), to = HeadlessGame.getTo(move);
+		String text = Notation.format(new Location(from / Board.SIZE, from % Board.SIZE))
+				+ Notation.format(new Location(to / Board.SIZE, to % Board.SIZE));
+		PieceType promotion = HeadlessGame.getPromotion(move);
+		return promotion == null ? text : text + Character.toLowerCase(promotion.label);
+	}
+	
+	private static String getString(ByteBuffer buffer){
+		byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Sets the first elements of candidates to the pseudo-legal moves of game, sorted: the list a recorded move is an
+	 * index into.
+	 *
+	 * @return the number of moves.
+	 */
+	private static int list(HeadlessGame game, int[] candidates){
+		int count = game.getPseudoLegalMoves(candidates);
+		Arrays.sort(candidates, 0, count);
+		return count;
+	}
+	
+	private static void putString(FileChannel channel, ByteBuffer buffer, String text) throws IOException{
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		int length = Math.min(bytes.length, MAX_TAG_BYTES);
+		reserve(channel, buffer, 2);
+		buffer.putShort((short)length);
+		for (int offset = 0; offset < length;){
+			reserve(channel, buffer, 1);
+			int n = Math.min(length - offset, buffer.remaining());
+			buffer.put(bytes, offset, n);
+			offset += n;
+		}
+	}
+	
+	/**
+	 * Makes room for bytes more in buffer, writing it to channel if need be.
+	 */
+	private static void reserve(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException{
+		if (buffer.remaining() < bytes) flush(channel, buffer);
+	}
+	
+	private final Game game;
+	private final List<String> moves;
+	private final Map<String, String> tags;
+	private final Result result;
+	private final Player resultPlayer;
+	
+	/**
+	 * Records game as it stands, with no tags.
+	 */
+	public GameRecord(Game game){
+		this(game, game.getMovesPlayed(), new LinkedHashMap<String, String>(), game.getResult(), game.getResultPlayer());
+	}
+	
+	private GameRecord(Game game, List<String> moves, Map<String, String> tags, Result result, Player resultPlayer){
+		this.game = game;
+		this.moves = Collections.unmodifiableList(moves);
+		this.tags = tags;
+		this.result = result;
+		this.resultPlayer = resultPlayer;
+	}
+	
+	/**
+	 * @return the game recorded, or replayed from the record read.
+	 */
+	public Game getGame(){
+		return this.game;
+	}
+	
+	/**
+	 * @return the moves of the game, in {@link Notation}.
+	 */
+	public List<String> getMoves(){
+		return this.moves;
+	}
+	
+	public Result getResult(){
+		return this.result;
+	}
+	
+	public Player getResultPlayer(){
+		return this.resultPlayer;
+	}
+	
+	/**
+	 * @return the value of the tag called name, or null if there is none.
+	 */
+	public String getTag(String name){
+		return this.tags.get(name);
+	}
+	
+	/**
+	 * @return the tags, in the order they were set.
+	 */
+	public Map<String, String> getTags(){
+		return Collections.unmodifiableMap(this.tags);
+	}
+	
+	/**
+	 * Sets the tag called name to value, such as {@link #WHITE} to the name of the white player, or removes it if value
+	 * is null.
+	 */
+	public void setTag(String name, String value){
+		if (value == null) this.tags.remove(name);
+		else this.tags.put(name, value);
+	}
+	
+	/**
+	 * Writes this record to path, replacing any file there. The moves are encoded by playing them on a
+	 * {@link HeadlessGame}, and written through a buffer as they are.
+	 *
+	 * @throws IllegalStateException
+	 *             if a move is not legal, as when the game had been set up in a way its moves do not show
+	 */
+	public void write(Path path) throws IOException{
+		HeadlessGame encoder = new HeadlessGame();
+		int[] candidates = new int[HeadlessGame.MAX_MOVES];
+		try (FileChannel channel = FileChannel.open(path,
+													StandardOpenOption.WRITE,
+													StandardOpenOption.CREATE,
+													StandardOpenOption.TRUNCATE_EXISTING)){
+			ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+			buffer.putInt(MAGIC).putShort((short)VERSION);
+			buffer.put((byte)this.result.ordinal()).put((byte)(this.resultPlayer == null ? -1 : this.resultPlayer.ordinal()));
+			buffer.putShort((short)this.tags.size());
+			for (Map.Entry<String, String> tag : this.tags.entrySet()){
+				putString(channel, buffer, tag.getKey());
+				putString(channel, buffer, tag.getValue());
+			}
+			reserve(channel, buffer, 4);
+			buffer.putInt(this.moves.size());
+			for (String move : this.moves){
+				int count = list(encoder, candidates);
+				int encoded = HeadlessGame.encode(	Notation.parseLocation(move, 0).getSquare(),
+													Notation.parseLocation(move, 2).getSquare(),
+													Notation.parsePromotion(move));
+				int index = Arrays.binarySearch(candidates, 0, count, encoded);
+				if (index < 0) throw new IllegalStateException("Illegal move: " + move);
+				reserve(channel, buffer, 2);
+				if (count > 256) buffer.putShort((short)index);
+				else buffer.put((byte)index);
+				Player turn = encoder.getTurn();
+				encoder.playLegal(encoded);
+				if (encoder.isCheck(turn)) throw new IllegalStateException("Illegal move: " + move);
+			}
+			flush(channel, buffer);
+		}
+	}
+}
@@ -0,0 +1,30 @@
+package chess.game;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An executor of one daemon thread, which ends when it has been idle for a while and is started again by the next
+ * task, so that games and movers that are no longer used do not keep threads.
+ */
+public class IdleExecutor extends ThreadPoolExecutor{
+	/**
+	 * @param name
+	 *            the name of the thread
+	 * @param idleSeconds
+	 *            how long the thread waits for work before ending
+	 */
+	public IdleExecutor(final String name, long idleSeconds){
+		super(1, 1, idleSeconds, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory(){
+			@Override
+			public Thread newThread(Runnable r){
+				Thread thread = new Thread(r, name);
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		allowCoreThreadTimeOut(true);
+	}
+}
@@ -37,6 +37,13 @@ public class Location implements Serializable, Comparable<Location>{
 		return String.valueOf(Board.SIZE - this.row);
 	}
 	
+	/**
+	 * @return the index of this location's square: the row times {@link Board#SIZE}, plus the column.
+	 */
+	public int getSquare(){
+		return this.row * Board.SIZE + this.column;
+	}
+	
 	@Override
 	public int hashCode(){
 		return Board.SIZE * this.row + this.column;
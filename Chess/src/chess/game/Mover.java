@@ -1,11 +1,24 @@
 package chess.game;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import chess.game.Board.Move;
 
 public abstract class Mover implements Callable<Move>{
+	private static final long NO_DEADLINE = Long.MAX_VALUE;
 	protected Game game;
+	private volatile long hardDeadline = NO_DEADLINE, softDeadline = NO_DEADLINE;
+	/**
+	 * Numbers the searches, so that a stop asked for before a search scheduled to run has started still applies to it.
+	 */
+	private final AtomicInteger searches = new AtomicInteger();
+	/**
+	 * The number of the search running, and the last search asked to stop: those numbered up to it stop.
+	 */
+	private volatile int running, stopped;
+	private TimeBudget timeBudget;
 	
 	public Mover(Game game){
 		this.game = game;
@@ -18,11 +31,10 @@ public abstract class Mover implements Callable<Move>{
 	
 	@Override
 	public final Move call(){
-		Move move = this.getMove();
+		Move move = this.findMove();
 		boolean promotion = move.promotesPiece();
 		if (!promotion && game.canDeclareStalemate() && checkStalemate()) game.declareStalemate();
-		this.game.executeMove(move);
-		if (promotion) game.promote(getPromotion());
+		this.game.executeMove(move, promotion ? getPromotion() : null);
 		return move;
 	}
 	
@@ -31,14 +43,137 @@ public abstract class Mover implements Callable<Move>{
 		return false;
 	}
 	
+	/**
+	 * Starts the clock for this mover's time budget and chooses a move, without executing it.
+	 */
+	public final Move findMove(){
+		return findMove(newSearch());
+	}
+	
+	/**
+	 * Chooses a move as {@link #findMove()} does, for a search numbered by {@link #newSearch()} when it was scheduled.
+	 * If {@link #stop()} was called since, the search returns as soon as it can.
+	 */
+	final Move findMove(int search){
+		startClock(search);
+		return this.getMove();
+	}
+	
 	public Game getGame(){
 		return this.game;
 	}
 	
+	/**
+	 * Chooses a move for the current player. Movers that think for a while should check
+	 * {@link #isSoftDeadlinePassed()} before starting new work and {@link #isHardDeadlinePassed()} while working, and
+	 * return the best move found so far once either says so.
+	 */
 	public abstract Move getMove();
 	
 	@SuppressWarnings("static-method")
 	public PieceType getPromotion(){
 		return PieceType.QUEEN;
 	}
-}
\ No newline at end of file
+	
+	/**
+	 * Called after the opponent's move has been executed, before this mover is asked for its reply. Movers that ponder
+	 * use it to stop pondering and learn whether they predicted the move.
+	 */
+	public void opponentMoved(@SuppressWarnings("unused") Move move){
+		// nothing to do unless pondering
+	}
+	
+	/**
+	 * Called after this mover's move has been executed, while the opponent chooses a reply. Movers may use the
+	 * opponent's time to think ahead, on their own thread, until {@link #opponentMoved(Move)} or {@link #getMove()}
+	 * is called.
+	 */
+	public void ponder(){
+		// does not ponder by default
+	}
+	
+	/**
+	 * Called when this mover is replaced, or its game is closed. Movers that ponder stop, and let go of the threads they
+	 * ponder on.
+	 */
+	public void removed(){
+		// nothing to let go of by default
+	}
+	
+	/**
+	 * @return the time allowed for each move, or null if moves are not timed.
+	 */
+	public TimeBudget getTimeBudget(){
+		return this.timeBudget;
+	}
+	
+	/**
+	 * @param timeBudget
+	 *            the time allowed for each move from the next move on, or null for no limit
+	 */
+	public void setTimeBudget(TimeBudget timeBudget){
+		this.timeBudget = timeBudget;
+	}
+	
+	/**
+	 * Asks the move being chosen, if any, to finish as soon as possible.
+	 */
+	public void stop(){
+		this.stopped = this.searches.get();
+	}
+	
+	/**
+	 * Has mover, which this mover wraps and forwards {@link #stop()} to, choose a move as part of this mover's current
+	 * search, so that a stop of this search stops mover's too, even one asked for before either started.
+	 */
+	protected final Move delegate(Mover mover){
+		int search = mover.newSearch();
+		if (this.stopped >= this.running) mover.stop();
+		return mover.findMove(search);
+	}
+	
+	/**
+	 * @return if the current move must be returned now.
+	 */
+	protected boolean isHardDeadlinePassed(){
+		return this.stopped >= this.running || passed(this.hardDeadline);
+	}
+	
+	/**
+	 * @return if no new work should be started on the current move.
+	 */
+	protected boolean isSoftDeadlinePassed(){
+		return this.stopped >= this.running || passed(this.softDeadline);
+	}
+	
+	/**
+	 * Starts a new search, which earlier requests to stop do not affect, and sets its deadlines from the time budget,
+	 * starting now.
+	 */
+	protected final void startClock(){
+		startClock(newSearch());
+	}
+	
+	/**
+	 * @return the number of a new search, which {@link #stop()} stops from now on, even before it has started.
+	 */
+	final int newSearch(){
+		return this.searches.incrementAndGet();
+	}
+	
+	private void startClock(int search){
+		this.running = search;
+		long now = System.nanoTime();
+		if (this.timeBudget == null){
+			this.softDeadline = NO_DEADLINE;
+			this.hardDeadline = NO_DEADLINE;
+		} else{
+			this.softDeadline = now + TimeUnit.MILLISECONDS.toNanos(this.timeBudget.getSoftMillis());
+			this.hardDeadline = now + TimeUnit.MILLISECONDS.toNanos(this.timeBudget.getHardMillis());
+		}
+	}
+	
+	private static boolean passed(long deadline){
+		return deadline != NO_DEADLINE && System.nanoTime() - deadline >= 0;
+	}
+}
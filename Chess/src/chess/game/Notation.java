@@ -0,0 +1,88 @@
+package chess.game;
+
+import chess.game.Board.Move;
+
+/**
+ * Long algebraic notation, as used by UCI and the headless tools: a move is the square moved from then the square
+ * moved to, each a column letter and row number, then the type promoted to in lower case, if any, as in e2e4 or e7e8q.
+ */
+public final class Notation{
+	private Notation(){
+		// static methods only
+	}
+	
+	public static String format(Location location){
+		return location.getColumnLabel() + location.getRowLabel();
+	}
+	
+	/**
+	 * @return move, followed by a queen if it promotes, the type engines promote to.
+	 */
+	public static String format(Move move){
+		return format(move, move.promotesPiece() ? PieceType.QUEEN : null);
+	}
+	
+	/**
+	 * @param promotion
+	 *            the type move promotes to, or null if it does not promote
+	 */
+	public static String format(Move move, PieceType promotion){
+		String text = format(move.getOldLocation()) + format(move.getNewLocation());
+		return promotion == null ? text : text + Character.toLowerCase(promotion.label);
+	}
+	
+	/**
+	 * @return the location written at offset of text, such as e2.
+	 * @throws IllegalArgumentException
+	 *             if there is no square there
+	 */
+	public static Location parseLocation(CharSequence text, int offset){
+		if (offset < 0 || offset + 2 > text.length()) throw new IllegalArgumentException("No square at " + offset
+				+ " of "
+				+ text);
+		Location location = new Location(Board.SIZE - (text.charAt(offset + 1) - '0'), text.charAt(offset) - 'a');
+		if (!location.isOnBoard()) throw new IllegalArgumentException("Bad square in " + text);
+		return location;
+	}
+	
+	/**
+	 * @return the type move promotes to, or null if it names none.
+	 */
+	public static PieceType parsePromotion(CharSequence move){
+		return move.length() > 4 ? PieceType.getPieceType(move.charAt(4)) : null;
+	}
+	
+	/**
+	 * Plays move on game, promoting to the type it names, or to a queen if it names none.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if move is not written as a move or is not legal in game's position
+	 */
+	public static void play(Game game, String move){
+		play(game, move, 0, move.length());
+	}
+	
+	/**
+	 * Plays the move written from start to end of text on game, as {@link #play(Game, String)} does, without copying
+	 * it out of text.
+	 */
+	public static void play(Game game, CharSequence text, int start, int end){
+		if (end - start != 4 && end - start != 5) throw new IllegalArgumentException("Bad move: "
+				+ text.subSequence(start, end));
+		PieceType promotion = end - start == 5 ? PieceType.getPieceType(text.charAt(start + 4)) : null;
+		if (!game.executeMove(parseLocation(text, start), parseLocation(text, start + 2))) throw new IllegalArgumentException(
+				"Illegal move: "
+						+ text.subSequence(start, end));
+		if (game.isPromoting()) game.promote(promotion == null ? PieceType.QUEEN : promotion);
+	}
+	
+	/**
+	 * Plays each of moves on game in turn.
+	 *
+	 * @see #play(Game, String)
+	 */
+	public static void play(Game game, Iterable<String> moves){
+		for (String move : moves)
+			play(game, move);
+	}
+}
@@ -17,6 +17,14 @@ public class Piece implements Serializable, Comparable<Piece>{
 		this.board = board;
 	}
 	
+	/**
+	 * Creates a copy of original, including its move count, on board.
+	 */
+	Piece(Piece original, Board board){
+		this(original.type, original.player, board);
+		this.moveCount = original.moveCount;
+	}
+	
 	public Piece(String label, Board board){
 		this(PieceType.getPieceType(label.charAt(0)), Player.getPlayer(label.charAt(1)), board);
 	}
@@ -136,8 +144,11 @@ public class Piece implements Serializable, Comparable<Piece>{
 	}
 	
 	protected void setType(PieceType type){
+		Location location = this.getLocation();
+		this.board.pieceRemoved(this, location);
 		this.type = type;
-		this.board.update(this.getLocation());
+		this.board.piecePlaced(this, location);
+		this.board.update(location);
 	}
 	
 	@Override
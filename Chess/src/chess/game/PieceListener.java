@@ -0,0 +1,13 @@
+package chess.game;
+
+import java.util.EventListener;
+
+/**
+ * Receives every change to the placement of pieces on a {@link Board}, so that values derived from the position can
+ * be kept up to date incrementally. A piece changing type is reported as its removal followed by its placement.
+ */
+public interface PieceListener extends EventListener{
+	void piecePlaced(Piece piece, Location location);
+	
+	void pieceRemoved(Piece piece, Location location);
+}
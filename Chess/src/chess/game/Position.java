@@ -0,0 +1,185 @@
+package chess.game;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map.Entry;
+
+import chess.game.Board.Move;
+
+/**
+ * An immutable snapshot of a {@link Game}'s position, published by the game after each change so that other threads may
+ * read it without locking while the game goes on. It holds a byte per square, the player to move, who is in check, and
+ * the squares each legal move goes from and to.
+ */
+public final class Position{
+	private static final int BLACK = 8, TYPE_MASK = 7;
+	private static final PieceType[] TYPES = PieceType.values();
+	private final long hash;
+	private final short[] moves;
+	private final int pieces;
+	private final boolean promoting, whiteCheck, blackCheck;
+	private final byte[] squares = new byte[Board.SIZE * Board.SIZE];
+	private final Player turn;
+	private final int version;
+	
+	/**
+	 * @param moves
+	 *            the legal moves of turn
+	 */
+	Position(Board board, Player turn, boolean whiteCheck, boolean blackCheck, boolean promoting, List<Move> moves,
+			int version){
+		for (Entry<Location, Piece> entry : board.pieces.entrySet()){
+			Piece piece = entry.getValue();
+			this.squares[entry.getKey().getSquare()] = (byte)(piece.getType().ordinal() + 1 | (piece.getPlayer() == Player.BLACK ? BLACK
+					: 0));
+		}
+		this.pieces = board.pieces.size();
+		this.moves = new short[moves.size()];
+		for (int i = 0; i < this.moves.length; i++){
+			Move move = moves.get(i);
+			this.moves[i] = (short)move.getCode();
+		}
+		this.hash = board.getHash(turn);
+		this.turn = turn;
+		this.whiteCheck = whiteCheck;
+		this.blackCheck = blackCheck;
+		this.promoting = promoting;
+		this.version = version;
+	}
+	
+	private static Location location(int index){
+		return new Location(index / Board.SIZE, index % Board.SIZE);
+	}
+	
+	/**
+	 * @return the hash of the position with the player to move.
+	 * @see Board#getHash(Player)
+	 */
+	public long getHash(){
+		return this.hash;
+	}
+	
+	/**
+	 * @return the location of player's king, or null if it has none.
+	 */
+	public Location getKingLocation(Player player){
+		for (int i = 0; i < this.squares.length; i++){
+			if (this.squares[i] != 0 && getType(i) == PieceType.KING && getPlayer(i) == player) return location(i);
+		}
+		return null;
+	}
+	
+	/**
+	 * @return the number of legal moves of the player to move.
+	 */
+	public int getMoveCount(){
+		return this.moves.length;
+	}
+	
+	/**
+	 * @return the number of pieces on the board, kings included.
+	 */
+	public int getPieceCount(){
+		return this.pieces;
+	}
+	
+	/**
+	 * @return the locations the piece at from may legally move to, empty if it may not move or there is no piece there.
+	 */
+	public List<Location> getMoves(Location from){
+		if (from == null || !from.isOnBoard()) return Collections.emptyList();
+		int start = from.getSquare();
+		List<Location> targets = new ArrayList<>();
+		for (short move : this.moves)
+			if (move >>> 6 == start) targets.add(location(move & 63));
+		return targets;
+	}
+	
+	/**
+	 * @return the owner of the piece at location, or null if there is none.
+	 */
+	public Player getPlayer(Location location){
+		if (location == null || !location.isOnBoard()) return null;
+		return getPlayer(location.getSquare());
+	}
+	
+	/**
+	 * @return the player to move, or {@link Player#GAME_OVER}.
+	 */
+	public Player getTurn(){
+		return this.turn;
+	}
+	
+	/**
+	 * @return the type of the piece at location, or null if there is none.
+	 */
+	public PieceType getType(Location location){
+		if (location == null || !location.isOnBoard()) return null;
+		return getType(location.getSquare());
+	}
+	
+	/**
+	 * @return the {@link Game#getVersion() version} of the game this position was taken at.
+	 */
+	public int getVersion(){
+		return this.version;
+	}
+	
+	public boolean hasMove(Location from, Location to){
+		if (from == null || to == null || !from.isOnBoard() || !to.isOnBoard()) return false;
+		int move = from.getSquare() << 6 | to.getSquare();
+		for (short m : this.moves)
+			if (m == move) return true;
+		return false;
+	}
+	
+	public boolean isCheck(Player player){
+		switch (player){
+		case BLACK:
+			return this.blackCheck;
+		case WHITE:
+			return this.whiteCheck;
+		default:
+			throw new IllegalArgumentException();
+		}
+	}
+	
+	/**
+	 * @return if a pawn is waiting to be promoted, in which case there are no moves.
+	 */
+	public boolean isPromoting(){
+		return this.promoting;
+	}
+	
+	/**
+	 * @return if the piece at location is the same in this position and other.
+	 */
+	public boolean samePiece(Position other, Location location){
+		int i = location.getSquare();
+		return this.squares[i] == other.squares[i];
+	}
+	
+	@Override
+	public String toString(){
+		StringBuilder board = new StringBuilder();
+		for (int i = 0; i < this.squares.length; i++){
+			PieceType type = getType(i);
+			char label = type == null ? '.' : getPlayer(i) == Player.WHITE ? type.label : Character.toLowerCase(type.label);
+			board.append(label);
+			if (i % Board.SIZE == Board.SIZE - 1) board.append('\n');
+		}
+		return board.append(this.turn).toString();
+	}
+	
+	private Player getPlayer(int index){
+		int piece = this.squares[index];
+		if (piece == 0) return null;
+		return (piece & BLACK) == 0 ? Player.WHITE : Player.BLACK;
+	}
+	
+	private PieceType getType(int index){
+		int piece = this.squares[index];
+		return piece == 0 ? null : TYPES[(piece & TYPE_MASK) - 1];
+	}
+}
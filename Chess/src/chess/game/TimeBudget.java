@@ -0,0 +1,64 @@
+package chess.game;
+
+/**
+ * How long a {@link Mover} may think about one move. Past the soft limit a mover should not start new work; past the
+ * hard limit it should return the best move it has found as soon as possible.
+ */
+public class TimeBudget{
+	/**
+	 * Time kept back from the remaining clock time to cover overhead.
+	 */
+	private static final long SAFETY_MILLIS = 50;
+	/**
+	 * Moves assumed to remain when a clock does not say.
+	 */
+	private static final int DEFAULT_MOVES_TO_GO = 30;
+	
+	/**
+	 * @return a budget that allows at most millis per move, and no new work after half of it.
+	 */
+	public static TimeBudget fixed(long millis){
+		return new TimeBudget(millis / 2, millis);
+	}
+	
+	/**
+	 * @param remainingMillis
+	 *            time left on the mover's clock
+	 * @param incrementMillis
+	 *            time added to the clock after each move
+	 * @param movesToGo
+	 *            moves to be played before more time is added, or 0 if unknown
+	 * @return a budget that spreads the remaining time over the remaining moves
+	 */
+	public static TimeBudget forClock(long remainingMillis, long incrementMillis, int movesToGo){
+		if (movesToGo <= 0) movesToGo = DEFAULT_MOVES_TO_GO;
+		long usable = Math.max(0, remainingMillis - SAFETY_MILLIS);
+		long soft = Math.min(usable, usable / movesToGo + incrementMillis * 3 / 4);
+		long hard = Math.min(usable, Math.max(soft, Math.min(soft * 4, usable / 4)));
+		return new TimeBudget(soft, hard);
+	}
+	
+	private final long hardMillis, softMillis;
+	
+	public TimeBudget(long softMillis, long hardMillis){
+		if (softMillis < 0 || hardMillis < softMillis) throw new IllegalArgumentException("Bad budget "
+				+ softMillis
+				+ "/"
+				+ hardMillis);
+		this.softMillis = softMillis;
+		this.hardMillis = hardMillis;
+	}
+	
+	public long getHardMillis(){
+		return this.hardMillis;
+	}
+	
+	public long getSoftMillis(){
+		return this.softMillis;
+	}
+	
+	@Override
+	public String toString(){
+		return this.softMillis + "/" + this.hardMillis + "ms";
+	}
+}
@@ -0,0 +1,206 @@
+package chess.game;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs tasks after a delay, for many timeouts at once, on one thread. Time is counted in ticks, and each timeout waits
+ * in a slot of one of several wheels of 64 slots: the first wheel has a slot per tick, the second a slot per 64 ticks,
+ * and so on. Each tick the thread runs the tasks in the first wheel's current slot, and each time a wheel comes round
+ * it moves the timeouts of the next wheel's current slot down into the wheels below. Scheduling and cancelling take
+ * constant time, as does each tick apart from the tasks it runs and the timeouts it moves, so the cost does not grow
+ * with the number of timeouts waiting.
+ * <p>
+ * Tasks run on the wheel's thread, no earlier than their delay and usually within a tick of it, and must be quick. The
+ * thread sleeps while no timeouts are waiting.
+ */
+public class TimingWheel{
+	/**
+	 * A task waiting to run, which may be cancelled.
+	 */
+	public final class Timeout{
+		private final long deadline;
+		private final Runnable task;
+		/**
+		 * The slot this timeout waits in, and its neighbours there; slot is -1 once it has run or been cancelled.
+		 */
+		private int level, slot = -1;
+		private Timeout previous, next;
+		
+		Timeout(Runnable task, long deadline){
+			this.task = task;
+			this.deadline = deadline;
+		}
+		
+		/**
+		 * @return false if the task has already run, or been cancelled.
+		 */
+		public boolean cancel(){
+			synchronized (TimingWheel.this){
+				if (this.slot < 0) return false;
+				unlink(this);
+				return true;
+			}
+		}
+	}
+	
+	public static final long DEFAULT_TICK_MILLIS = 10;
+	private static final int SLOT_BITS = 6, SLOTS = 1 << SLOT_BITS, MASK = SLOTS - 1;
+	/**
+	 * Enough wheels to hold a year of 10 ms ticks; longer delays wait in the last wheel and are moved down as it turns.
+	 */
+	private static final int LEVELS = 6;
+	private static TimingWheel shared;
+	
+	/**
+	 * @return the wheel shared by the games of this process, with {@link #DEFAULT_TICK_MILLIS} ticks.
+	 */
+	public static synchronized TimingWheel getShared(){
+		if (shared == null) shared = new TimingWheel(DEFAULT_TICK_MILLIS, "Timing wheel");
+		return shared;
+	}
+	
+	private final Timeout[][] slots = new Timeout[LEVELS][SLOTS];
+	private final long start = System.nanoTime();
+	private final long tickNanos;
+	/**
+	 * The next tick to be processed; every earlier tick has been.
+	 */
+	private long tick;
+	private int size;
+	private final Thread thread;
+	
+	public TimingWheel(long tickMillis, String name){
+		if (tickMillis <= 0) throw new IllegalArgumentException("Tick must be positive");
+		this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+		this.thread = new Thread(new Runnable(){
+			@Override
+			public void run(){
+				turn();
+			}
+		}, name);
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+	
+	/**
+	 * Runs task on this wheel's thread once delay has passed.
+	 */
+	public Timeout schedule(Runnable task, long delay, TimeUnit unit){
+		long due = System.nanoTime() - this.start + Math.max(0, unit.toNanos(delay));
+		Timeout timeout = new Timeout(task, (due + this.tickNanos - 1) / this.tickNanos);
+		boolean wake;
+		synchronized (this){
+			wake = this.size == 0;
+			link(timeout);
+		}
+		if (wake) LockSupport.unpark(this.thread);
+		return timeout;
+	}
+	
+	/**
+	 * @return the number of timeouts waiting.
+	 */
+	public synchronized int size(){
+		return this.size;
+	}
+	
+	/**
+	 * Moves the timeouts of the current slot of wheel level into the wheels below, or into the expired list if due.
+	 */
+	private void cascade(int level, List<Timeout> expired){
+		int index = (int)(this.tick >>> level * SLOT_BITS) & MASK;
+		Timeout timeout = this.slots[level][index];
+		this.slots[level][index] = null;
+		while (timeout != null){
+			Timeout next = timeout.next;
+			this.size--;
+			place(timeout, expired);
+			timeout = next;
+		}
+	}
+	
+	/**
+	 * Adds timeout to the slot that will come round no later than its deadline.
+	 */
+	private void link(Timeout timeout){
+		long delay = Math.max(0, timeout.deadline - this.tick);
+		int level = 0;
+		while (level < LEVELS - 1 && delay >= 1L << (level + 1) * SLOT_BITS)
+			level++;
+		long due = Math.min(this.tick + delay, this.tick + (1L << LEVELS * SLOT_BITS) - 1);
+		timeout.level = level;
+		timeout.slot = (int)(due >>> level * SLOT_BITS) & MASK;
+		timeout.previous = null;
+		timeout.next = this.slots[level][timeout.slot];
+		if (timeout.next != null) timeout.next.previous = timeout;
+		this.slots[level][timeout.slot] = timeout;
+		this.size++;
+	}
+	
+	/**
+	 * Adds timeout to its slot, or to expired if its deadline has come.
+	 */
+	private void place(Timeout timeout, List<Timeout> expired){
+		if (timeout.deadline <= this.tick){
+			timeout.slot = -1;
+			expired.add(timeout);
+		} else link(timeout);
+	}
+	
+	/**
+	 * Advances the wheels to tick now, collecting the timeouts that are due.
+	 */
+	private void advance(long now, List<Timeout> expired){
+		if (this.size == 0 && this.tick < now) this.tick = now;
+		for (; this.tick <= now; this.tick++){
+			for (int level = 1; level < LEVELS && (this.tick & (1L << level * SLOT_BITS) - 1) == 0; level++)
+				cascade(level, expired);
+			int index = (int)this.tick & MASK;
+			Timeout timeout = this.slots[0][index];
+			this.slots[0][index] = null;
+			for (; timeout != null; timeout = timeout.next){
+				this.size--;
+				timeout.slot = -1;
+				expired.add(timeout);
+			}
+		}
+	}
+	
+	/**
+	 * The wheel's thread: processes each tick as it comes and runs the tasks that are due.
+	 */
+	private void turn(){
+		List<Timeout> expired = new ArrayList<>();
+		while (true){
+			long now = (System.nanoTime() - this.start) / this.tickNanos;
+			boolean idle;
+			synchronized (this){
+				advance(now, expired);
+				idle = this.size == 0;
+			}
+			for (Timeout timeout : expired){
+				try{
+					timeout.task.run();
+				} catch (RuntimeException e){
+					e.printStackTrace();
+				}
+			}
+			expired.clear();
+			if (idle) LockSupport.park(this);
+			else LockSupport.parkNanos(this, this.start + (now + 1) * this.tickNanos - System.nanoTime());
+		}
+	}
+	
+	private void unlink(Timeout timeout){
+		if (timeout.previous == null) this.slots[timeout.level][timeout.slot] = timeout.next;
+		else timeout.previous.next = timeout.next;
+		if (timeout.next != null) timeout.next.previous = timeout.previous;
+		timeout.slot = -1;
+		timeout.previous = null;
+		timeout.next = null;
+		this.size--;
+	}
+}
@@ -0,0 +1,105 @@
+package chess.game.ai;
+
+import chess.game.Board.Move;
+import chess.game.Game;
+import chess.game.Mover;
+import chess.game.PieceType;
+import chess.game.TimeBudget;
+
+/**
+ * Plays moves from an {@link OpeningBook} while the game's position is in it, and otherwise asks another mover. Book
+ * moves are returned at once, leaving the other mover's time for the rest of the game.
+ */
+public class BookMover extends Mover{
+	private final OpeningBook book;
+	private final Mover mover;
+	
+	/**
+	 * @param mover
+	 *            the mover for positions not in book, which must play the same game
+	 */
+	public BookMover(OpeningBook book, Mover mover){
+		super(mover.getGame());
+		this.book = book;
+		this.mover = mover;
+	}
+	
+	@Override
+	public boolean allowUndo(){
+		return this.mover.allowUndo();
+	}
+	
+	@Override
+	public boolean checkStalemate(){
+		return this.mover.checkStalemate();
+	}
+	
+	public OpeningBook getBook(){
+		return this.book;
+	}
+	
+	@Override
+	public Move getMove(){
+		int code = this.book.probe(this.game.getHash());
+		if (code != OpeningBook.NO_MOVE){
+			for (Move move : this.game.getAllCurrentMoves()){
+				if (move.getCode() == code) return move;
+			}
+		}
+		return delegate(this.mover);
+	}
+	
+	/**
+	 * @return the mover for positions not in book.
+	 */
+	public Mover getMover(){
+		return this.mover;
+	}
+	
+	@Override
+	public PieceType getPromotion(){
+		return this.mover.getPromotion();
+	}
+	
+	/**
+	 * @return the time budget of the mover for positions not in book, which book moves do not use.
+	 */
+	@Override
+	public TimeBudget getTimeBudget(){
+		return this.mover.getTimeBudget();
+	}
+	
+	@Override
+	public void opponentMoved(Move move){
+		this.mover.opponentMoved(move);
+	}
+	
+	@Override
+	public void ponder(){
+		this.mover.ponder();
+	}
+	
+	@Override
+	public void removed(){
+		this.mover.removed();
+	}
+	
+	/**
+	 * Sets the time budget of the mover for positions not in book, such as the one the game's clock allows.
+	 */
+	@Override
+	public void setTimeBudget(TimeBudget timeBudget){
+		this.mover.setTimeBudget(timeBudget);
+	}
+	
+	@Override
+	public void stop(){
+		super.stop();
+		this.mover.stop();
+	}
+	
+	@Override
+	public String toString(){
+		return this.mover + " with book";
+	}
+}
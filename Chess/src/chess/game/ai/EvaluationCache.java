@@ -0,0 +1,75 @@
+package chess.game.ai;
+
+/**
+ * A fixed-size table of position scores keyed by position hash. Each hash maps to a single slot, and storing replaces
+ * whatever the slot held.
+ */
+public class EvaluationCache{
+	/**
+	 * Returned by {@link #probe(long)} when the hash is not in the cache.
+	 */
+	public static final int MISSING = Integer.MIN_VALUE;
+	private final long[] keys;
+	private final int mask;
+	private final int[] scores;
+	private long hits, probes;
+	
+	/**
+	 * @param bits
+	 *            the base 2 logarithm of the number of entries
+	 */
+	public EvaluationCache(int bits){
+		int size = 1 << bits;
+		this.keys = new long[size];
+		this.scores = new int[size];
+		this.mask = size - 1;
+		clear();
+	}
+	
+	public void clear(){
+		for (int i = 0; i < this.scores.length; i++)
+			this.scores[i] = MISSING;
+	}
+	
+	public long getHits(){
+		return this.hits;
+	}
+	
+	public long getProbes(){
+		return this.probes;
+	}
+	
+	/**
+	 * @return a description of how often probes have hit.
+	 */
+	public String getStats(){
+		return stats(this.hits, this.probes);
+	}
+	
+	/**
+	 * @return the score stored for hash, or {@link #MISSING}
+	 */
+	public int probe(long hash){
+		this.probes++;
+		int i = (int)hash & this.mask;
+		if (this.keys[i] != hash || this.scores[i] == MISSING) return MISSING;
+		this.hits++;
+		return this.scores[i];
+	}
+	
+	public void store(long hash, int score){
+		int i = (int)hash & this.mask;
+		this.keys[i] = hash;
+		this.scores[i] = score;
+	}
+	
+	@Override
+	public String toString(){
+		return "Evaluation cache " + getStats();
+	}
+	
+	static String stats(long hits, long probes){
+		double rate = probes == 0 ? 0 : 100.0 * hits / probes;
+		return String.format("%d/%d hits (%.1f%%)", hits, probes, rate);
+	}
+}
@@ -0,0 +1,233 @@
+package chess.game.ai;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import chess.game.Board;
+import chess.game.Location;
+import chess.game.Piece;
+import chess.game.Player;
+
+/**
+ * Tunes the parameters of {@link PieceSquareEvaluator} to positions labeled with the results of the games they came
+ * from, by gradient descent on the mean squared difference between each result and the evaluation mapped to an
+ * expected result by a logistic curve.
+ * <p>
+ * Positions are decoded once, when added, into flat arrays: a phase and result per position, and one short per piece
+ * giving its colour, type and table square. The evaluation is linear in the parameters, so each pass over the positions
+ * computes the error and its gradient directly from those arrays, without boards or allocation per position. Passes
+ * are split over all cores with a fork-join pool.
+ */
+public class EvaluationTuner{
+	/**
+	 * Positions per fork-join task.
+	 */
+	private static final int CHUNK = 1 << 12;
+	private static final double LN10 = Math.log(10);
+	private static final int BLACK_PIECE = 1;
+	
+	/**
+	 * @return the expected result, from 0 to 1, of an evaluation in centipawns.
+	 */
+	private static double expected(double evaluation, double scale){
+		return 1 / (1 + Math.pow(10, -scale * evaluation / 400));
+	}
+	
+	private int count;
+	/**
+	 * The pieces of all positions: table index times 2, plus {@link #BLACK_PIECE} for Black's pieces.
+	 */
+	private short[] pieces = new short[1 << 16];
+	private int pieceCount;
+	private final ForkJoinPool pool;
+	/**
+	 * The phase and result, in half points for White, of each position.
+	 */
+	private byte[] phases = new byte[1 << 12], results = new byte[1 << 12];
+	/**
+	 * The first element of pieces of each position, and of the next.
+	 */
+	private int[] starts = new int[(1 << 12) + 1];
+	
+	public EvaluationTuner(){
+		this(ForkJoinPool.commonPool());
+	}
+	
+	public EvaluationTuner(ForkJoinPool pool){
+		this.pool = pool;
+	}
+	
+	/**
+	 * Adds the position on board from a game that White won, if result is 1, drew, if 0.5, or lost, if 0.
+	 */
+	public void add(Board board, double result){
+		if (this.count + 1 == this.starts.length){
+			this.starts = Arrays.copyOf(this.starts, 2 * this.starts.length);
+			this.phases = Arrays.copyOf(this.phases, this.starts.length);
+			this.results = Arrays.copyOf(this.results, this.starts.length);
+		}
+		int phase = 0;
+		int start = this.pieceCount;
+		for (Player player : Player.getPlayers()){
+			for (Location loc : board.getPlayerLocations(player)){
+				Piece piece = board.getPiece(loc);
+				int t = piece.getType().ordinal();
+				int table = t * PieceSquareEvaluator.SQUARES + PieceSquareEvaluator.tableSquare(player, loc);
+				if (this.pieceCount == this.pieces.length) this.pieces = Arrays.copyOf(this.pieces, 2 * this.pieces.length);
+				this.pieces[this.pieceCount++] = (short)(table << 1 | (player == Player.WHITE ? 0 : BLACK_PIECE));
+				phase += PieceSquareEvaluator.getPhaseWeight(piece.getType());
+			}
+		}
+		this.starts[this.count] = start;
+		this.starts[this.count + 1] = this.pieceCount;
+		this.phases[this.count] = (byte)Math.min(phase, PieceSquareEvaluator.MAX_PHASE);
+		this.results[this.count++] = (byte)Math.round(2 * result);
+	}
+	
+	/**
+	 * @return the mean squared error of parameters over the positions added.
+	 */
+	public double error(int[] parameters, double scale){
+		double[] values = new double[parameters.length];
+		for (int i = 0; i < values.length; i++)
+			values[i] = parameters[i];
+		return this.pool.invoke(new Pass(values, scale, 0, this.count, false)).error / this.count;
+	}
+	
+	/**
+	 * @return the scale of the logistic curve, from 0.1 to 10, that best fits the results to parameters, found by
+	 *         golden section search.
+	 */
+	public double fitScale(int[] parameters){
+		double low = 0.1, high = 10, ratio = (Math.sqrt(5) - 1) / 2;
+		double a = high - ratio * (high - low), b = low + ratio * (high - low);
+		double errorA = error(parameters, a), errorB = error(parameters, b);
+		while (high - low > 1e-3){
+			if (errorA < errorB){
+				high = b;
+				b = a;
+				errorB = errorA;
+				a = high - ratio * (high - low);
+				errorA = error(parameters, a);
+			} else{
+				low = a;
+				a = b;
+				errorA = errorB;
+				b = low + ratio * (high - low);
+				errorB = error(parameters, b);
+			}
+		}
+		return (low + high) / 2;
+	}
+	
+	public int getCount(){
+		return this.count;
+	}
+	
+	/**
+	 * Improves parameters by gradient descent.
+	 *
+	 * @param parameters
+	 *            the parameters to start from, laid out as for {@link PieceSquareEvaluator}
+	 * @param scale
+	 *            the scale of the logistic curve, as found by {@link #fitScale(int[])}
+	 * @param iterations
+	 *            the number of passes over the positions
+	 * @param rate
+	 *            the step size, in centipawns, of a parameter whose gradient is as large as any
+	 * @return the tuned parameters
+	 */
+	public int[] tune(int[] parameters, double scale, int iterations, double rate){
+		if (this.count == 0) return parameters.clone();
+		double[] values = new double[parameters.length];
+		for (int i = 0; i < values.length; i++)
+			values[i] = parameters[i];
+		for (int iteration = 0; iteration < iterations; iteration++){
+			double[] gradient = this.pool.invoke(new Pass(values, scale, 0, this.count, true)).gradient;
+			double largest = 0;
+			for (double g : gradient)
+				largest = Math.max(largest, Math.abs(g));
+			if (largest == 0) break;
+			for (int i = 0; i < values.length; i++)
+				values[i] -= rate * gradient[i] / largest;
+		}
+		int[] tuned = new int[values.length];
+		for (int i = 0; i < tuned.length; i++)
+			tuned[i] = (int)Math.round(values[i]);
+		return tuned;
+	}
+	
+	/**
+	 * The error, and if wanted its gradient, summed over a range of positions. Large ranges are split.
+	 */
+	private class Pass extends RecursiveTask<Pass>{
+		private static final long serialVersionUID = 1L;
+		private final int from, to;
+		private final boolean gradients;
+		private double error;
+		private double[] gradient;
+		private final double scale;
+		private final double[] values;
+		
+		Pass(double[] values, double scale, int from, int to, boolean gradients){
+			this.values = values;
+			this.scale = scale;
+			this.from = from;
+			this.to = to;
+			this.gradients = gradients;
+		}
+		
+		@Override
+		protected Pass compute(){
+			if (this.to - this.from > CHUNK){
+				int middle = (this.from + this.to) >>> 1;
+				Pass left = new Pass(this.values, this.scale, this.from, middle, this.gradients);
+				Pass right = new Pass(this.values, this.scale, middle, this.to, this.gradients);
+				left.fork();
+				right.compute();
+				left.join();
+				this.error = left.error + right.error;
+				if (this.gradients){
+					this.gradient = left.gradient;
+					for (int i = 0; i < this.gradient.length; i++)
+						this.gradient[i] += right.gradient[i];
+				}
+				return this;
+			}
+			double[] p = this.values;
+			short[] pieces = EvaluationTuner.this.pieces;
+			int[] starts = EvaluationTuner.this.starts;
+			if (this.gradients) this.gradient = new double[p.length];
+			for (int position = this.from; position < this.to; position++){
+				int phase = EvaluationTuner.this.phases[position];
+				double mgWeight = phase / (double)PieceSquareEvaluator.MAX_PHASE, egWeight = 1 - mgWeight;
+				double mg = 0, eg = 0;
+				for (int i = starts[position]; i < starts[position + 1]; i++){
+					int piece = pieces[i];
+					int table = piece >> 1;
+					int t = table / PieceSquareEvaluator.SQUARES;
+					double sign = (piece & BLACK_PIECE) == 0 ? 1 : -1;
+					mg += sign * (p[PieceSquareEvaluator.MG_MATERIAL + t] + p[PieceSquareEvaluator.MG_TABLES + table]);
+					eg += sign * (p[PieceSquareEvaluator.EG_MATERIAL + t] + p[PieceSquareEvaluator.EG_TABLES + table]);
+				}
+				double expected = expected(mg * mgWeight + eg * egWeight, this.scale);
+				double difference = EvaluationTuner.this.results[position] / 2.0 - expected;
+				this.error += difference * difference;
+				if (!this.gradients) continue;
+				double common = -2 * difference * expected * (1 - expected) * LN10 * this.scale / 400;
+				for (int i = starts[position]; i < starts[position + 1]; i++){
+					int piece = pieces[i];
+					int table = piece >> 1;
+					int t = table / PieceSquareEvaluator.SQUARES;
+					double sign = (piece & BLACK_PIECE) == 0 ? common : -common;
+					this.gradient[PieceSquareEvaluator.MG_MATERIAL + t] += sign * mgWeight;
+					this.gradient[PieceSquareEvaluator.MG_TABLES + table] += sign * mgWeight;
+					this.gradient[PieceSquareEvaluator.EG_MATERIAL + t] += sign * egWeight;
+					this.gradient[PieceSquareEvaluator.EG_TABLES + table] += sign * egWeight;
+				}
+			}
+			return this;
+		}
+	}
+}
@@ -0,0 +1,31 @@
+package chess.game.ai;
+
+import chess.game.Board;
+import chess.game.PieceListener;
+import chess.game.Player;
+
+/**
+ * Scores positions of a board it is attached to. Implementations follow the board as pieces are placed and removed,
+ * so evaluating does not need to examine the whole board.
+ */
+public interface Evaluator extends PieceListener{
+	/**
+	 * Starts tracking board, which replaces any board tracked before.
+	 */
+	void attach(Board board);
+	
+	/**
+	 * Stops tracking the attached board, if any.
+	 */
+	void detach();
+	
+	/**
+	 * @return the score of the attached board in centipawns from the point of view of toMove.
+	 */
+	int evaluate(Player toMove);
+	
+	/**
+	 * @return the attached board, or null if none is attached.
+	 */
+	Board getBoard();
+}
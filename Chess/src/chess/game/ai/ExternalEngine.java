@@ -0,0 +1,274 @@
+package chess.game.ai;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An engine that speaks the Universal Chess Interface, running as a separate process, such as another JVM running
+ * chess.uci.UciEngine with its own heap and collector. The process is started when first needed and kept for every
+ * move and game after, and is started again if it exits or stops answering. Each search is sent as one write of the
+ * position and the go command, without waiting for the engine to acknowledge the position.
+ * <p>
+ * An engine serves one search at a time; callers that search at once need an engine each. Processes still running
+ * when the JVM exits are told to quit, and killed if they do not.
+ */
+public class ExternalEngine implements Closeable{
+	/**
+	 * Thrown when the process exits while it is being waited for.
+	 */
+	private static class ExitedException extends IOException{
+		private static final long serialVersionUID = 1L;
+		
+		ExitedException(String message){
+			super(message);
+		}
+	}
+	
+	/**
+	 * Read from the output of a process that has exited.
+	 */
+	private static final String END = new String("end of output");
+	/**
+	 * Time allowed for the engine to start and to stop when told to.
+	 */
+	public static final long GRACE_MILLIS = 2000;
+	private static final Set<ExternalEngine> running = Collections.synchronizedSet(new LinkedHashSet<ExternalEngine>());
+	
+	static{
+		Runtime.getRuntime().addShutdownHook(new Thread("External engines"){
+			@Override
+			public void run(){
+				List<ExternalEngine> engines;
+				synchronized (running){
+					engines = new ArrayList<>(running);
+				}
+				for (ExternalEngine engine : engines)
+					engine.close();
+			}
+		});
+	}
+	
+	private final List<String> command;
+	private Process process;
+	private volatile Writer in;
+	/**
+	 * The lines of the process's output, and {@link #END} once it has exited.
+	 */
+	private BlockingQueue<String> out;
+	private volatile boolean newGame;
+	private volatile int restarts;
+	
+	/**
+	 * @param command
+	 *            the program and arguments that start the engine
+	 */
+	public ExternalEngine(List<String> command){
+		if (command.isEmpty()) throw new IllegalArgumentException("No engine command");
+		this.command = new ArrayList<>(command);
+	}
+	
+	private static long deadline(long millis){
+		return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+	}
+	
+	/**
+	 * Tells the engine to quit, and kills it if it has not within {@link #GRACE_MILLIS}. It is started again if asked
+	 * for another move.
+	 */
+	@Override
+	public synchronized void close(){
+		if (this.process == null) return;
+		try{
+			send("quit\n");
+			this.process.waitFor(GRACE_MILLIS, TimeUnit.MILLISECONDS);
+		} catch (IOException e){
+			// already gone
+		} catch (InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+		kill();
+	}
+	
+	/**
+	 * @return the number of times the process has been started again after exiting or failing to answer.
+	 */
+	public int getRestarts(){
+		return this.restarts;
+	}
+	
+	/**
+	 * Has the engine forget the game it was playing before the next search.
+	 */
+	public void newGame(){
+		this.newGame = true;
+	}
+	
+	/**
+	 * Asks the engine for the best move after moves from the start position, starting the process if need be. If the
+	 * process exits during the search, it is started again and asked once more; if it does not answer in time, it is
+	 * killed, and started again for the next search.
+	 *
+	 * @param moves
+	 *            the moves played, in long algebraic notation
+	 * @param go
+	 *            the limits of the search, as the arguments of a go command such as <code>movetime 1000</code>
+	 * @param timeoutMillis
+	 *            how long to wait for the move before telling the engine to stop, after which it is given
+	 *            {@link #GRACE_MILLIS} before it is killed
+	 * @return the move, as the engine wrote it, or null if it has none
+	 * @throws IOException
+	 *             if the process cannot be started, fails to answer in time, or exits twice
+	 */
+	public synchronized String search(List<String> moves, String go, long timeoutMillis) throws IOException{
+		StringBuilder request = new StringBuilder(64 + moves.size() * 5);
+		request.append("position startpos");
+		if (!moves.isEmpty()) request.append(" moves");
+		for (String move : moves)
+			request.append(' ').append(move);
+		request.append("\ngo ").append(go).append('\n');
+		for (int attempt = 1;; attempt++){
+			try{
+				return search(request, timeoutMillis);
+			} catch (IOException e){
+				kill();
+				this.restarts++;
+				if (attempt == 2 || !(e instanceof ExitedException)) throw e;
+			}
+		}
+	}
+	
+	/**
+	 * Tells the engine to move now, if it is searching.
+	 */
+	public void stop(){
+		Writer in = this.in;
+		if (in == null) return;
+		try{
+			synchronized (in){
+				in.write("stop\n");
+				in.flush();
+			}
+		} catch (IOException e){
+			// the search sees the process exit
+		}
+	}
+	
+	@Override
+	public String toString(){
+		return String.join(" ", this.command);
+	}
+	
+	/**
+	 * @return the next line of output, or null if there is none by deadline, by {@link System#nanoTime()}.
+	 * @throws IOException
+	 *             if the process has exited
+	 */
+	private String await(long deadline) throws IOException{
+		try{
+			String line = this.out.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+			if (line == END) throw new ExitedException("Engine exited: " + this);
+			return line;
+		} catch (InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted waiting for " + this, e);
+		}
+	}
+	
+	/**
+	 * Reads output until a line starting with word, or the deadline.
+	 *
+	 * @return the line, or null if the deadline passed first.
+	 */
+	private String expect(String word, long deadline) throws IOException{
+		for (String line = await(deadline); line != null; line = await(deadline)){
+			if (line.startsWith(word) && (line.length() == word.length() || line.charAt(word.length()) == ' ')) return line;
+		}
+		return null;
+	}
+	
+	private void kill(){
+		if (this.process == null) return;
+		this.process.destroyForcibly();
+		this.process = null;
+		this.in = null;
+		this.out = null;
+		running.remove(this);
+	}
+	
+	private String search(CharSequence request, long timeoutMillis) throws IOException{
+		if (this.process == null) start();
+		if (this.newGame){
+			request = "ucinewgame\n" + request;
+			this.newGame = false;
+		}
+		this.out.clear();
+		send(request);
+		String line = expect("bestmove", deadline(timeoutMillis));
+		if (line == null){
+			send("stop\n");
+			line = expect("bestmove", deadline(GRACE_MILLIS));
+			if (line == null) throw new IOException("No move from " + this + " in " + timeoutMillis + " ms");
+		}
+		if (line.length() <= "bestmove ".length()) return null;
+		int end = line.indexOf(' ', "bestmove ".length());
+		String move = line.substring("bestmove ".length(), end < 0 ? line.length() : end).trim();
+		return move.isEmpty() || move.equals("0000") || move.equals("(none)") ? null : move;
+	}
+	
+	private void send(CharSequence text) throws IOException{
+		Writer in = this.in;
+		synchronized (in){
+			in.append(text);
+			in.flush();
+		}
+	}
+	
+	/**
+	 * Starts the process and waits for it to be ready, with a thread that queues its output.
+	 */
+	private void start() throws IOException{
+		ProcessBuilder builder = new ProcessBuilder(this.command);
+		builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+		final Process process = builder.start();
+		final BlockingQueue<String> out = new LinkedBlockingQueue<>();
+		Thread reader = new Thread(new Runnable(){
+			@Override
+			public void run(){
+				try (BufferedReader lines = new BufferedReader(new InputStreamReader(process.getInputStream(),
+																						StandardCharsets.US_ASCII))){
+					for (String line = lines.readLine(); line != null; line = lines.readLine())
+						out.add(line);
+				} catch (IOException e){
+					// the process has gone
+				} finally{
+					out.add(END);
+				}
+			}
+		}, "Output of " + this);
+		reader.setDaemon(true);
+		reader.start();
+		this.process = process;
+		this.in = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.US_ASCII));
+		this.out = out;
+		running.add(this);
+		send("uci\nisready\n");
+		if (expect("readyok", deadline(GRACE_MILLIS)) == null){
+			kill();
+			throw new IOException("No answer from " + this);
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package chess.game.ai;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+import chess.game.Board.Move;
+import chess.game.Clock;
+import chess.game.Game;
+import chess.game.Location;
+import chess.game.Mover;
+import chess.game.Notation;
+import chess.game.PieceType;
+import chess.game.Player;
+import chess.game.TimeBudget;
+
+/**
+ * Chooses moves by asking an {@link ExternalEngine}, so that the search runs in another process and the game's thread
+ * only waits for its answer. The engine is sent the game's clock if it has one, and otherwise searches for the hard
+ * limit of the mover's time budget. A mover that gets no legal move from its engine fails with an exception.
+ */
+public class ExternalMover extends Mover{
+	private final ExternalEngine engine;
+	private PieceType promotion = PieceType.QUEEN;
+	
+	/**
+	 * @param engine
+	 *            the engine to ask, which may have played other games before, but not at the same time as this one
+	 */
+	public ExternalMover(Game game, ExternalEngine engine){
+		super(game);
+		this.engine = engine;
+		engine.newGame();
+		setTimeBudget(TimeBudget.fixed(NextMove.DEFAULT_MOVE_MILLIS));
+	}
+	
+	@Override
+	public Move getMove(){
+		List<String> moves = this.game.getMovesPlayed();
+		Clock clock = this.game.getClock();
+		String go;
+		long timeout;
+		if (clock != null){
+			Player turn = this.game.getTurn();
+			go = "wtime " + Math.max(1, clock.getRemainingMillis(Player.WHITE))
+					+ " btime "
+					+ Math.max(1, clock.getRemainingMillis(Player.BLACK))
+					+ " winc "
+					+ clock.getIncrementMillis()
+					+ " binc "
+					+ clock.getIncrementMillis();
+			timeout = clock.getRemainingMillis(turn) + clock.getDelayMillis();
+		} else{
+			TimeBudget budget = getTimeBudget();
+			long millis = budget == null ? NextMove.DEFAULT_MOVE_MILLIS : Math.max(1, budget.getHardMillis());
+			go = "movetime " + millis;
+			timeout = millis;
+		}
+		String answer;
+		try{
+			answer = this.engine.search(moves, go, timeout + ExternalEngine.GRACE_MILLIS);
+		} catch (IOException e){
+			throw new UncheckedIOException(e);
+		}
+		if (answer == null) return null;
+		Location from = Notation.parseLocation(answer, 0), to = Notation.parseLocation(answer, 2);
+		for (Move move : this.game.getAllCurrentMoves()){
+			if (move.getOldLocation().equals(from) && move.getNewLocation().equals(to)){
+				PieceType promotion = Notation.parsePromotion(answer);
+				this.promotion = promotion == null ? PieceType.QUEEN : promotion;
+				return move;
+			}
+		}
+		throw new IllegalStateException(this.engine + " played an illegal move: " + answer);
+	}
+	
+	@Override
+	public PieceType getPromotion(){
+		return this.promotion;
+	}
+	
+	/**
+	 * Tells the engine to move now, as well as asking this mover to.
+	 */
+	@Override
+	public void stop(){
+		super.stop();
+		this.engine.stop();
+	}
+	
+	@Override
+	public String toString(){
+		return this.engine.toString();
+	}
+}
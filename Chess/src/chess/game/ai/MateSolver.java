@@ -0,0 +1,278 @@
+package chess.game.ai;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import chess.game.Board;
+import chess.game.Board.Move;
+import chess.game.Game;
+import chess.game.PieceType;
+import chess.game.Player;
+
+/**
+ * Proves or disproves that the player to move can force mate within a number of moves, by proof-number search. Unlike
+ * an alpha-beta search, proof-number search expands the positions that are cheapest to prove or disprove, which suits
+ * long forcing lines. The search tree is kept in a node table of fixed capacity; when it fills, the result is
+ * {@link Status#UNKNOWN}.
+ * <p>
+ * A solver is not thread safe, but it only searches a copy of the game's board, so it may run on any thread while the
+ * game goes on.
+ */
+public class MateSolver{
+	public enum Status{
+		/**
+		 * The player to move can force mate within the number of moves.
+		 */
+		PROVEN,
+		/**
+		 * The player to move cannot force mate within the number of moves.
+		 */
+		DISPROVEN,
+		/**
+		 * The node table filled, or the search was stopped, before it finished.
+		 */
+		UNKNOWN
+	}
+	
+	/**
+	 * The outcome of a search.
+	 */
+	public static class Result{
+		private final List<Move> line;
+		private final int nodes;
+		private final Status status;
+		
+		private Result(Status status, List<Move> line, int nodes){
+			this.status = status;
+			this.line = line;
+			this.nodes = nodes;
+		}
+		
+		/**
+		 * @return the mating line, alternating the attacker's and defender's moves and ending in mate, or an empty list
+		 *         if mate was not proven. The moves belong to a copy of the game's board; match them to the game's own
+		 *         moves by location.
+		 */
+		public List<Move> getLine(){
+			return this.line;
+		}
+		
+		/**
+		 * @return the number of nodes used.
+		 */
+		public int getNodes(){
+			return this.nodes;
+		}
+		
+		public Status getStatus(){
+			return this.status;
+		}
+		
+		@Override
+		public String toString(){
+			return this.status + " " + this.line + " (" + this.nodes + " nodes)";
+		}
+	}
+	
+	private static final int INFINITY = Integer.MAX_VALUE / 2;
+	private static final int NONE = -1;
+	
+	private static int add(int a, int b){
+		return Math.min(INFINITY, a + b);
+	}
+	
+	private final int capacity;
+	private final int[] children, childCount, disproof, parent, proof;
+	private final short[] ply;
+	private final Move[] moves;
+	private final boolean[] expanded;
+	private Board board;
+	private int maxPly, size;
+	
+	/**
+	 * @param capacity
+	 *            the number of nodes the search tree may hold
+	 */
+	public MateSolver(int capacity){
+		this.capacity = capacity;
+		this.parent = new int[capacity];
+		this.children = new int[capacity];
+		this.childCount = new int[capacity];
+		this.proof = new int[capacity];
+		this.disproof = new int[capacity];
+		this.ply = new short[capacity];
+		this.moves = new Move[capacity];
+		this.expanded = new boolean[capacity];
+	}
+	
+	/**
+	 * Searches for a mate by the player to move in game's current position within moves moves.
+	 */
+	public Result solve(Game game, int moves){
+		return solve(game, moves, null);
+	}
+	
+	/**
+	 * Searches as {@link #solve(Game, int)} does, giving up with {@link Status#UNKNOWN} once stop says so.
+	 *
+	 * @param stop
+	 *            asked before each node is expanded, or null to search until the result is known or the table fills
+	 */
+	public Result solve(Game game, int moves, BooleanSupplier stop){
+		Player attacker = game.getTurn();
+		if (!Player.getPlayers().contains(attacker)) return new Result(	Status.DISPROVEN,
+																		Collections.<Move> emptyList(),
+																		0);
+		return solve(game.copyBoard(), attacker, moves, stop);
+	}
+	
+	/**
+	 * Searches for a mate by attacker on board within moves moves. board is left as it was found.
+	 */
+	public Result solve(Board board, Player attacker, int moves){
+		return solve(board, attacker, moves, null);
+	}
+	
+	/**
+	 * Searches as {@link #solve(Board, Player, int)} does, giving up with {@link Status#UNKNOWN} once stop says so.
+	 *
+	 * @param stop
+	 *            asked before each node is expanded, or null to search until the result is known or the table fills
+	 */
+	public Result solve(Board board, Player attacker, int moves, BooleanSupplier stop){
+		this.board = board;
+		this.maxPly = 2 * moves - 1;
+		this.size = 0;
+		int root = newNode(NONE, null, 0);
+		try{
+			while (this.proof[root] != 0 && this.disproof[root] != 0){
+				if (stop != null && stop.getAsBoolean() || !searchOnce(root, attacker)) break;
+			}
+			Status status = this.proof[root] == 0 ? Status.PROVEN : this.disproof[root] == 0 ? Status.DISPROVEN
+					: Status.UNKNOWN;
+			List<Move> line = status == Status.PROVEN ? mainLine(root) : Collections.<Move> emptyList();
+			return new Result(status, line, this.size);
+		} finally{
+			for (int i = 0; i < this.size; i++)
+				this.moves[i] = null;
+			this.board = null;
+		}
+	}
+	
+	/**
+	 * Generates the moves of node, or scores it if it is terminal. The board must be in node's position.
+	 *
+	 * @return false if the node table is full
+	 */
+	private boolean expand(int node, Player toMove, boolean attacking){
+		List<Move> legal = this.board.getMoves(toMove);
+		this.expanded[node] = true;
+		if (legal.isEmpty()){
+			boolean mated = this.board.isCheck(toMove);
+			setProven(node, mated && !attacking);
+			return true;
+		}
+		if (!attacking && this.ply[node] >= this.maxPly){
+			setProven(node, false);
+			return true;
+		}
+		if (this.size + legal.size() > this.capacity) return false;
+		this.children[node] = this.size;
+		this.childCount[node] = legal.size();
+		for (Move move : legal)
+			newNode(node, move, this.ply[node] + 1);
+		return true;
+	}
+	
+	/**
+	 * @return the moves from node to mate, following proven attacker moves and the first of the defender's moves.
+	 */
+	private List<Move> mainLine(int node){
+		List<Move> line = new ArrayList<>();
+		while (this.childCount[node] > 0){
+			int first = this.children[node];
+			int next = first;
+			boolean attacking = this.ply[node] % 2 == 0;
+			if (attacking){
+				while (this.proof[next] != 0)
+					next++;
+			}
+			line.add(this.moves[next]);
+			node = next;
+		}
+		return line;
+	}
+	
+	private int newNode(int parentNode, Move move, int nodePly){
+		int node = this.size++;
+		this.parent[node] = parentNode;
+		this.moves[node] = move;
+		this.ply[node] = (short)nodePly;
+		this.children[node] = NONE;
+		this.childCount[node] = 0;
+		this.expanded[node] = false;
+		this.proof[node] = 1;
+		this.disproof[node] = 1;
+		return node;
+	}
+	
+	/**
+	 * Expands the most proving node and updates the numbers of its ancestors.
+	 *
+	 * @return false if the node table is full
+	 */
+	private boolean searchOnce(int root, Player attacker){
+		int node = root;
+		Player toMove = attacker;
+		while (this.expanded[node]){
+			boolean attacking = toMove == attacker;
+			int first = this.children[node];
+			int best = first;
+			for (int child = first + 1; child < first + this.childCount[node]; child++){
+				if (attacking ? this.proof[child] < this.proof[best] : this.disproof[child] < this.disproof[best]) best = child;
+			}
+			node = best;
+			this.board.execute(this.moves[node], PieceType.QUEEN);
+			toMove = toMove.next();
+		}
+		boolean room = expand(node, toMove, toMove == attacker);
+		while (node != root){
+			if (room) update(node, toMove == attacker);
+			this.board.undo(this.moves[node]);
+			node = this.parent[node];
+			toMove = toMove.next();
+		}
+		if (room) update(root, true);
+		return room;
+	}
+	
+	private void setProven(int node, boolean proven){
+		this.proof[node] = proven ? 0 : INFINITY;
+		this.disproof[node] = proven ? INFINITY : 0;
+	}
+	
+	/**
+	 * Recomputes the proof and disproof numbers of an expanded node from its children.
+	 */
+	private void update(int node, boolean attacking){
+		int count = this.childCount[node];
+		if (count == 0) return;
+		int first = this.children[node];
+		int min = INFINITY, sum = 0;
+		for (int child = first; child < first + count; child++){
+			int minimized = attacking ? this.proof[child] : this.disproof[child];
+			int summed = attacking ? this.disproof[child] : this.proof[child];
+			if (minimized < min) min = minimized;
+			sum = add(sum, summed);
+		}
+		if (attacking){
+			this.proof[node] = min;
+			this.disproof[node] = sum;
+		} else{
+			this.disproof[node] = min;
+			this.proof[node] = sum;
+		}
+	}
+}
@@ -0,0 +1,232 @@
+package chess.game.ai;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import chess.game.Board;
+import chess.game.Location;
+import chess.game.Piece;
+import chess.game.Player;
+
+/**
+ * Evaluates a board with a small quantized neural network loaded from a weights file. The first layer is an
+ * accumulator per player, kept up to date as pieces are placed and removed on the attached board, so each move costs
+ * one column of additions rather than a full layer. The remaining dense layers are evaluated with plain loops over
+ * contiguous int16/int8 arrays, which HotSpot compiles to SIMD instructions where the CPU supports them.
+ * <p>
+ * The weights file is little-endian:
+ *
+ * <pre>
+ * int    magic ("JCNN"), version, hidden size H, second layer size L
+ * int    output divisor (network output per centipawn)
+ * short  input weights [768][H], feature-major
+ * short  input biases [H]
+ * byte   second layer weights [L][2H], neuron-major
+ * int    second layer biases [L]
+ * byte   output weights [L]
+ * int    output bias
+ * </pre>
+ *
+ * Input features are the 768 combinations of (own or opposing piece, PieceType ordinal, square) seen from each
+ * player's side of the board, the side to move's accumulator coming first in the second layer's input.
+ */
+public class NeuralEvaluator implements Evaluator{
+	public static final int MAGIC = 0x4A434E4E;
+	public static final int VERSION = 1;
+	public static final int FEATURES = 2 * PieceSquareEvaluator.TYPES * PieceSquareEvaluator.SQUARES;
+	/**
+	 * Activations are clipped to 0..ACTIVATION_MAX, and second layer sums are shifted right by ACTIVATION_SHIFT.
+	 */
+	private static final int ACTIVATION_MAX = 127, ACTIVATION_SHIFT = 6;
+	private static final Player[] PLAYERS = {Player.WHITE, Player.BLACK};
+	
+	/**
+	 * Reads a network from the weights file at path.
+	 *
+	 * @throws IOException
+	 *             if the file cannot be read or is not a weights file
+	 */
+	public static NeuralEvaluator load(Path path) throws IOException{
+		ByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)){
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) throw new IOException("Weights file too large: " + path);
+			buffer = ByteBuffer.allocate((int)size);
+			while (buffer.hasRemaining()){
+				if (channel.read(buffer) < 0) throw new IOException("Unexpected end of " + path);
+			}
+		}
+		buffer.flip();
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		if (buffer.remaining() < 20 || buffer.getInt() != MAGIC) throw new IOException(path + " is not a weights file");
+		int version = buffer.getInt();
+		if (version != VERSION) throw new IOException("Unsupported weights version " + version);
+		int hidden = buffer.getInt();
+		int second = buffer.getInt();
+		int divisor = buffer.getInt();
+		if (hidden <= 0 || second <= 0 || divisor <= 0) throw new IOException("Bad layer sizes in " + path);
+		long expected = 2L * FEATURES * hidden + 2L * hidden + 2L * hidden * second + 4L * second + second + 4;
+		if (buffer.remaining() != expected) throw new IOException("Expected "
+				+ expected
+				+ " bytes of weights in "
+				+ path);
+		short[] inputWeights = new short[FEATURES * hidden];
+		buffer.asShortBuffer().get(inputWeights);
+		buffer.position(buffer.position() + 2 * inputWeights.length);
+		short[] inputBiases = new short[hidden];
+		buffer.asShortBuffer().get(inputBiases);
+		buffer.position(buffer.position() + 2 * inputBiases.length);
+		byte[] secondWeights = new byte[2 * hidden * second];
+		buffer.get(secondWeights);
+		int[] secondBiases = new int[second];
+		buffer.asIntBuffer().get(secondBiases);
+		buffer.position(buffer.position() + 4 * secondBiases.length);
+		byte[] outputWeights = new byte[second];
+		buffer.get(outputWeights);
+		int outputBias = buffer.getInt();
+		return new NeuralEvaluator(	hidden,
+									inputWeights,
+									inputBiases,
+									secondWeights,
+									secondBiases,
+									outputWeights,
+									outputBias,
+									divisor);
+	}
+	
+	private static short clip(int value){
+		return (short)(value < 0 ? 0 : value > ACTIVATION_MAX ? ACTIVATION_MAX : value);
+	}
+	
+	/**
+	 * @return the input feature of piece at location, seen from perspective's side of the board.
+	 */
+	private static int feature(Player perspective, Piece piece, Location location){
+		int relation = piece.getPlayer() == perspective ? 0 : 1;
+		int square = PieceSquareEvaluator.tableSquare(perspective, location);
+		return (relation * PieceSquareEvaluator.TYPES + piece.getType().ordinal()) * PieceSquareEvaluator.SQUARES + square;
+	}
+	
+	/**
+	 * The first layer's output for each player's perspective, indexed by Player ordinal.
+	 */
+	private final short[][] accumulators;
+	/**
+	 * Second layer input, reused between evaluations.
+	 */
+	private final short[] activations;
+	private Board board;
+	private final int divisor, hidden, outputBias;
+	private final short[] inputBiases, inputWeights;
+	private final int[] secondBiases;
+	/**
+	 * Second layer output, reused between evaluations.
+	 */
+	private final short[] secondActivations;
+	private final byte[] secondWeights, outputWeights;
+	
+	private NeuralEvaluator(int hidden, short[] inputWeights, short[] inputBiases, byte[] secondWeights,
+			int[] secondBiases, byte[] outputWeights, int outputBias, int divisor){
+		this.hidden = hidden;
+		this.inputWeights = inputWeights;
+		this.inputBiases = inputBiases;
+		this.secondWeights = secondWeights;
+		this.secondBiases = secondBiases;
+		this.outputWeights = outputWeights;
+		this.outputBias = outputBias;
+		this.divisor = divisor;
+		this.accumulators = new short[Player.getPlayers().size()][hidden];
+		this.activations = new short[2 * hidden];
+		this.secondActivations = new short[secondBiases.length];
+	}
+	
+	/**
+	 * @return a new evaluator sharing this evaluator's weights, for use on another board or thread.
+	 */
+	public NeuralEvaluator copy(){
+		return new NeuralEvaluator(	this.hidden,
+									this.inputWeights,
+									this.inputBiases,
+									this.secondWeights,
+									this.secondBiases,
+									this.outputWeights,
+									this.outputBias,
+									this.divisor);
+	}
+	
+	@Override
+	public void attach(Board board){
+		detach();
+		this.board = board;
+		for (short[] accumulator : this.accumulators){
+			System.arraycopy(this.inputBiases, 0, accumulator, 0, this.hidden);
+		}
+		for (Player player : Player.getPlayers()){
+			for (Location loc : board.getPlayerLocations(player)){
+				piecePlaced(board.getPiece(loc), loc);
+			}
+		}
+		board.addPieceListener(this);
+	}
+	
+	@Override
+	public void detach(){
+		if (this.board != null) this.board.removePieceListener(this);
+		this.board = null;
+	}
+	
+	@Override
+	public int evaluate(Player toMove){
+		int hidden = this.hidden;
+		short[] own = this.accumulators[toMove.ordinal()];
+		short[] opposing = this.accumulators[toMove.next().ordinal()];
+		short[] in = this.activations;
+		for (int i = 0; i < hidden; i++){
+			in[i] = clip(own[i]);
+			in[hidden + i] = clip(opposing[i]);
+		}
+		int inputs = in.length;
+		short[] out = this.secondActivations;
+		byte[] weights = this.secondWeights;
+		for (int j = 0; j < out.length; j++){
+			int sum = 0;
+			int offset = j * inputs;
+			for (int i = 0; i < inputs; i++)
+				sum += in[i] * weights[offset + i];
+			out[j] = clip((sum + this.secondBiases[j]) >> ACTIVATION_SHIFT);
+		}
+		int sum = this.outputBias;
+		for (int j = 0; j < out.length; j++)
+			sum += out[j] * this.outputWeights[j];
+		return sum / this.divisor;
+	}
+	
+	@Override
+	public Board getBoard(){
+		return this.board;
+	}
+	
+	@Override
+	public void piecePlaced(Piece piece, Location location){
+		for (Player perspective : PLAYERS){
+			short[] accumulator = this.accumulators[perspective.ordinal()];
+			int offset = feature(perspective, piece, location) * this.hidden;
+			for (int i = 0; i < accumulator.length; i++)
+				accumulator[i] += this.inputWeights[offset + i];
+		}
+	}
+	
+	@Override
+	public void pieceRemoved(Piece piece, Location location){
+		for (Player perspective : PLAYERS){
+			short[] accumulator = this.accumulators[perspective.ordinal()];
+			int offset = feature(perspective, piece, location) * this.hidden;
+			for (int i = 0; i < accumulator.length; i++)
+				accumulator[i] -= this.inputWeights[offset + i];
+		}
+	}
+}
@@ -1,30 +1,705 @@
 package chess.game.ai;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
 
+import chess.game.AnalysisLine;
+import chess.game.AnalysisListener;
+import chess.game.Analyzer;
+import chess.game.Board;
 import chess.game.Board.Move;
 import chess.game.Game;
+import chess.game.IdleExecutor;
 import chess.game.Mover;
+import chess.game.Piece;
+import chess.game.PieceType;
+import chess.game.Player;
+import chess.game.TimeBudget;
+
+/**
+ * Chooses moves by an iterative deepening alpha-beta search that resolves captures at its leaves. The search deepens
+ * until the mover's soft deadline passes and is abandoned at the hard deadline, in which case the best move found so
+ * far is played. Search results are kept in a {@link TranspositionTable}, which supplies the first move to try in
+ * positions seen before and ends the search of positions already searched deeply enough. The table's key does not
+ * include castling rights or the en passant square, so a result may rarely be reused for a position that differs only
+ * in those.
+ * <p>
+ * While the opponent thinks, the mover ponders: it searches the position after the reply its last search expected.
+ * If the opponent plays that reply, the next search starts from where pondering left off.
+ * <p>
+ * As an {@link Analyzer}, it finds several candidate moves per iteration by searching the root again with the moves
+ * already found left out. The searches for the lines share the move ordering history, and each starts from the
+ * corresponding line of the previous iteration and the table. An instance analyzing a game should not also be one of its movers.
+ */
+public class NextMove extends Mover implements Analyzer{
+	/**
+	 * The time allowed for each move unless another budget is set.
+	 */
+	public static final long DEFAULT_MOVE_MILLIS = 1000;
+	/**
+	 * Scores at least this far from 0, less the ply of the mate, are forced mates.
+	 */
+	public static final int MATE = QuiescenceScorer.KING_CAPTURE / 2;
+	/**
+	 * The base 2 logarithm of the number of buckets of the table made for each mover.
+	 */
+	public static final int DEFAULT_TABLE_BITS = 16;
+	private static final long PONDER_IDLE_SECONDS = 30;
+
+	/**
+	 * Thrown to unwind the search when the hard deadline passes.
+	 */
+	private static class SearchAborted extends RuntimeException{
+		private static final long serialVersionUID = 1L;
+
+		private SearchAborted(){
+			super(null, null, false, false);
+		}
+	}
+
+	private static final SearchAborted ABORTED = new SearchAborted();
+
+	protected MateSolver mateSolver;
+	protected int mateMoves;
+	protected int maxDepth = MoveRanker.MAX_PLY / 2;
+	protected MoveRanker ranker = new MoveRanker();
+	protected QuiescenceScorer scorer;
+	protected Tablebase tablebase;
+	protected TranspositionTable table;
+	private int completedDepth, completedScore;
+	/**
+	 * Root moves left out of the search, because they are already lines of the analysis.
+	 */
+	private final List<Move> excluded = new ArrayList<>();
+	private Move iterationBest;
+	private int iterationScore;
+	private long nodes;
+	private Move ponderBest, ponderReply;
+	private int ponderDepth, ponderScore;
+	private ExecutorService ponderExecutor;
+	private boolean ponderHit;
+	private volatile boolean pondering, ponderStopped;
+	private Future<?> ponderTask;
+	/**
+	 * The principal variation of each ply of the current search, starting at index ply.
+	 */
+	private final Move[][] pv = new Move[MoveRanker.MAX_PLY][MoveRanker.MAX_PLY];
+	private final int[] pvLength = new int[MoveRanker.MAX_PLY];
+	private List<Move> principalVariation = Collections.emptyList();
 
-public class NextMove extends Mover{
 	public NextMove(Game game){
+		this(game, new TranspositionTable(DEFAULT_TABLE_BITS));
+	}
+	
+	/**
+	 * Creates a mover that searches with table from the start, rather than making its own.
+	 *
+	 * @see #setTranspositionTable(TranspositionTable)
+	 */
+	public NextMove(Game game, TranspositionTable table){
+		super(game);
+		this.scorer = new QuiescenceScorer();
+		this.table = table;
+		setTimeBudget(TimeBudget.fixed(DEFAULT_MOVE_MILLIS));
+	}
+
+	/**
+	 * Creates a mover that scores positions with evaluator alone, for evaluators such as {@link NeuralEvaluator} that
+	 * account for pawn structure themselves.
+	 */
+	public NextMove(Game game, Evaluator evaluator){
 		super(game);
+		this.scorer = new QuiescenceScorer(evaluator, new EvaluationCache(16), null);
+		this.table = new TranspositionTable(DEFAULT_TABLE_BITS);
+		setTimeBudget(TimeBudget.fixed(DEFAULT_MOVE_MILLIS));
+	}
+
+	@Override
+	public List<AnalysisLine> analyze(Board board, Player turn, int lines, AnalysisListener listener){
+		stopPondering();
+		startClock();
+		if (!Player.getPlayers().contains(turn)) return Collections.emptyList();
+		int count = Math.min(lines, board.getMoves(turn).size());
+		List<AnalysisLine> result = Collections.emptyList();
+		this.nodes = 0;
+		try{
+			for (int depth = 1; depth <= this.maxDepth && count > 0; depth++){
+				List<AnalysisLine> current = new ArrayList<>(count);
+				boolean allMates = true;
+				this.excluded.clear();
+				for (int k = 0; k < count; k++){
+					Move hint = null;
+					for (AnalysisLine previous : result){
+						if (find(this.excluded, previous.getMove()) == null){
+							hint = previous.getMove();
+							break;
+						}
+					}
+					this.iterationBest = null;
+					int score = search(board,
+										turn,
+										depth,
+										0,
+										-QuiescenceScorer.KING_CAPTURE,
+										QuiescenceScorer.KING_CAPTURE,
+										hint);
+					current.add(new AnalysisLine(depth, score, new ArrayList<>(Arrays.asList(this.pv[0])
+							.subList(0, this.pvLength[0]))));
+					this.excluded.add(this.iterationBest);
+					allMates &= Math.abs(score) >= MATE - this.maxDepth;
+				}
+				Collections.sort(current, new Comparator<AnalysisLine>(){
+					@Override
+					public int compare(AnalysisLine a, AnalysisLine b){
+						return Integer.compare(b.getScore(), a.getScore());
+					}
+				});
+				result = Collections.unmodifiableList(current);
+				this.completedDepth = depth;
+				if (listener != null) listener.analysisUpdated(depth, result);
+				if (isSoftStop() || allMates) break;
+			}
+		} catch (SearchAborted e){
+			// keep the last completed iteration
+		} finally{
+			this.excluded.clear();
+		}
+		return result;
+	}
+
+	/**
+	 * Analyzes the current position of this mover's game, which should not change meanwhile. Use
+	 * {@link Game#analyze(Analyzer, int, AnalysisListener)} to analyze a game that may.
+	 *
+	 * @see #analyze(Board, Player, int, AnalysisListener)
+	 */
+	public List<AnalysisLine> analyze(int lines, AnalysisListener listener){
+		return analyze(this.game.copyBoard(), this.game.getTurn(), lines, listener);
 	}
 
 	@Override
 	public Move getMove(){
-		List<Move> moves = this.game.getAllCurrentMoves();
-		return null;
+		if (this.ponderTask != null){
+			stopPondering();
+			this.ponderHit = false;
+		}
+		boolean hit = this.ponderHit;
+		this.ponderHit = false;
+		// a move found without searching has no completed iteration, and no score
+		this.completedDepth = 0;
+		this.completedScore = 0;
+		// the solver gives up at the soft deadline, leaving the search time for at least one iteration
+		if (this.mateSolver != null){
+			MateSolver.Result mate = this.mateSolver.solve(this.game, this.mateMoves, new BooleanSupplier(){
+				@Override
+				public boolean getAsBoolean(){
+					return isSoftStop();
+				}
+			});
+			if (mate.getStatus() == MateSolver.Status.PROVEN) return toGameMove(mate.getLine().get(0));
+		}
+		Player turn = this.game.getTurn();
+		Board board = this.game.copyBoard();
+		if (this.tablebase != null){
+			Move perfect = this.tablebase.bestMove(board, turn);
+			if (perfect != null) return toGameMove(perfect);
+		}
+		List<Move> rootMoves = board.getMoves(turn);
+		if (rootMoves.isEmpty()) return null;
+		Move best = rootMoves.get(0);
+		int firstDepth = 1;
+		if (hit){
+			Move kept = find(rootMoves, this.ponderBest);
+			if (kept != null){
+				best = kept;
+				firstDepth = this.ponderDepth + 1;
+				this.completedScore = this.ponderScore;
+			}
+		}
+		return toGameMove(deepen(board, turn, best, firstDepth));
+	}
+
+	/**
+	 * @return the depth of the last completed iteration of the last search, or 0 if the last move was chosen without
+	 *         completing one.
+	 */
+	public int getCompletedDepth(){
+		return this.completedDepth;
+	}
+
+	/**
+	 * @return the score of the last completed iteration of the last search, for the player it chose a move for, or 0
+	 *         if {@link #getCompletedDepth()} is 0.
+	 */
+	public int getCompletedScore(){
+		return this.completedScore;
 	}
 	
-	class MoveRanker implements Comparator<Move>{
+	/**
+	 * @return the deepest iteration searched, however much time remains.
+	 */
+	public int getMaxDepth(){
+		return this.maxDepth;
+	}
+
+	/**
+	 * @return the number of positions visited by the last search, not counting capture resolution.
+	 */
+	public long getNodes(){
+		return this.nodes;
+	}
+
+	/**
+	 * @return the number of plies to the mate score forces, positive if it is for the player who mates, negative if it
+	 *         is for the player mated, or 0 if score is not a forced mate.
+	 */
+	public static int getMatePlies(int score){
+		if (score >= MATE - MoveRanker.MAX_PLY) return MATE - score;
+		if (score <= -(MATE - MoveRanker.MAX_PLY)) return -(MATE + score);
+		return 0;
+	}
+
+	/**
+	 * @return the hit rates of the scorer's caches.
+	 */
+	public String getStats(){
+		return this.scorer.getStats() + (this.table == null ? "" : ", " + this.table);
+	}
+
+	/**
+	 * @return the principal variation of the last completed iteration of the last search. The moves belong to a copy
+	 *         of the game's board.
+	 */
+	public List<Move> getPrincipalVariation(){
+		return this.principalVariation;
+	}
+
+	/**
+	 * Keeps the work done pondering if move is the reply that was predicted, and discards it otherwise.
+	 */
+	@Override
+	public void opponentMoved(Move move){
+		Move predicted = this.ponderReply;
+		stopPondering();
+		this.ponderHit = this.ponderBest != null && predicted != null && sameSquares(predicted, move);
+	}
+
+	/**
+	 * Starts searching, on a background thread, the position after the opponent's reply predicted by the last
+	 * search.
+	 */
+	@Override
+	public void ponder(){
+		stopPondering();
+		this.ponderHit = false;
+		final List<Move> line = this.principalVariation;
+		Player opponent = this.game.getTurn();
+		if (line.size() < 2 || !Player.getPlayers().contains(opponent)) return;
+		final Board board = this.game.copyBoard();
+		Move reply = find(board.getMoves(opponent), line.get(1));
+		if (reply == null) return;
+		board.execute(reply, PieceType.QUEEN);
+		final Player own = opponent.next();
+		final List<Move> ownMoves = board.getMoves(own);
+		if (ownMoves.isEmpty()) return;
+		this.ponderReply = reply;
+		this.ponderBest = null;
+		this.ponderStopped = false;
+		// movers that have stopped playing do not keep a thread
+		if (this.ponderExecutor == null) this.ponderExecutor = new IdleExecutor("Ponder " + this, PONDER_IDLE_SECONDS);
+		this.ponderTask = this.ponderExecutor.submit(new Runnable(){
+			@Override
+			public void run(){
+				NextMove.this.pondering = true;
+				try{
+					Move expected = line.size() > 2 ? find(ownMoves, line.get(2)) : null;
+					Move best = deepen(board, own, expected != null ? expected : ownMoves.get(0), 1);
+					NextMove.this.ponderDepth = NextMove.this.completedDepth;
+					NextMove.this.ponderScore = NextMove.this.completedScore;
+					NextMove.this.ponderBest = best;
+				} finally{
+					NextMove.this.pondering = false;
+				}
+			}
+		});
+	}
+
+	/**
+	 * Stops pondering and shuts down the thread it runs on, which is started again if this mover ponders later.
+	 */
+	@Override
+	public void removed(){
+		stopPondering();
+		ExecutorService executor = this.ponderExecutor;
+		if (executor != null){
+			executor.shutdown();
+			this.ponderExecutor = null;
+		}
+	}
+
+	/**
+	 * Has this mover play endgames found in tablebase perfectly, without searching.
+	 *
+	 * @param tablebase
+	 *            the tablebase to consult before each move, or null to always search
+	 */
+	public void setTablebase(Tablebase tablebase){
+		this.tablebase = tablebase;
+	}
+
+	/**
+	 * @param table
+	 *            the table of search results to use, which may be shared with other movers and analyzers and may be
+	 *            persistent, or null to search without one
+	 */
+	public void setTranspositionTable(TranspositionTable table){
+		this.table = table;
+	}
+
+	/**
+	 * @param maxDepth
+	 *            the deepest iteration to search, however much time remains
+	 */
+	public void setMaxDepth(int maxDepth){
+		this.maxDepth = Math.max(1, Math.min(maxDepth, MoveRanker.MAX_PLY - 1));
+	}
+
+	/**
+	 * Has this mover look for a forced mate within moves moves before each move, within the move's time budget, and play
+	 * it if one is found.
+	 *
+	 * @param solver
+	 *            the solver to use, or null to stop looking for mates
+	 */
+	public void setMateSolver(MateSolver solver, int moves){
+		this.mateSolver = solver;
+		this.mateMoves = moves;
+	}
+
+	@Override
+	public String toString(){
+		return "Next Move";
+	}
+
+	/**
+	 * @return the move of the game's current position that moves the same piece to the same location as move, which
+	 *         may belong to a copy of the game's board. null if there is no such move.
+	 */
+	protected Move toGameMove(Move move){
+		if (move == null) return null;
+		return find(this.game.getAllCurrentMoves(), move);
+	}
+
+	/**
+	 * @return the move of moves that moves the same piece to the same location as like, or null if there is none.
+	 */
+	private static Move find(List<Move> moves, Move like){
+		if (like == null) return null;
+		for (Move move : moves){
+			if (sameSquares(move, like)) return move;
+		}
+		return null;
+	}
+
+	private static boolean sameSquares(Move a, Move b){
+		return a.getOldLocation().equals(b.getOldLocation()) && a.getNewLocation().equals(b.getNewLocation());
+	}
+
+	/**
+	 * Searches board with increasing depth from firstDepth until it is time to stop.
+	 *
+	 * @param best
+	 *            the move to search first
+	 * @return the best move of the deepest search, or of the abandoned search if it found one
+	 */
+	private Move deepen(Board board, Player turn, Move best, int firstDepth){
+		this.nodes = 0;
+		this.completedDepth = firstDepth - 1;
+		for (int depth = firstDepth; depth <= this.maxDepth; depth++){
+			this.iterationBest = null;
+			try{
+				search(board, turn, depth, 0, -QuiescenceScorer.KING_CAPTURE, QuiescenceScorer.KING_CAPTURE, best);
+			} catch (SearchAborted e){
+				if (this.iterationBest != null) best = this.iterationBest;
+				break;
+			}
+			best = this.iterationBest;
+			this.completedDepth = depth;
+			this.completedScore = this.iterationScore;
+			this.principalVariation = new ArrayList<>(Arrays.asList(this.pv[0]).subList(0, this.pvLength[0]));
+			if (isSoftStop() || Math.abs(this.iterationScore) >= MATE - this.maxDepth) break;
+		}
+		return best;
+	}
+
+	/**
+	 * @return score, stored in the table as a distance to mate from the current position rather than from the root.
+	 */
+	private static int toTable(int score, int ply){
+		if (score >= MATE - MoveRanker.MAX_PLY) return score + ply;
+		if (score <= -(MATE - MoveRanker.MAX_PLY)) return score - ply;
+		return score;
+	}
+
+	private static int fromTable(int score, int ply){
+		if (score >= MATE - MoveRanker.MAX_PLY) return score - ply;
+		if (score <= -(MATE - MoveRanker.MAX_PLY)) return score + ply;
+		return score;
+	}
+
+	private boolean isHardStop(){
+		return this.pondering ? this.ponderStopped : isHardDeadlinePassed();
+	}
+
+	private boolean isSoftStop(){
+		return this.pondering ? this.ponderStopped : isSoftDeadlinePassed();
+	}
+
+	/**
+	 * Searches board to depth, recording the best move at the root in iterationBest.
+	 *
+	 * @param hashMove
+	 *            a move to search first, or null to take the table's best move
+	 * @return the score of board from toMove's point of view
+	 */
+	private int search(Board board, Player toMove, int depth, int ply, int alpha, int beta, Move hashMove){
+		this.pvLength[ply] = ply;
+		if (depth <= 0) return this.scorer.score(board, toMove, alpha, beta);
+		if (isHardStop()) throw ABORTED;
+		this.nodes++;
+		long key = board.getHash(toMove);
+		int firstMove = hashMove == null ? MoveRanker.NO_MOVE : hashMove.getCode();
+		if (this.table != null){
+			long entry = this.table.probe(key);
+			if (entry != TranspositionTable.MISSING){
+				if (ply > 0 && TranspositionTable.getDepth(entry) >= depth){
+					int score = fromTable(TranspositionTable.getScore(entry), ply);
+					int bound = TranspositionTable.getBound(entry);
+					if (bound == TranspositionTable.EXACT
+							|| bound == TranspositionTable.LOWER && score >= beta
+							|| bound == TranspositionTable.UPPER && score <= alpha) return score;
+				}
+				if (firstMove == MoveRanker.NO_MOVE) firstMove = TranspositionTable.getMove(entry);
+			}
+		}
+		List<Move> moves = board.getMoves(toMove);
+		if (moves.isEmpty()) return board.isCheck(toMove) ? -(MATE - ply) : 0;
+		this.ranker.rank(moves, ply, firstMove);
+		Player opponent = toMove.next();
+		int best = -QuiescenceScorer.KING_CAPTURE;
+		int bestMove = MoveRanker.NO_MOVE;
+		int originalAlpha = alpha;
+		for (Move move = this.ranker.next(ply); move != null; move = this.ranker.next(ply)){
+			if (ply == 0 && find(this.excluded, move) != null) continue;
+			board.execute(move, getPromotion());
+			int score = -search(board, opponent, depth - 1, ply + 1, -beta, -alpha, null);
+			board.undo(move);
+			if (score > best){
+				best = score;
+				bestMove = move.getCode();
+				if (ply == 0){
+					this.iterationBest = move;
+					this.iterationScore = score;
+				}
+				if (score > alpha){
+					alpha = score;
+					updatePrincipalVariation(move, ply);
+					if (score >= beta){
+						this.ranker.cutoff(move, ply, depth);
+						break;
+					}
+				}
+			}
+		}
+		if (this.table != null && (ply > 0 || this.excluded.isEmpty())){
+			int bound = best >= beta ? TranspositionTable.LOWER : best > originalAlpha ? TranspositionTable.EXACT
+					: TranspositionTable.UPPER;
+			this.table.store(key, depth, toTable(best, ply), bound, bestMove);
+		}
+		return best;
+	}
+
+	/**
+	 * Waits for pondering, if any, to stop.
+	 */
+	private void stopPondering(){
+		Future<?> task = this.ponderTask;
+		if (task == null) return;
+		this.ponderStopped = true;
+		try{
+			task.get();
+		} catch (InterruptedException e){
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e){
+			e.printStackTrace();
+		}
+		this.ponderTask = null;
+	}
+
+	/**
+	 * Makes the principal variation at ply move followed by the principal variation of the next ply.
+	 */
+	private void updatePrincipalVariation(Move move, int ply){
+		Move[] line = this.pv[ply];
+		line[ply] = move;
+		int next = ply + 1;
+		int length = this.pvLength[next];
+		System.arraycopy(this.pv[next], next, line, next, length - next);
+		this.pvLength[ply] = length;
+	}
+
+	/**
+	 * Orders the moves of each ply of a search so that the moves most likely to cause a cutoff are tried first: the
+	 * hash move, then captures by most valuable victim / least valuable attacker, then killer moves, then the remaining
+	 * quiet moves by their history score. Scores are kept in arrays parallel to the moves being ranked, and moves are
+	 * picked lazily by selection, so ranking does not allocate.
+	 */
+	static class MoveRanker{
+		static final int MAX_MOVES = 256;
+		static final int MAX_PLY = 64;
+		static final int NO_MOVE = -1;
+		private static final int HASH_SCORE = 1 << 30;
+		private static final int CAPTURE_SCORE = 1 << 29;
+		private static final int KILLER_SCORE = 1 << 28;
+		private static final int HISTORY_LIMIT = KILLER_SCORE - 1;
+		/**
+		 * Victim values indexed by PieceType ordinal.
+		 */
+		private static final int[] VICTIM_VALUE = new int[PieceType.values().length];
+		static{
+			VICTIM_VALUE[PieceType.KING.ordinal()] = 0;
+			VICTIM_VALUE[PieceType.QUEEN.ordinal()] = 9;
+			VICTIM_VALUE[PieceType.ROOK.ordinal()] = 5;
+			VICTIM_VALUE[PieceType.BISHOP.ordinal()] = 3;
+			VICTIM_VALUE[PieceType.KNIGHT.ordinal()] = 3;
+			VICTIM_VALUE[PieceType.PAWN.ordinal()] = 1;
+		}
+
+		/**
+		 * @return the index of piece in the history table.
+		 */
+		private static int pieceIndex(Piece piece){
+			return piece.getPlayer().ordinal() * PieceType.values().length + piece.getType().ordinal();
+		}
+
+		private final int[] counts = new int[MAX_PLY];
+		private final int[] cursors = new int[MAX_PLY];
+		private final int[][] history = new int[Player.getPlayers().size() * PieceType.values().length][Board.SIZE
+				* Board.SIZE];
+		private final int[][] killers = new int[MAX_PLY][2];
+		private final Move[][] moves = new Move[MAX_PLY][MAX_MOVES];
+		private final int[][] scores = new int[MAX_PLY][MAX_MOVES];
+
+		MoveRanker(){
+			clear();
+		}
+
+		/**
+		 * Forgets all killer moves and history scores.
+		 */
+		void clear(){
+			for (int[] plyKillers : this.killers){
+				plyKillers[0] = NO_MOVE;
+				plyKillers[1] = NO_MOVE;
+			}
+			for (int[] pieceHistory : this.history){
+				for (int i = 0; i < pieceHistory.length; i++)
+					pieceHistory[i] = 0;
+			}
+		}
+
+		/**
+		 * Records that move caused a beta cutoff at ply, searched to depth. Captures are already ordered well and are
+		 * not recorded.
+		 */
+		void cutoff(Move move, int ply, int depth){
+			if (move.getCaptured() != null) return;
+			int code = move.getCode();
+			int[] plyKillers = this.killers[ply];
+			if (plyKillers[0] != code){
+				plyKillers[1] = plyKillers[0];
+				plyKillers[0] = code;
+			}
+			int[] pieceHistory = this.history[pieceIndex(move.getMoving())];
+			int to = move.getNewLocation().getSquare();
+			pieceHistory[to] += depth * depth;
+			if (pieceHistory[to] > HISTORY_LIMIT) ageHistory();
+		}
+
+		/**
+		 * @return the best ranked move at ply not yet returned, or null if all moves have been returned.
+		 */
+		Move next(int ply){
+			int cursor = this.cursors[ply];
+			int count = this.counts[ply];
+			if (cursor >= count) return null;
+			Move[] plyMoves = this.moves[ply];
+			int[] plyScores = this.scores[ply];
+			int best = cursor;
+			for (int i = cursor + 1; i < count; i++){
+				if (plyScores[i] > plyScores[best]) best = i;
+			}
+			Move move = plyMoves[best];
+			plyMoves[best] = plyMoves[cursor];
+			plyScores[best] = plyScores[cursor];
+			plyMoves[cursor] = null;
+			this.cursors[ply] = cursor + 1;
+			return move;
+		}
+
+		/**
+		 * Scores toRank for retrieval through {@link #next(int)}. Any moves not yet retrieved at ply are discarded.
+		 *
+		 * @param hashMove
+		 *            the {@link Move#getCode() code} of the best move from a previous search of this position, or
+		 *            {@link #NO_MOVE}
+		 * @return the number of moves ranked
+		 */
+		int rank(List<Move> toRank, int ply, int hashMove){
+			Move[] plyMoves = this.moves[ply];
+			int[] plyScores = this.scores[ply];
+			int[] plyKillers = this.killers[ply];
+			for (int i = this.cursors[ply]; i < this.counts[ply]; i++)
+				plyMoves[i] = null;
+			int count = 0;
+			for (Move move : toRank){
+				if (count == MAX_MOVES) break;
+				plyMoves[count] = move;
+				plyScores[count] = score(move, hashMove, plyKillers);
+				count++;
+			}
+			this.counts[ply] = count;
+			this.cursors[ply] = 0;
+			return count;
+		}
+
+		private void ageHistory(){
+			for (int[] pieceHistory : this.history){
+				for (int i = 0; i < pieceHistory.length; i++)
+					pieceHistory[i] >>= 1;
+			}
+		}
 
-		@Override
-		public int compare(Move o1, Move o2){
-			
-			return 0;
+		private int score(Move move, int hashMove, int[] plyKillers){
+			int code = move.getCode();
+			if (code == hashMove) return HASH_SCORE;
+			Piece captured = move.getCaptured();
+			Piece moving = move.getMoving();
+			if (captured != null || move.promotesPiece()){
+				int victim = captured == null ? 0 : VICTIM_VALUE[captured.getType().ordinal()];
+				if (move.promotesPiece()) victim += VICTIM_VALUE[PieceType.QUEEN.ordinal()];
+				return CAPTURE_SCORE + victim * 16 - VICTIM_VALUE[moving.getType().ordinal()];
+			}
+			if (code == plyKillers[0]) return KILLER_SCORE + 1;
+			if (code == plyKillers[1]) return KILLER_SCORE;
+			return this.history[pieceIndex(moving)][move.getNewLocation().getSquare()];
 		}
-		
 	}
 }
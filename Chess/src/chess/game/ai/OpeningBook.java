@@ -0,0 +1,201 @@
+package chess.game.ai;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+import chess.game.Board;
+import chess.game.Board.Move;
+import chess.game.Player;
+
+/**
+ * A book of opening moves, read from a file of records sorted by position hash and mapped into memory. Probes find a
+ * position's moves by binary search with absolute reads from the mapping, and choose one at random in proportion to
+ * the weights of the moves, so they allocate nothing and may be made from any number of threads and games sharing one
+ * book.
+ * <p>
+ * The file starts with a 16-byte header: int magic ("JCOB"), version, number of records, and a reserved int. Each
+ * record is 12 bytes: long position hash ({@link Board#getHash(Player)}), short move (the square index it moves from
+ * times 64 plus the square index it moves to), and unsigned short weight. Books are written by {@link Builder}.
+ */
+public class OpeningBook{
+	public static final int MAGIC = 0x4A434F42;
+	public static final int VERSION = 1;
+	/**
+	 * Returned by probes when the position is not in the book.
+	 */
+	public static final int NO_MOVE = -1;
+	private static final int HEADER_BYTES = 16, RECORD_BYTES = 12, MAX_WEIGHT = 0xFFFF;
+	
+	/**
+	 * Maps the book in the file at path.
+	 *
+	 * @throws IOException
+	 *             if the file cannot be mapped or is not a book
+	 */
+	public static OpeningBook open(Path path) throws IOException{
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)){
+			long size = channel.size();
+			if (size < HEADER_BYTES || size > Integer.MAX_VALUE) throw new IOException(path + " is not a book");
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) throw new IOException(path
+					+ " is not a book of version "
+					+ VERSION);
+			int count = buffer.getInt(8);
+			if (HEADER_BYTES + (long)count * RECORD_BYTES != size) throw new IOException(path + " is truncated");
+			return new OpeningBook(buffer, count);
+		}
+	}
+	
+	private final ByteBuffer buffer;
+	private final int count;
+	
+	private OpeningBook(ByteBuffer buffer, int count){
+		this.buffer = buffer;
+		this.count = count;
+	}
+	
+	/**
+	 * @return the number of records in the book.
+	 */
+	public int getSize(){
+		return this.count;
+	}
+	
+	/**
+	 * @return a move of the position with hash chosen at random by weight, or {@link #NO_MOVE}
+	 */
+	public int probe(long hash){
+		return probe(hash, ThreadLocalRandom.current());
+	}
+	
+	/**
+	 * @return a move of the position with hash chosen by weight with random, or {@link #NO_MOVE}
+	 */
+	public int probe(long hash, Random random){
+		int first = lowerBound(hash);
+		int total = 0, end = first;
+		for (; end < this.count && hash(end) == hash; end++)
+			total += weight(end);
+		if (end == first) return NO_MOVE;
+		if (total == 0) return move(first);
+		int pick = random.nextInt(total);
+		for (int i = first; i < end; i++){
+			pick -= weight(i);
+			if (pick < 0) return move(i);
+		}
+		return move(end - 1);
+	}
+	
+	/**
+	 * @return a move of toMove's position on board chosen at random by weight, or {@link #NO_MOVE}
+	 */
+	public int probe(Board board, Player toMove){
+		return probe(board.getHash(toMove));
+	}
+	
+	@Override
+	public String toString(){
+		return "Opening book of " + this.count + " moves";
+	}
+	
+	private long hash(int record){
+		return this.buffer.getLong(HEADER_BYTES + record * RECORD_BYTES);
+	}
+	
+	/**
+	 * @return the first record whose hash is not less than hash.
+	 */
+	private int lowerBound(long hash){
+		int low = 0, high = this.count;
+		while (low < high){
+			int middle = (low + high) >>> 1;
+			if (hash(middle) < hash) low = middle + 1;
+			else high = middle;
+		}
+		return low;
+	}
+	
+	private int move(int record){
+		return this.buffer.getShort(HEADER_BYTES + record * RECORD_BYTES + 8);
+	}
+	
+	private int weight(int record){
+		return this.buffer.getShort(HEADER_BYTES + record * RECORD_BYTES + 10) & MAX_WEIGHT;
+	}
+	
+	/**
+	 * Collects weighted moves and writes them as a book. Weights added for the same move of the same position are
+	 * summed.
+	 */
+	public static class Builder{
+		private int count;
+		private long[] hashes = new long[1024];
+		private int[] moves = new int[1024], weights = new int[1024];
+		
+		/**
+		 * Adds move of toMove's position on board.
+		 */
+		public void add(Board board, Player toMove, Move move, int weight){
+			add(board.getHash(toMove), move.getCode(), weight);
+		}
+		
+		/**
+		 * @param move
+		 *            the move, encoded as by {@link Move#getCode()}
+		 */
+		public void add(long hash, int move, int weight){
+			if (weight < 0) throw new IllegalArgumentException("Negative weight " + weight);
+			if (this.count == this.hashes.length){
+				this.hashes = Arrays.copyOf(this.hashes, 2 * this.count);
+				this.moves = Arrays.copyOf(this.moves, 2 * this.count);
+				this.weights = Arrays.copyOf(this.weights, 2 * this.count);
+			}
+			this.hashes[this.count] = hash;
+			this.moves[this.count] = move;
+			this.weights[this.count++] = weight;
+		}
+		
+		/**
+		 * Writes the moves added so far as a book to the file at path, replacing any file there.
+		 */
+		public void write(Path path) throws IOException{
+			Integer[] order = new Integer[this.count];
+			for (int i = 0; i < this.count; i++)
+				order[i] = i;
+			Arrays.sort(order, new Comparator<Integer>(){
+				@Override
+				public int compare(Integer a, Integer b){
+					int byHash = Long.compare(Builder.this.hashes[a], Builder.this.hashes[b]);
+					return byHash != 0 ? byHash : Integer.compare(Builder.this.moves[a], Builder.this.moves[b]);
+				}
+			});
+			ByteBuffer records = ByteBuffer.allocate(HEADER_BYTES + this.count * RECORD_BYTES);
+			records.position(HEADER_BYTES);
+			int written = 0;
+			for (int k = 0; k < this.count;){
+				int i = order[k];
+				long weight = 0;
+				for (; k < this.count && this.hashes[order[k]] == this.hashes[i] && this.moves[order[k]] == this.moves[i]; k++)
+					weight += this.weights[order[k]];
+				records.putLong(this.hashes[i]).putShort((short)this.moves[i]).putShort((short)Math.min(weight, MAX_WEIGHT));
+				written++;
+			}
+			records.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, written).putInt(12, 0);
+			records.flip();
+			try (FileChannel channel = FileChannel.open(path,
+														StandardOpenOption.CREATE,
+														StandardOpenOption.TRUNCATE_EXISTING,
+														StandardOpenOption.WRITE)){
+				while (records.hasRemaining())
+					channel.write(records);
+			}
+		}
+	}
+}
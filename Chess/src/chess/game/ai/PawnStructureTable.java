@@ -0,0 +1,153 @@
+package chess.game.ai;
+
+import chess.game.Board;
+import chess.game.Location;
+import chess.game.Piece;
+import chess.game.PieceType;
+import chess.game.Player;
+
+/**
+ * Scores doubled, isolated and passed pawns, caching the terms in a fixed-size table keyed by the board's pawn hash.
+ * Pawns move far less often than other pieces, so most positions of a search find their pawn structure already scored.
+ * Each hash maps to a single slot, and storing replaces whatever the slot held. Terms are in centipawns from White's
+ * point of view.
+ */
+public class PawnStructureTable{
+	public static final int DOUBLED_PENALTY = 12;
+	public static final int ISOLATED_PENALTY = 10;
+	/**
+	 * Bonus for a passed pawn, indexed by the number of rows it has advanced.
+	 */
+	private static final int[] PASSED_BONUS = {0, 5, 10, 20, 35, 60, 100, 0};
+	
+	/**
+	 * @return if no opposing pawn stands ahead of the pawn at loc on its own or an adjacent column.
+	 */
+	private static boolean isPassed(Board board, Player player, Location loc){
+		int step = player.forward.translate(loc).row - loc.row;
+		for (int row = loc.row + step; row >= 0 && row < Board.SIZE; row += step){
+			for (int column = Math.max(0, loc.column - 1); column <= Math.min(Board.SIZE - 1, loc.column + 1); column++){
+				Piece piece = board.getPiece(new Location(row, column));
+				if (piece != null && piece.getType() == PieceType.PAWN && piece.getPlayer() != player) return false;
+			}
+		}
+		return true;
+	}
+	
+	private final int[] doubled, isolated, passed;
+	private final long[] keys;
+	private final int mask;
+	private final boolean[] valid;
+	private long hits, probes;
+	
+	/**
+	 * @param bits
+	 *            the base 2 logarithm of the number of entries
+	 */
+	public PawnStructureTable(int bits){
+		int size = 1 << bits;
+		this.keys = new long[size];
+		this.valid = new boolean[size];
+		this.doubled = new int[size];
+		this.isolated = new int[size];
+		this.passed = new int[size];
+		this.mask = size - 1;
+	}
+	
+	public void clear(){
+		for (int i = 0; i < this.valid.length; i++)
+			this.valid[i] = false;
+	}
+	
+	/**
+	 * @return the doubled pawn term of board.
+	 */
+	public int getDoubled(Board board){
+		return this.doubled[lookup(board)];
+	}
+	
+	public long getHits(){
+		return this.hits;
+	}
+	
+	/**
+	 * @return the isolated pawn term of board.
+	 */
+	public int getIsolated(Board board){
+		return this.isolated[lookup(board)];
+	}
+	
+	/**
+	 * @return the passed pawn term of board.
+	 */
+	public int getPassed(Board board){
+		return this.passed[lookup(board)];
+	}
+	
+	public long getProbes(){
+		return this.probes;
+	}
+	
+	/**
+	 * @return a description of how often probes have hit.
+	 */
+	public String getStats(){
+		return EvaluationCache.stats(this.hits, this.probes);
+	}
+	
+	/**
+	 * @return the sum of the pawn structure terms of board from player's point of view.
+	 */
+	public int score(Board board, Player player){
+		int i = lookup(board);
+		int score = this.doubled[i] + this.isolated[i] + this.passed[i];
+		return player == Player.WHITE ? score : -score;
+	}
+	
+	@Override
+	public String toString(){
+		return "Pawn structure table " + getStats();
+	}
+	
+	/**
+	 * @return the slot holding the terms of board's pawn structure, scoring it first if it is not in the table.
+	 */
+	private int lookup(Board board){
+		long key = board.getPawnHash();
+		int i = (int)key & this.mask;
+		this.probes++;
+		if (this.valid[i] && this.keys[i] == key){
+			this.hits++;
+			return i;
+		}
+		int[][] files = new int[Player.getPlayers().size()][Board.SIZE];
+		for (Player player : Player.getPlayers()){
+			for (Location loc : board.getPlayerLocations(player)){
+				if (board.getPiece(loc).getType() == PieceType.PAWN) files[player.ordinal()][loc.column]++;
+			}
+		}
+		int doubledTerm = 0, isolatedTerm = 0, passedTerm = 0;
+		for (Player player : Player.getPlayers()){
+			int sign = player == Player.WHITE ? 1 : -1;
+			int[] own = files[player.ordinal()];
+			for (int column = 0; column < Board.SIZE; column++){
+				if (own[column] > 1) doubledTerm -= sign * DOUBLED_PENALTY * (own[column] - 1);
+				boolean left = column > 0 && own[column - 1] > 0;
+				boolean right = column < Board.SIZE - 1 && own[column + 1] > 0;
+				if (own[column] > 0 && !left && !right) isolatedTerm -= sign * ISOLATED_PENALTY * own[column];
+			}
+			for (Location loc : board.getPlayerLocations(player)){
+				if (board.getPiece(loc).getType() == PieceType.PAWN && isPassed(board, player, loc)){
+					int advanced = player == Player.WHITE ? Board.SIZE - 1 - loc.row : loc.row;
+					passedTerm += sign * PASSED_BONUS[advanced];
+				}
+			}
+		}
+		this.keys[i] = key;
+		this.valid[i] = true;
+		this.doubled[i] = doubledTerm;
+		this.isolated[i] = isolatedTerm;
+		this.passed[i] = passedTerm;
+		return i;
+	}
+}
@@ -0,0 +1,169 @@
+package chess.game.ai;
+
+import java.util.List;
+
+import chess.game.Board;
+import chess.game.Board.Move;
+import chess.game.Game;
+import chess.game.Piece;
+import chess.game.PieceType;
+import chess.game.Player;
+
+/**
+ * Scores a position by playing out captures and promotions until the position is quiet, so that a score is never
+ * taken in the middle of an exchange. Scores are in centipawns from the point of view of the player to move.
+ */
+public class QuiescenceScorer{
+	/**
+	 * The score of a position in which the player to move can capture the opposing king.
+	 */
+	public static final int KING_CAPTURE = 100000;
+	/**
+	 * How far a capture may fall short of alpha and still be searched.
+	 */
+	private static final int DELTA_MARGIN = 200;
+	private static final int MAX_PLY = 32;
+	/**
+	 * Piece values in centipawns, indexed by PieceType ordinal.
+	 */
+	private static final int[] VALUES = new int[PieceType.values().length];
+	static{
+		VALUES[PieceType.KING.ordinal()] = 0;
+		VALUES[PieceType.QUEEN.ordinal()] = 900;
+		VALUES[PieceType.ROOK.ordinal()] = 500;
+		VALUES[PieceType.BISHOP.ordinal()] = 330;
+		VALUES[PieceType.KNIGHT.ordinal()] = 320;
+		VALUES[PieceType.PAWN.ordinal()] = 100;
+	}
+	
+	public static int getValue(PieceType type){
+		return VALUES[type.ordinal()];
+	}
+	
+	private final EvaluationCache cache;
+	private final Evaluator evaluator;
+	private long nodes;
+	private final PawnStructureTable pawns;
+	
+	public QuiescenceScorer(){
+		this(new PieceSquareEvaluator());
+	}
+	
+	/**
+	 * @param evaluator
+	 *            scores quiet positions. It is attached to each board scored.
+	 */
+	public QuiescenceScorer(Evaluator evaluator){
+		this(evaluator, new EvaluationCache(16), new PawnStructureTable(12));
+	}
+	
+	/**
+	 * @param evaluator
+	 *            scores quiet positions. It is attached to each board scored.
+	 * @param cache
+	 *            caches the scores of quiet positions
+	 * @param pawns
+	 *            scores pawn structure in addition to evaluator, or null if evaluator accounts for pawn structure
+	 */
+	public QuiescenceScorer(Evaluator evaluator, EvaluationCache cache, PawnStructureTable pawns){
+		this.evaluator = evaluator;
+		this.cache = cache;
+		this.pawns = pawns;
+	}
+	
+	/**
+	 * @return the score of board, to which the evaluator must be attached, from toMove's point of view, without
+	 *         searching captures.
+	 */
+	public int evaluate(Board board, Player toMove){
+		long hash = board.getHash(toMove);
+		int score = this.cache.probe(hash);
+		if (score == EvaluationCache.MISSING){
+			score = this.evaluator.evaluate(toMove);
+			if (this.pawns != null) score += this.pawns.score(board, toMove);
+			this.cache.store(hash, score);
+		}
+		return score;
+	}
+	
+	public EvaluationCache getCache(){
+		return this.cache;
+	}
+	
+	public Evaluator getEvaluator(){
+		return this.evaluator;
+	}
+	
+	/**
+	 * @return the number of positions visited by this scorer.
+	 */
+	public long getNodes(){
+		return this.nodes;
+	}
+	
+	public PawnStructureTable getPawns(){
+		return this.pawns;
+	}
+	
+	/**
+	 * @return the hit rates of the evaluation cache and pawn structure table.
+	 */
+	public String getStats(){
+		return this.pawns == null ? this.cache.toString() : this.cache + ", " + this.pawns;
+	}
+	
+	/**
+	 * Scores the current position of game on a private copy of its board.
+	 */
+	public int score(Game game){
+		Player turn = game.getTurn();
+		if (!Player.getPlayers().contains(turn)) return 0;
+		return score(game.copyBoard(), turn, -KING_CAPTURE, KING_CAPTURE);
+	}
+	
+	/**
+	 * Scores board, which must not have listeners that should not see the moves searched, within the window alpha to
+	 * beta. board is left as it was found.
+	 */
+	public int score(Board board, Player toMove, int alpha, int beta){
+		if (this.evaluator.getBoard() != board) this.evaluator.attach(board);
+		return search(board, toMove, alpha, beta, 0);
+	}
+	
+	private int search(Board board, Player toMove, int alpha, int beta, int ply){
+		this.nodes++;
+		int standPat = evaluate(board, toMove);
+		if (standPat >= beta) return standPat;
+		if (ply == MAX_PLY) return standPat;
+		if (standPat + getValue(PieceType.QUEEN) * 2 + DELTA_MARGIN < alpha) return alpha;
+		if (standPat > alpha) alpha = standPat;
+		List<Move> captures = board.getCaptures(toMove);
+		for (Move move : captures){
+			Piece captured = move.getCaptured();
+			if (captured != null && captured.getType() == PieceType.KING) return KING_CAPTURE;
+		}
+		Player opponent = toMove.next();
+		int best = standPat;
+		for (Move move : captures){
+			Piece captured = move.getCaptured();
+			int gain = captured == null ? 0 : getValue(captured.getType());
+			if (move.capturesEnPassant()) gain = getValue(PieceType.PAWN);
+			if (move.promotesPiece()){
+				gain += getValue(PieceType.QUEEN) - getValue(PieceType.PAWN);
+			} else if (standPat + gain + DELTA_MARGIN <= alpha){
+				continue;
+			}
+			board.execute(move, PieceType.QUEEN);
+			int score = -search(board, opponent, -beta, -alpha, ply + 1);
+			board.undo(move);
+			if (score > best){
+				best = score;
+				if (score > alpha){
+					if (score >= beta) break;
+					alpha = score;
+				}
+			}
+		}
+		return best;
+	}
+}
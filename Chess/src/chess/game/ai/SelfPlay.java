@@ -0,0 +1,372 @@
+package chess.game.ai;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import chess.core.HeadlessGame;
+import chess.core.Result;
+import chess.core.TrainingData;
+import chess.core.TrainingDataWriter;
+import chess.game.Board.Move;
+import chess.game.Game;
+import chess.game.Location;
+import chess.game.Mover;
+import chess.game.Player;
+import chess.game.TimeBudget;
+
+/**
+ * Generates training data by self-play. Each thread plays games on a {@link HeadlessGame}, choosing moves with a policy
+ * for each side after a few random moves for variety, and samples positions from them. The samples of a game are
+ * labelled with its result once it ends and written to a {@link TrainingDataWriter} in one batch. Games longer than a
+ * number of plies are drawn.
+ * <p>
+ * The random and capture policies work on the headless game alone. Engine policies mirror the game on a {@link Game}
+ * for a {@link Mover}, since that is what movers search, and label positions with its score if it is a
+ * {@link NextMove}.
+ * <p>
+ * Usage: <code>SelfPlay [-games n] [-threads n] [-time millis] [-plies n] [-random n] [-sample rate] [-block records]
+ * file policy [policy]</code>, where a policy is random, capture or nextmove, and the second, if any, plays black.
+ */
+public class SelfPlay{
+	/**
+	 * Chooses the moves of one side. Each thread has its own policies.
+	 */
+	public interface Policy{
+		/**
+		 * @param moves
+		 *            the count legal moves of game's player to move
+		 * @return one of moves.
+		 */
+		int choose(HeadlessGame game, int[] moves, int count);
+		
+		/**
+		 * @return the score of the position of the last move chosen, for the player to move, or
+		 *         {@link TrainingData#NO_SCORE}.
+		 */
+		int getScore();
+	}
+	
+	/**
+	 * Creates a policy for each thread.
+	 */
+	public interface PolicyFactory{
+		Policy create();
+	}
+	
+	/**
+	 * Plays the moves of a {@link Mover} on a {@link Game} kept in step with the headless game.
+	 */
+	private static class MoverPolicy implements Policy{
+		private final Tournament.MoverFactory factory;
+		private final TimeBudget timeBudget;
+		private HeadlessGame source;
+		private Game game;
+		private Mover mover;
+		/**
+		 * The plies of the headless game played on the game so far.
+		 */
+		private int plies;
+		
+		MoverPolicy(Tournament.MoverFactory factory, TimeBudget timeBudget){
+			this.factory = factory;
+			this.timeBudget = timeBudget;
+		}
+		
+		@Override
+		public int choose(HeadlessGame headless, int[] moves, int count){
+			if (headless != this.source || this.plies > headless.getPlies()){
+				if (this.game != null) this.game.close();
+				this.source = headless;
+				this.game = new Game();
+				this.mover = this.factory.create(this.game);
+				if (this.timeBudget != null) this.mover.setTimeBudget(this.timeBudget);
+				this.plies = 0;
+			}
+			for (; this.plies < headless.getPlies(); this.plies++){
+				int move = headless.getMove(this.plies);
+				this.game.executeMove(location(HeadlessGame.getFrom(move)), location(HeadlessGame.getTo(move)));
+				if (this.game.isPromoting()) this.game.promote(HeadlessGame.getPromotion(move));
+			}
+			Move move = this.mover.findMove();
+			if (move == null) throw new IllegalStateException(this.mover + " chose no move");
+			Location from = move.getOldLocation(), to = move.getNewLocation();
+			return HeadlessGame.encode(from.getSquare(), to.getSquare(), move.promotesPiece() ? this.mover.getPromotion()
+					: null);
+		}
+		
+		@Override
+		public int getScore(){
+			if (!(this.mover instanceof NextMove)) return TrainingData.NO_SCORE;
+			NextMove search = (NextMove)this.mover;
+			return search.getCompletedDepth() == 0 ? TrainingData.NO_SCORE : search.getCompletedScore();
+		}
+		
+		private static Location location(int square){
+			return new Location(square / 8, square % 8);
+		}
+	}
+	
+	public static final int DEFAULT_GAMES = 1000;
+	public static final int DEFAULT_MAX_PLIES = 400;
+	public static final int DEFAULT_RANDOM_PLIES = 8;
+	public static final double DEFAULT_SAMPLE_RATE = 0.25;
+	public static final Policy RANDOM = new Policy(){
+		@Override
+		public int choose(HeadlessGame game, int[] moves, int count){
+			return moves[ThreadLocalRandom.current().nextInt(count)];
+		}
+		
+		@Override
+		public int getScore(){
+			return TrainingData.NO_SCORE;
+		}
+	};
+	public static final Policy CAPTURE = new Policy(){
+		@Override
+		public int choose(HeadlessGame game, int[] moves, int count){
+			Random random = ThreadLocalRandom.current();
+			int captures = 0, chosen = moves[random.nextInt(count)];
+			for (int i = 0; i < count; i++){
+				if (game.getPiece(HeadlessGame.getTo(moves[i])) != null && random.nextInt(++captures) == 0) chosen = moves[i];
+			}
+			return chosen;
+		}
+		
+		@Override
+		public int getScore(){
+			return TrainingData.NO_SCORE;
+		}
+	};
+	private final PolicyFactory white, black;
+	private int games = DEFAULT_GAMES, maxPlies = DEFAULT_MAX_PLIES, randomPlies = DEFAULT_RANDOM_PLIES;
+	private double sampleRate = DEFAULT_SAMPLE_RATE;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private final AtomicLong started = new AtomicLong();
+	private volatile boolean stopped;
+	
+	public static void main(String[] args) throws IOException, InterruptedException{
+		int games = DEFAULT_GAMES, threads = Runtime.getRuntime().availableProcessors(), maxPlies = DEFAULT_MAX_PLIES;
+		int randomPlies = DEFAULT_RANDOM_PLIES, blockRecords = TrainingDataWriter.DEFAULT_BLOCK_RECORDS;
+		double sampleRate = DEFAULT_SAMPLE_RATE;
+		TimeBudget timeBudget = null;
+		int i = 0;
+		try{
+			for (; i < args.length && args[i].startsWith("-"); i += 2){
+				String value = args[i + 1];
+				switch (args[i]){
+				case "-games":
+					games = Integer.parseInt(value);
+					break;
+				case "-threads":
+					threads = Integer.parseInt(value);
+					break;
+				case "-time":
+					timeBudget = TimeBudget.fixed(Long.parseLong(value));
+					break;
+				case "-plies":
+					maxPlies = Integer.parseInt(value);
+					break;
+				case "-random":
+					randomPlies = Integer.parseInt(value);
+					break;
+				case "-sample":
+					sampleRate = Double.parseDouble(value);
+					break;
+				case "-block":
+					blockRecords = Integer.parseInt(value);
+					break;
+				default:
+					throw new IllegalArgumentException("No such option: " + args[i]);
+				}
+			}
+		} catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e){
+			System.err.println(e.getMessage());
+			i = args.length;
+		}
+		if (args.length - i < 2 || args.length - i > 3){
+			System.err.println("Usage: SelfPlay [-games n] [-threads n] [-time millis] [-plies n] [-random n] "
+					+ "[-sample rate] [-block records] file policy [policy]");
+			return;
+		}
+		PolicyFactory white = factory(args[i + 1], timeBudget);
+		SelfPlay selfPlay = new SelfPlay(white, args.length - i == 3 ? factory(args[i + 2], timeBudget) : white);
+		selfPlay.setGames(games);
+		selfPlay.setThreads(threads);
+		selfPlay.setMaxPlies(maxPlies);
+		selfPlay.setRandomPlies(randomPlies);
+		selfPlay.setSampleRate(sampleRate);
+		long start = System.currentTimeMillis();
+		try (TrainingDataWriter writer = new TrainingDataWriter(Paths.get(args[i]), blockRecords)){
+			selfPlay.run(writer);
+			System.out.println(writer.getCount() + " positions from " + games + " games in "
+					+ (System.currentTimeMillis() - start) + " ms");
+		}
+	}
+	
+	/**
+	 * @return the factory of the built in policy called name: random, capture, or nextmove with timeBudget for each
+	 *         move, or its default if null.
+	 */
+	public static PolicyFactory factory(String name, TimeBudget timeBudget){
+		switch (name){
+		case "random":
+			return constant(RANDOM);
+		case "capture":
+			return constant(CAPTURE);
+		default:
+			final Tournament.MoverFactory movers = Tournament.factory(name);
+			final TimeBudget budget = timeBudget;
+			return new PolicyFactory(){
+				@Override
+				public Policy create(){
+					return new MoverPolicy(movers, budget);
+				}
+			};
+		}
+	}
+	
+	/**
+	 * @return a factory of policies that choose moves with the movers of factory, on a game of their own.
+	 */
+	public static PolicyFactory factory(final Tournament.MoverFactory factory){
+		return new PolicyFactory(){
+			@Override
+			public Policy create(){
+				return new MoverPolicy(factory, null);
+			}
+		};
+	}
+	
+	private static PolicyFactory constant(final Policy policy){
+		return new PolicyFactory(){
+			@Override
+			public Policy create(){
+				return policy;
+			}
+		};
+	}
+	
+	private static boolean contains(int[] moves, int count, int move){
+		for (int i = 0; i < count; i++)
+			if (moves[i] == move) return true;
+		return false;
+	}
+	
+	/**
+	 * @return the result of game for the training data, from white's point of view.
+	 */
+	private static int label(HeadlessGame game){
+		if (game.getResult() != Result.CHECKMATE) return TrainingData.DRAW;
+		return game.getWinner() == Player.WHITE ? TrainingData.WHITE_WINS : TrainingData.BLACK_WINS;
+	}
+	
+	public SelfPlay(PolicyFactory white, PolicyFactory black){
+		this.white = white;
+		this.black = black;
+	}
+	
+	/**
+	 * Plays the games on a thread per core, writing their samples to writer, and returns once all have been written.
+	 *
+	 * @throws IOException
+	 *             if writer fails, after the games in play have stopped
+	 * @throws RuntimeException
+	 *             if a game fails, as when a policy chooses an illegal move, after the games in play have stopped
+	 */
+	public void run(final TrainingDataWriter writer) throws IOException, InterruptedException{
+		this.started.set(0);
+		this.stopped = false;
+		final Exception[] failure = new Exception[1];
+		Thread[] workers = new Thread[this.threads];
+		for (int t = 0; t < workers.length; t++){
+			workers[t] = new Thread(new Runnable(){
+				@Override
+				public void run(){
+					try{
+						play(writer);
+					} catch (IOException | RuntimeException e){
+						synchronized (failure){
+							if (failure[0] == null) failure[0] = e;
+						}
+						SelfPlay.this.stopped = true;
+					}
+				}
+			}, "Self-play " + t);
+			workers[t].start();
+		}
+		for (Thread worker : workers)
+			worker.join();
+		synchronized (failure){
+			if (failure[0] instanceof IOException) throw (IOException)failure[0];
+			if (failure[0] != null) throw (RuntimeException)failure[0];
+		}
+	}
+	
+	public void setGames(int games){
+		this.games = games;
+	}
+	
+	/**
+	 * @param maxPlies
+	 *            the plies after which a game is drawn
+	 */
+	public void setMaxPlies(int maxPlies){
+		this.maxPlies = maxPlies;
+	}
+	
+	/**
+	 * @param randomPlies
+	 *            the plies played at random at the start of each game, which are not sampled
+	 */
+	public void setRandomPlies(int randomPlies){
+		this.randomPlies = randomPlies;
+	}
+	
+	/**
+	 * @param sampleRate
+	 *            the chance of each position after the random plies being sampled
+	 */
+	public void setSampleRate(double sampleRate){
+		this.sampleRate = sampleRate;
+	}
+	
+	public void setThreads(int threads){
+		this.threads = threads;
+	}
+	
+	/**
+	 * Plays games until all have been started, writing each game's samples once it ends.
+	 */
+	private void play(TrainingDataWriter writer) throws IOException{
+		Policy[] policies = {this.white.create(), this.black.create()};
+		Random random = ThreadLocalRandom.current();
+		int[] moves = new int[256];
+		byte[] samples = new byte[64 * TrainingData.RECORD_BYTES];
+		while (!this.stopped && this.started.getAndIncrement() < this.games){
+			HeadlessGame game = new HeadlessGame();
+			int sampled = 0;
+			while (game.getTurn() != Player.GAME_OVER && game.getPlies() < this.maxPlies){
+				int count = game.getMoves(moves);
+				boolean opening = game.getPlies() < this.randomPlies;
+				Policy policy = opening ? RANDOM : policies[game.getTurn() == Player.WHITE ? 0 : 1];
+				int move = policy.choose(game, moves, count);
+				if (!opening && random.nextDouble() < this.sampleRate){
+					if ((sampled + 1) * TrainingData.RECORD_BYTES > samples.length) samples = Arrays.copyOf(samples,
+							2 * samples.length);
+					TrainingData.encode(game, move, policy.getScore(), samples, sampled++ * TrainingData.RECORD_BYTES);
+				}
+				if (!contains(moves, count, move)) throw new IllegalArgumentException("Illegal move "
+						+ HeadlessGame.format(move));
+				game.playLegal(move);
+			}
+			int result = label(game);
+			for (int i = 0; i < sampled; i++)
+				TrainingData.setResult(samples, i * TrainingData.RECORD_BYTES, result);
+			writer.write(samples, sampled);
+		}
+	}
+}
@@ -0,0 +1,118 @@
+package chess.game.ai;
+
+/**
+ * A sequential probability ratio test of whether one player is elo0 or elo1 Elo points stronger than another, from the
+ * wins, draws and losses of their games so far. The log-likelihood ratio uses the normal approximation to the mean
+ * score, so it may be checked after every game, and the test ends once the ratio leaves the bounds set by the error
+ * rates alpha, of accepting elo1 when elo0 holds, and beta, of accepting elo0 when elo1 holds.
+ */
+public class Sprt{
+	public enum Decision{
+		/**
+		 * Neither hypothesis can be accepted yet.
+		 */
+		CONTINUE,
+		/**
+		 * The difference is elo0 or less.
+		 */
+		H0,
+		/**
+		 * The difference is elo1 or more.
+		 */
+		H1
+	}
+	
+	/**
+	 * The z value of a two-sided 95% confidence interval.
+	 */
+	private static final double Z_95 = 1.959964;
+	private final double elo0, elo1, lower, upper;
+	
+	public Sprt(double elo0, double elo1, double alpha, double beta){
+		if (!(elo0 < elo1)) throw new IllegalArgumentException("elo0 must be less than elo1");
+		if (!(alpha > 0 && alpha < 1 && beta > 0 && beta < 1)) throw new IllegalArgumentException(
+				"Error rates must be between 0 and 1");
+		this.elo0 = elo0;
+		this.elo1 = elo1;
+		this.lower = Math.log(beta / (1 - alpha));
+		this.upper = Math.log((1 - beta) / alpha);
+	}
+	
+	/**
+	 * @return the Elo difference at which the stronger player expects score points a game.
+	 */
+	public static double elo(double score){
+		return 400 * Math.log10(score / (1 - score));
+	}
+	
+	/**
+	 * @return half the width of the 95% confidence interval of the Elo difference, infinite if it reaches a score of 0
+	 *         or 1.
+	 */
+	public static double eloMargin(int wins, int draws, int losses){
+		int games = wins + draws + losses;
+		if (games == 0) return Double.POSITIVE_INFINITY;
+		double score = score(wins, draws, games);
+		double deviation = Z_95 * Math.sqrt(variance(wins, draws, games) / games);
+		if (score - deviation <= 0 || score + deviation >= 1) return Double.POSITIVE_INFINITY;
+		return (elo(score + deviation) - elo(score - deviation)) / 2;
+	}
+	
+	/**
+	 * @return the score the stronger of two players expects a game when the difference is elo.
+	 */
+	public static double expectedScore(double elo){
+		return 1 / (1 + Math.pow(10, -elo / 400));
+	}
+	
+	private static double score(int wins, int draws, int games){
+		return (wins + draws / 2.0) / games;
+	}
+	
+	private static double variance(int wins, int draws, int games){
+		double score = score(wins, draws, games);
+		return (wins + draws / 4.0) / games - score * score;
+	}
+	
+	public Decision decide(int wins, int draws, int losses){
+		double llr = llr(wins, draws, losses);
+		if (llr <= this.lower) return Decision.H0;
+		if (llr >= this.upper) return Decision.H1;
+		return Decision.CONTINUE;
+	}
+	
+	/**
+	 * @return the log-likelihood ratio of elo1 to elo0. While every game has had the same result, one of them is
+	 *         counted as a draw, since the results would otherwise have no variance.
+	 */
+	public double llr(int wins, int draws, int losses){
+		int games = wins + draws + losses;
+		if (games < 2) return 0;
+		double variance = variance(wins, draws, games);
+		if (variance <= 0){
+			if (wins > 0) return llr(wins - 1, draws + 1, losses);
+			if (losses > 0) return llr(wins, draws + 1, losses - 1);
+			return 0;
+		}
+		double s0 = expectedScore(this.elo0), s1 = expectedScore(this.elo1);
+		return (s1 - s0) * (2 * score(wins, draws, games) - s0 - s1) / (2 * variance / games);
+	}
+	
+	/**
+	 * @return a line giving the test, its log-likelihood ratio and bounds, and its decision.
+	 */
+	public String report(int wins, int draws, int losses){
+		Decision decision = decide(wins, draws, losses);
+		return String.format("%s: LLR %.2f (%.2f, %.2f), %s", this, llr(wins, draws, losses), this.lower, this.upper,
+				decision == Decision.CONTINUE ? "inconclusive" : decision + " accepted");
+	}
+	
+	@Override
+	public String toString(){
+		return String.format("SPRT [%s, %s]", format(this.elo0), format(this.elo1));
+	}
+	
+	private static String format(double elo){
+		return elo == Math.rint(elo) ? String.valueOf((long)elo) : String.valueOf(elo);
+	}
+}
@@ -0,0 +1,270 @@
+package chess.game.ai;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import chess.game.Board;
+import chess.game.Board.Move;
+import chess.game.Game;
+import chess.game.Location;
+import chess.game.PieceType;
+import chess.game.Player;
+
+/**
+ * Answers endgame positions of up to {@link #MAX_PIECES} pieces from the distance-to-mate tables written by
+ * {@link TablebaseGenerator}. Each material signature, such as "KQKR", has its own file of one byte per position,
+ * mapped into memory the first time a position with that material is probed, so a probe is a single indexed read.
+ * Probes may be made from several threads at once.
+ * <p>
+ * A table's name lists the stronger side's king and pieces, then the weaker side's, each side's pieces in the order
+ * Q, R, B, N, P, with White taken as the stronger side when the sides are equal. A table's positions are indexed by
+ * the squares of the pieces in that order, 6 bits each, times 2, plus 1 if the weaker side is to move. The stronger
+ * side plays as White: when it is Black, the rows of the board are reversed. Castling rights are ignored, as is en
+ * passant: positions in which the player to move may capture en passant are never found.
+ * <p>
+ * Probe results are {@link #DRAW}, a positive number n if the player to move mates in n plies, a negative number -(n+1)
+ * if the player to move is mated in n plies, or {@link #NOT_FOUND}.
+ */
+public class Tablebase{
+	public static final int MAGIC = 0x4A435442;
+	public static final int VERSION = 1;
+	public static final int MAX_PIECES = 4;
+	public static final int DRAW = 0;
+	public static final int NOT_FOUND = Integer.MIN_VALUE;
+	static final String EXTENSION = ".jctb";
+	static final int HEADER_BYTES = 16;
+	/**
+	 * Stored for positions that cannot arise, because two pieces share a square, the kings touch, or the player not to
+	 * move is in check.
+	 */
+	static final byte ILLEGAL = Byte.MIN_VALUE;
+	/**
+	 * Pieces other than kings, strongest first.
+	 */
+	private static final String PIECE_ORDER = "QRBNP";
+	
+	/**
+	 * @return the number of plies to mate of a probe result that is a win or a loss.
+	 */
+	public static int getPlies(int value){
+		return value > 0 ? value : -value - 1;
+	}
+	
+	public static boolean isLoss(int value){
+		return value < 0 && value != NOT_FOUND;
+	}
+	
+	public static boolean isWin(int value){
+		return value > 0;
+	}
+	
+	/**
+	 * Orders the pieces of a position as its table does.
+	 *
+	 * @param types
+	 *            the letter of each piece
+	 * @return the position in types of each of the table's pieces, the stronger king first and the weaker king second
+	 */
+	static int[] canonicalOrder(char[] types, boolean[] white, int count){
+		StringBuilder whitePieces = new StringBuilder(), blackPieces = new StringBuilder();
+		int whiteKing = -1, blackKing = -1;
+		for (int i = 0; i < count; i++){
+			if (types[i] == 'K'){
+				if (white[i]) whiteKing = i;
+				else blackKing = i;
+			} else if (white[i]) whitePieces.append(types[i]);
+			else blackPieces.append(types[i]);
+		}
+		boolean whiteStrong = compareSides(sort(whitePieces.toString()), sort(blackPieces.toString())) >= 0;
+		int[] order = new int[count];
+		order[0] = whiteStrong ? whiteKing : blackKing;
+		order[1] = whiteStrong ? blackKing : whiteKing;
+		int next = 2;
+		for (int pass = 0; pass < 2; pass++){
+			boolean side = pass == 0 ? whiteStrong : !whiteStrong;
+			for (int rank = 0; rank < PIECE_ORDER.length(); rank++){
+				for (int i = 0; i < count; i++){
+					if (white[i] == side && types[i] == PIECE_ORDER.charAt(rank)) order[next++] = i;
+				}
+			}
+		}
+		return order;
+	}
+	
+	/**
+	 * @return the index of a position whose pieces stand on squares, with the pieces in order.
+	 */
+	static int index(int[] squares, int[] order, boolean strongToMove){
+		int index = 0;
+		for (int k = order.length - 1; k >= 0; k--)
+			index = index << 6 | squares[order[k]];
+		return index << 1 | (strongToMove ? 0 : 1);
+	}
+	
+	/**
+	 * @return the name of the table of the pieces, given in canonical order.
+	 */
+	static String signature(char[] types, boolean[] white, int[] order){
+		StringBuilder signature = new StringBuilder();
+		boolean strong = white[order[0]];
+		signature.append('K');
+		for (int k = 2; k < order.length; k++)
+			if (white[order[k]] == strong) signature.append(types[order[k]]);
+		signature.append('K');
+		for (int k = 2; k < order.length; k++)
+			if (white[order[k]] != strong) signature.append(types[order[k]]);
+		return signature.toString();
+	}
+	
+	/**
+	 * @return the number of positions in a table of pieces pieces.
+	 */
+	static int size(int pieces){
+		return 2 << 6 * pieces;
+	}
+	
+	private static int compareSides(String a, String b){
+		if (a.length() != b.length()) return a.length() - b.length();
+		for (int i = 0; i < a.length(); i++){
+			int difference = PIECE_ORDER.indexOf(b.charAt(i)) - PIECE_ORDER.indexOf(a.charAt(i));
+			if (difference != 0) return difference;
+		}
+		return 0;
+	}
+	
+	private static String sort(String pieces){
+		StringBuilder sorted = new StringBuilder();
+		for (int rank = 0; rank < PIECE_ORDER.length(); rank++){
+			for (int i = 0; i < pieces.length(); i++)
+				if (pieces.charAt(i) == PIECE_ORDER.charAt(rank)) sorted.append(pieces.charAt(i));
+		}
+		return sorted.toString();
+	}
+	
+	private final Path directory;
+	private final ConcurrentMap<String, ByteBuffer> tables = new ConcurrentHashMap<>();
+	
+	/**
+	 * @param directory
+	 *            the directory holding the table files
+	 */
+	public Tablebase(Path directory){
+		this.directory = directory;
+	}
+	
+	/**
+	 * @return the legal move of toMove on board that leads to the quickest mate, or failing that holds the draw, or
+	 *         failing that delays mate the longest; or null if the position is not in the tablebase.
+	 */
+	public Move bestMove(Board board, Player toMove){
+		if (probe(board, toMove) == NOT_FOUND) return null;
+		Move best = null;
+		int bestRank = Integer.MIN_VALUE;
+		for (Move move : board.getMoves(toMove)){
+			board.execute(move, PieceType.QUEEN);
+			int reply = probe(board, toMove.next());
+			board.undo(move);
+			if (reply == NOT_FOUND) continue;
+			int rank = isLoss(reply) ? 1000 - getPlies(reply) : isWin(reply) ? getPlies(reply) - 1000 : 0;
+			if (rank > bestRank){
+				bestRank = rank;
+				best = move;
+			}
+		}
+		return best;
+	}
+	
+	/**
+	 * @return the directory holding the table files.
+	 */
+	public Path getDirectory(){
+		return this.directory;
+	}
+	
+	/**
+	 * @return the value of board with toMove to move, or {@link #NOT_FOUND} if the position has too many pieces, no
+	 *         table, or a capture en passant for toMove.
+	 * @throws UncheckedIOException
+	 *             if the position's table cannot be read, which is tried again on the next probe
+	 */
+	public int probe(Board board, Player toMove){
+		Set<Location> whites = board.getPlayerLocations(Player.WHITE);
+		Set<Location> blacks = board.getPlayerLocations(Player.BLACK);
+		int count = whites.size() + blacks.size();
+		if (count > MAX_PIECES) return NOT_FOUND;
+		char[] types = new char[count];
+		boolean[] white = new boolean[count];
+		int[] squares = new int[count];
+		boolean whitePawns = false, blackPawns = false;
+		int i = 0;
+		for (Location loc : whites){
+			types[i] = board.getPiece(loc).getType().label;
+			whitePawns |= types[i] == PieceType.PAWN.label;
+			white[i] = true;
+			squares[i++] = loc.getSquare();
+		}
+		for (Location loc : blacks){
+			types[i] = board.getPiece(loc).getType().label;
+			blackPawns |= types[i] == PieceType.PAWN.label;
+			squares[i++] = loc.getSquare();
+		}
+		if (whitePawns && blackPawns){
+			for (Move move : board.getMoves(toMove))
+				if (move.capturesEnPassant()) return NOT_FOUND;
+		}
+		int[] order = canonicalOrder(types, white, count);
+		ByteBuffer table = getTable(signature(types, white, order));
+		if (table == null) return NOT_FOUND;
+		boolean strongWhite = white[order[0]];
+		if (!strongWhite){
+			for (int k = 0; k < count; k++)
+				squares[k] ^= (Board.SIZE - 1) * Board.SIZE;
+		}
+		boolean strongToMove = strongWhite == (toMove == Player.WHITE);
+		byte value = table.get(HEADER_BYTES + index(squares, order, strongToMove));
+		return value == ILLEGAL ? NOT_FOUND : value;
+	}
+	
+	/**
+	 * @return the value of the current position of game. Its board is only copied once its published position has few
+	 *         enough pieces, so probing a game each ply costs nothing until the endgame.
+	 * @see #probe(Board, Player)
+	 */
+	public int probe(Game game){
+		Player turn = game.getTurn();
+		if (!Player.getPlayers().contains(turn) || game.getPosition().getPieceCount() > MAX_PIECES) return NOT_FOUND;
+		return probe(game.copyBoard(), turn);
+	}
+	
+	/**
+	 * @return the mapped table named signature, or null if there is no table file. Only tables that were read are kept,
+	 *         so a table that is written, or mended, later is found by the next probe.
+	 * @throws UncheckedIOException
+	 *             if the file cannot be read or is not a table of this version
+	 */
+	private ByteBuffer getTable(String signature){
+		ByteBuffer table = this.tables.get(signature);
+		if (table != null) return table;
+		Path path = this.directory.resolve(signature + EXTENSION);
+		if (!Files.exists(path)) return null;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)){
+			table = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} catch (IOException e){
+			throw new UncheckedIOException(e);
+		}
+		if (table.capacity() != HEADER_BYTES + size(signature.length())
+				|| table.getInt(0) != MAGIC
+				|| table.getInt(4) != VERSION) throw new UncheckedIOException(new IOException("Not a table of version "
+				+ VERSION + ": " + path));
+		ByteBuffer previous = this.tables.putIfAbsent(signature, table);
+		return previous == null ? table : previous;
+	}
+}
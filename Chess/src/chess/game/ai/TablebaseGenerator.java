@@ -0,0 +1,492 @@
+package chess.game.ai;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes the distance-to-mate tables read by {@link Tablebase}, by retrograde analysis. Every position of a table is
+ * first marked illegal, checkmated, or unresolved. Then each pass n resolves the positions that mate in n plies, having
+ * a move to a position mated in n - 1, or are mated in n plies, having only moves to positions that mate in fewer. What
+ * is unresolved when the passes stop finding positions is drawn. Captures lead into the tables of fewer pieces, and
+ * promotions into the tables with the promoted piece, which are written first. Each pass is split over all cores with a
+ * fork-join pool.
+ * <p>
+ * The generator has its own move generator over square indexes, since it visits every position of a table on every
+ * pass. Usage: <code>TablebaseGenerator directory signature...</code>, for example <code>tables KQK KRK KPK KQKR</code>.
+ */
+public class TablebaseGenerator{
+	private static final int[][] KING_STEPS = {{-1, -1}, {-1, 0}, {-1, 1}, {0, -1}, {0, 1}, {1, -1}, {1, 0}, {1, 1}};
+	private static final int[][] KNIGHT_JUMPS = {{-2, -1}, {-2, 1}, {-1, -2}, {-1, 2}, {1, -2}, {1, 2}, {2, -1}, {2, 1}};
+	private static final int[][] ROOK_RAYS = {{-1, 0}, {0, -1}, {0, 1}, {1, 0}};
+	private static final int[][] BISHOP_RAYS = {{-1, -1}, {-1, 1}, {1, -1}, {1, 1}};
+	private static final int[][] QUEEN_RAYS = KING_STEPS;
+	/**
+	 * Positions per fork-join task.
+	 */
+	private static final int CHUNK = 1 << 15;
+	/**
+	 * The most plies to mate a byte can hold as a loss.
+	 */
+	private static final int MAX_PLIES = -(Byte.MIN_VALUE + 2);
+	/**
+	 * The most squares a piece may move to: a queen's in the centre.
+	 */
+	private static final int MAX_TARGETS = 27;
+	/**
+	 * The letters of the types a pawn may promote to.
+	 */
+	private static final String PROMOTIONS = "QRBN";
+	
+	public static void main(String[] args) throws IOException{
+		if (args.length < 2){
+			System.err.println("Usage: TablebaseGenerator directory signature...");
+			return;
+		}
+		TablebaseGenerator generator = new TablebaseGenerator(Paths.get(args[0]));
+		for (int i = 1; i < args.length; i++){
+			long start = System.currentTimeMillis();
+			Path path = generator.generate(args[i]);
+			System.out.println(path + " (" + (System.currentTimeMillis() - start) + " ms)");
+		}
+	}
+	
+	private static int[][] moves(char type){
+		switch (type){
+		case 'K':
+			return KING_STEPS;
+		case 'N':
+			return KNIGHT_JUMPS;
+		case 'R':
+			return ROOK_RAYS;
+		case 'B':
+			return BISHOP_RAYS;
+		default:
+			return QUEEN_RAYS;
+		}
+	}
+	
+	private final Path directory;
+	private final ForkJoinPool pool;
+	
+	/**
+	 * @param directory
+	 *            the directory to write tables to, and to find already written tables in
+	 */
+	public TablebaseGenerator(Path directory){
+		this(directory, ForkJoinPool.commonPool());
+	}
+	
+	public TablebaseGenerator(Path directory, ForkJoinPool pool){
+		this.directory = directory;
+		this.pool = pool;
+	}
+	
+	/**
+	 * Writes the table of signature, and first any table it depends on, unless they have been written already.
+	 *
+	 * @param signature
+	 *            the pieces of each side, each side's king first, such as "KQKR"
+	 * @return the path of the table
+	 * @throws IllegalArgumentException
+	 *             if signature has pieces other than two kings and up to {@link Tablebase#MAX_PIECES} in all
+	 */
+	public Path generate(String signature) throws IOException{
+		int second = signature.indexOf('K', 1);
+		int count = signature.length();
+		if (!signature.startsWith("K") || second < 0 || count > Tablebase.MAX_PIECES) throw new IllegalArgumentException("Bad signature "
+				+ signature);
+		char[] types = signature.toCharArray();
+		boolean[] white = new boolean[count];
+		for (int i = 0; i < count; i++){
+			if ((i != 0 && i != second) == ("QRBNP".indexOf(types[i]) < 0)) throw new IllegalArgumentException("Bad signature "
+					+ signature);
+			white[i] = i < second;
+		}
+		int[] order = Tablebase.canonicalOrder(types, white, count);
+		Table table = new Table(Tablebase.signature(types, white, order));
+		Path path = this.directory.resolve(table.signature + Tablebase.EXTENSION);
+		if (Files.exists(path)) return path;
+		table.solve();
+		Files.createDirectories(this.directory);
+		Path temporary = this.directory.resolve(table.signature + ".tmp");
+		try (FileChannel channel = FileChannel.open(temporary,
+													StandardOpenOption.CREATE,
+													StandardOpenOption.TRUNCATE_EXISTING,
+													StandardOpenOption.WRITE)){
+			ByteBuffer header = ByteBuffer.allocate(Tablebase.HEADER_BYTES);
+			header.putInt(Tablebase.MAGIC).putInt(Tablebase.VERSION).putInt(count).putInt(0);
+			header.flip();
+			while (header.hasRemaining())
+				channel.write(header);
+			ByteBuffer data = ByteBuffer.wrap(table.values);
+			while (data.hasRemaining())
+				channel.write(data);
+		}
+		Files.move(temporary, path);
+		return path;
+	}
+	
+	/**
+	 * @return the values of the table named signature, writing it first if need be.
+	 */
+	private byte[] load(String signature) throws IOException{
+		Path path = generate(signature);
+		byte[] bytes = Files.readAllBytes(path);
+		byte[] values = new byte[bytes.length - Tablebase.HEADER_BYTES];
+		System.arraycopy(bytes, Tablebase.HEADER_BYTES, values, 0, values.length);
+		return values;
+	}
+	
+	/**
+	 * A table being solved. Pieces are numbered in the table's order: the stronger king, the weaker king, then the other
+	 * pieces. The squares of the pieces and the side to move are decoded from, and encoded to, position indexes as
+	 * described by {@link Tablebase}. The stronger side plays as White, its pawns moving towards row 0.
+	 */
+	private class Table{
+		/**
+		 * A table that a capture, a promotion or both lead into from this one.
+		 */
+		private class Child{
+			private final byte[] values;
+			/**
+			 * The pieces of this table in the order of the child's, the captured piece left out.
+			 */
+			private final int[] order;
+			/**
+			 * If the stronger side of the child is the weaker side of this table, so that the child sees the board
+			 * with its rows reversed.
+			 */
+			private final boolean mirrored;
+			
+			/**
+			 * @param captured
+			 *            the piece captured, or -1
+			 * @param promoted
+			 *            the pawn promoted, or -1
+			 * @param promotion
+			 *            the letter of the type the pawn becomes
+			 */
+			Child(int captured, int promoted, char promotion) throws IOException{
+				int[] remaining = new int[captured < 0 ? Table.this.count : Table.this.count - 1];
+				char[] remainingTypes = new char[remaining.length];
+				boolean[] remainingStrong = new boolean[remaining.length];
+				for (int i = 0, k = 0; i < Table.this.count; i++){
+					if (i == captured) continue;
+					remaining[k] = i;
+					remainingTypes[k] = i == promoted ? promotion : Table.this.types[i];
+					remainingStrong[k++] = Table.this.strong[i];
+				}
+				int[] order = Tablebase.canonicalOrder(remainingTypes, remainingStrong, remaining.length);
+				this.order = new int[order.length];
+				for (int k = 0; k < order.length; k++)
+					this.order[k] = remaining[order[k]];
+				this.mirrored = !Table.this.strong[this.order[0]];
+				this.values = load(Tablebase.signature(remainingTypes, remainingStrong, order));
+				for (byte value : this.values){
+					if (value != Tablebase.ILLEGAL && value != Tablebase.DRAW){
+						Table.this.maxChildPlies = Math.max(Table.this.maxChildPlies, Tablebase.getPlies(value));
+					}
+				}
+			}
+			
+			int value(int[] squares, boolean strongToMove){
+				int index = 0;
+				for (int k = this.order.length - 1; k >= 0; k--)
+					index = index << 6 | (this.mirrored ? squares[this.order[k]] ^ 56 : squares[this.order[k]]);
+				boolean childStrongToMove = strongToMove != this.mirrored;
+				return this.values[index << 1 | (childStrongToMove ? 0 : 1)];
+			}
+		}
+		
+		private final int count;
+		/**
+		 * For each piece that may be captured, the table left after the capture.
+		 */
+		private final Child[] captures;
+		/**
+		 * For each pawn, the table left after it promotes to each of {@link #PROMOTIONS}, indexed by the piece it
+		 * captures plus one, or 0 if none.
+		 */
+		private final Child[][][] promotions;
+		private int maxChildPlies;
+		private final String signature;
+		private final boolean[] strong;
+		private final char[] types;
+		private final byte[] values;
+		
+		Table(String signature) throws IOException{
+			this.signature = signature;
+			this.count = signature.length();
+			this.types = signature.toCharArray();
+			this.strong = new boolean[this.count];
+			int second = signature.indexOf('K', 1);
+			for (int i = 0; i < this.count; i++)
+				this.strong[i] = i < second;
+			// put the weaker king second, as in the table's order
+			this.types[1] = 'K';
+			this.strong[1] = false;
+			for (int i = 1, k = 2; i < this.count; i++){
+				if (i == second) continue;
+				this.types[k] = signature.charAt(i);
+				this.strong[k++] = i < second;
+			}
+			this.values = new byte[Tablebase.size(this.count)];
+			this.captures = new Child[this.count];
+			this.promotions = new Child[this.count][][];
+			for (int captured = 2; captured < this.count; captured++)
+				this.captures[captured] = new Child(captured, -1, 'K');
+			for (int pawn = 2; pawn < this.count; pawn++){
+				if (this.types[pawn] != 'P') continue;
+				this.promotions[pawn] = new Child[PROMOTIONS.length()][this.count + 1];
+				for (int type = 0; type < PROMOTIONS.length(); type++){
+					for (int captured = -1; captured < this.count; captured++){
+						if (captured == -1 || captured >= 2 && this.strong[captured] != this.strong[pawn]){
+							this.promotions[pawn][type][captured + 1] = new Child(captured, pawn, PROMOTIONS.charAt(type));
+						}
+					}
+				}
+			}
+		}
+		
+		/**
+		 * @return if the piece at from attacks to, ignoring the captured piece.
+		 */
+		private boolean attacks(int piece, int to, int[] squares, int captured){
+			int from = squares[piece];
+			int rows = to / 8 - from / 8, columns = to % 8 - from % 8;
+			int absRows = Math.abs(rows), absColumns = Math.abs(columns);
+			switch (this.types[piece]){
+			case 'K':
+				return Math.max(absRows, absColumns) == 1;
+			case 'N':
+				return absRows * absColumns == 2;
+			case 'P':
+				return absColumns == 1 && rows == (this.strong[piece] ? -1 : 1);
+			case 'R':
+				if (rows != 0 && columns != 0) return false;
+				break;
+			case 'B':
+				if (absRows != absColumns) return false;
+				break;
+			default:
+				if (rows != 0 && columns != 0 && absRows != absColumns) return false;
+			}
+			if (from == to) return false;
+			int step = Integer.signum(rows) * 8 + Integer.signum(columns);
+			for (int square = from + step; square != to; square += step){
+				if (occupant(square, squares, captured) >= 0) return false;
+			}
+			return true;
+		}
+		
+		/**
+		 * @return the value of position index in pass, or 0 if it is not resolved in that pass.
+		 */
+		private byte evaluate(int index, int pass, int[] squares, int[] targets){
+			for (int k = 0; k < this.count; k++)
+				squares[k] = index >>> 1 + 6 * k & 63;
+			boolean strongToMove = (index & 1) == 0;
+			if (pass == 0){
+				if (!isLegal(squares, strongToMove)) return Tablebase.ILLEGAL;
+				return !hasMove(squares, strongToMove, targets)
+						&& isAttacked(squares[strongToMove ? 0 : 1], !strongToMove, squares, -1) ? (byte)-1 : 0;
+			}
+			int legal = 0;
+			boolean allWins = true;
+			for (int piece = 0; piece < this.count; piece++){
+				if (this.strong[piece] != strongToMove) continue;
+				int from = squares[piece];
+				boolean pawn = this.types[piece] == 'P';
+				for (int i = targets(piece, squares, targets) - 1; i >= 0; i--){
+					int to = targets[i];
+					int captured = occupant(to, squares, -1);
+					squares[piece] = to;
+					if (!isAttacked(squares[strongToMove ? 0 : 1], !strongToMove, squares, captured)){
+						boolean promotes = pawn && (to < 8 || to >= 56);
+						int first = promotes ? 0 : -1, last = promotes ? PROMOTIONS.length() - 1 : -1;
+						for (int type = first; type <= last; type++){
+							int value = successor(piece, type, captured, squares, !strongToMove);
+							legal++;
+							if (value == -pass){
+								squares[piece] = from;
+								return (byte)pass;
+							}
+							if (value <= 0 || value > pass - 1) allWins = false;
+						}
+					}
+					squares[piece] = from;
+				}
+			}
+			return legal > 0 && allWins ? (byte)-(pass + 1) : 0;
+		}
+		
+		private int encode(int[] squares, boolean strongToMove){
+			int index = 0;
+			for (int k = this.count - 1; k >= 0; k--)
+				index = index << 6 | squares[k];
+			return index << 1 | (strongToMove ? 0 : 1);
+		}
+		
+		private boolean hasMove(int[] squares, boolean strongToMove, int[] targets){
+			for (int piece = 0; piece < this.count; piece++){
+				if (this.strong[piece] != strongToMove) continue;
+				int from = squares[piece];
+				for (int i = targets(piece, squares, targets) - 1; i >= 0; i--){
+					int captured = occupant(targets[i], squares, -1);
+					squares[piece] = targets[i];
+					boolean legal = !isAttacked(squares[strongToMove ? 0 : 1], !strongToMove, squares, captured);
+					squares[piece] = from;
+					if (legal) return true;
+				}
+			}
+			return false;
+		}
+		
+		/**
+		 * @return if square is attacked by a piece of the stronger side, if byStrong, or else the weaker side.
+		 */
+		private boolean isAttacked(int square, boolean byStrong, int[] squares, int captured){
+			for (int piece = 0; piece < this.count; piece++){
+				if (piece != captured && this.strong[piece] == byStrong && attacks(piece, square, squares, captured)) return true;
+			}
+			return false;
+		}
+		
+		private boolean isLegal(int[] squares, boolean strongToMove){
+			for (int i = 0; i < this.count; i++){
+				if (this.types[i] == 'P' && (squares[i] < 8 || squares[i] >= 56)) return false;
+				for (int j = i + 1; j < this.count; j++)
+					if (squares[i] == squares[j]) return false;
+			}
+			return !isAttacked(squares[strongToMove ? 1 : 0], strongToMove, squares, -1);
+		}
+		
+		/**
+		 * @return the piece on square other than ignored, or -1.
+		 */
+		private int occupant(int square, int[] squares, int ignored){
+			for (int piece = 0; piece < this.count; piece++)
+				if (piece != ignored && squares[piece] == square) return piece;
+			return -1;
+		}
+		
+		/**
+		 * Resolves the positions of one pass.
+		 *
+		 * @return the number of positions resolved
+		 */
+		private int pass(final int pass){
+			final AtomicInteger resolved = new AtomicInteger();
+			TablebaseGenerator.this.pool.invoke(new Pass(pass, 0, this.values.length, resolved));
+			return resolved.get();
+		}
+		
+		void solve(){
+			pass(0);
+			for (int pass = 1;; pass++){
+				if (pass > MAX_PLIES) throw new IllegalStateException(this.signature + " has mates too long to store");
+				if (pass(pass) == 0 && pass > this.maxChildPlies) break;
+			}
+		}
+		
+		/**
+		 * @return the value, with strongToMove to move, of the position piece has moved to on squares, capturing
+		 *         captured unless it is -1 and promoting to the type of {@link #PROMOTIONS} at promotion unless it is -1.
+		 */
+		private int successor(int piece, int promotion, int captured, int[] squares, boolean strongToMove){
+			if (promotion >= 0) return this.promotions[piece][promotion][captured + 1].value(squares, strongToMove);
+			if (captured >= 0) return this.captures[captured].value(squares, strongToMove);
+			return this.values[encode(squares, strongToMove)];
+		}
+		
+		/**
+		 * Sets targets to the squares piece may move to, other than those of its own side's pieces and the kings,
+		 * ignoring check.
+		 *
+		 * @return the number of squares set
+		 */
+		private int targets(int piece, int[] squares, int[] targets){
+			int from = squares[piece], count = 0;
+			char type = this.types[piece];
+			if (type == 'P'){
+				int step = this.strong[piece] ? -8 : 8, forward = from + step;
+				if (occupant(forward, squares, -1) < 0){
+					targets[count++] = forward;
+					boolean start = from / 8 == (this.strong[piece] ? 6 : 1);
+					if (start && occupant(forward + step, squares, -1) < 0) targets[count++] = forward + step;
+				}
+				for (int side = -1; side <= 1; side += 2){
+					int column = from % 8 + side;
+					if (column < 0 || column > 7) continue;
+					int captured = occupant(forward + side, squares, -1);
+					if (captured >= 2 && this.strong[captured] != this.strong[piece]) targets[count++] = forward + side;
+				}
+				return count;
+			}
+			boolean slides = type != 'K' && type != 'N';
+			for (int[] direction : moves(type)){
+				int row = from / 8, column = from % 8;
+				while (true){
+					row += direction[0];
+					column += direction[1];
+					if (row < 0 || row > 7 || column < 0 || column > 7) break;
+					int to = row * 8 + column;
+					int captured = occupant(to, squares, -1);
+					if (captured >= 0 && (this.strong[captured] == this.strong[piece] || captured < 2)) break;
+					targets[count++] = to;
+					if (!slides || captured >= 0) break;
+				}
+			}
+			return count;
+		}
+		
+		/**
+		 * Resolves the positions of one range of indexes in one pass, splitting large ranges.
+		 */
+		private class Pass extends RecursiveAction{
+			private static final long serialVersionUID = 1L;
+			private final int from, pass, to;
+			private final AtomicInteger resolved;
+			
+			Pass(int pass, int from, int to, AtomicInteger resolved){
+				this.pass = pass;
+				this.from = from;
+				this.to = to;
+				this.resolved = resolved;
+			}
+			
+			@Override
+			protected void compute(){
+				if (this.to - this.from > CHUNK){
+					int middle = (this.from + this.to) >>> 1;
+					invokeAll(new Pass(this.pass, this.from, middle, this.resolved), new Pass(	this.pass,
+																								middle,
+																								this.to,
+																								this.resolved));
+					return;
+				}
+				int[] squares = new int[Table.this.count];
+				int[] targets = new int[MAX_TARGETS];
+				byte[] values = Table.this.values;
+				int found = 0;
+				for (int index = this.from; index < this.to; index++){
+					if (values[index] != 0) continue;
+					byte value = evaluate(index, this.pass, squares, targets);
+					if (value != 0){
+						values[index] = value;
+						found++;
+					}
+				}
+				this.resolved.addAndGet(found);
+			}
+		}
+	}
+}
@@ -0,0 +1,413 @@
+package chess.game.ai;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import chess.game.Board.Move;
+import chess.game.Game;
+import chess.game.Mover;
+import chess.game.Notation;
+import chess.game.Player;
+import chess.game.TimeBudget;
+
+/**
+ * Plays matches between movers without a display, many games at once, and reports the results. Each pair of entrants
+ * plays every opening twice, once with each colour, round after round until the number of games is reached or, in a
+ * match of two entrants tested by a {@link Sprt}, until the test is decided.
+ * <p>
+ * Games are played on a pool with a thread per core. Each game's movers choose their moves on the thread playing it, so
+ * they do not ponder. A game ends by the rules, by the tablebase if one is set and has the position, or as a draw after
+ * a number of plies. A mover that fails, or chooses no move or an illegal one, loses. The log has a line per game:
+ * its number, the white and black entrants, the result, how it ended, its plies and its moves.
+ * <p>
+ * Usage: <code>Tournament [-games n] [-threads n] [-time millis] [-plies n] [-openings file] [-tablebase directory]
+ * [-sprt elo0 elo1] [-log file] entrant...</code>, where an entrant is random, capture, nextmove, or uci: followed by
+ * the command that runs a UCI engine, such as <code>"uci:java chess.uci.UciEngine"</code>; each thread keeps a process
+ * of its own for each such entrant. An openings file holds an opening a line, as moves from the start such as
+ * <code>e2e4 e7e5</code>.
+ */
+public class Tournament{
+	/**
+	 * Creates an entrant's mover for each game it plays.
+	 */
+	public interface MoverFactory{
+		Mover create(Game game);
+	}
+	
+	/**
+	 * How a game ended, with white's score.
+	 */
+	private static class Outcome{
+		final double score;
+		final String reason, moves;
+		final int plies;
+		
+		Outcome(double score, String reason, int plies, CharSequence moves){
+			this.score = score;
+			this.reason = reason;
+			this.plies = plies;
+			this.moves = moves.toString();
+		}
+		
+		String getResult(){
+			return this.score == 1 ? "1-0" : this.score == 0 ? "0-1" : "1/2-1/2";
+		}
+	}
+	
+	public static final int DEFAULT_GAMES = 1000;
+	public static final int DEFAULT_MAX_PLIES = 400;
+	public static final double DEFAULT_ALPHA = 0.05, DEFAULT_BETA = 0.05;
+	public static final String UCI_PREFIX = "uci:";
+	private static final int WINS = 0, DRAWS = 1, LOSSES = 2;
+	private final List<String> names = new ArrayList<>();
+	private final List<MoverFactory> factories = new ArrayList<>();
+	private int games = DEFAULT_GAMES, maxPlies = DEFAULT_MAX_PLIES;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private List<List<String>> openings = Collections.singletonList(Collections.<String> emptyList());
+	private Sprt sprt;
+	private Tablebase tablebase;
+	private TimeBudget timeBudget;
+	private Path log;
+	/**
+	 * The entrants of each pairing, and its wins, draws and losses for the first of them.
+	 */
+	private int[][] pairs, tallies;
+	private int played;
+	private volatile boolean stopped;
+	private Writer writer;
+	private IOException failure;
+	
+	public static void main(String[] args) throws IOException, InterruptedException{
+		Tournament tournament = new Tournament();
+		try{
+			for (int i = 0; i < args.length; i++){
+				switch (args[i]){
+				case "-games":
+					tournament.setGames(Integer.parseInt(args[++i]));
+					break;
+				case "-threads":
+					tournament.setThreads(Integer.parseInt(args[++i]));
+					break;
+				case "-time":
+					tournament.setTimeBudget(TimeBudget.fixed(Long.parseLong(args[++i])));
+					break;
+				case "-plies":
+					tournament.setMaxPlies(Integer.parseInt(args[++i]));
+					break;
+				case "-openings":
+					tournament.setOpenings(readOpenings(Paths.get(args[++i])));
+					break;
+				case "-tablebase":
+					tournament.setTablebase(new Tablebase(Paths.get(args[++i])));
+					break;
+				case "-sprt":
+					double elo0 = Double.parseDouble(args[++i]);
+					tournament.setSprt(new Sprt(elo0, Double.parseDouble(args[++i]), DEFAULT_ALPHA, DEFAULT_BETA));
+					break;
+				case "-log":
+					tournament.setLog(Paths.get(args[++i]));
+					break;
+				default:
+					tournament.addEntrant(args[i], factory(args[i]));
+				}
+			}
+		} catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e){
+			System.err.println(e.getMessage());
+			tournament = null;
+		}
+		if (tournament == null || tournament.names.size() < 2){
+			System.err.println("Usage: Tournament [-games n] [-threads n] [-time millis] [-plies n] [-openings file] "
+					+ "[-tablebase directory] [-sprt elo0 elo1] [-log file] entrant...");
+			return;
+		}
+		System.out.print(tournament.run());
+	}
+	
+	/**
+	 * @return the factory of the built in entrant called name: random, capture or nextmove, or of an
+	 *         {@link ExternalMover} if name is uci: followed by the engine's command, with an engine per thread.
+	 */
+	public static MoverFactory factory(String name){
+		if (name.startsWith(UCI_PREFIX)){
+			final List<String> command = Arrays.asList(name.substring(UCI_PREFIX.length()).trim().split("\\s+"));
+			final ThreadLocal<ExternalEngine> engines = new ThreadLocal<ExternalEngine>(){
+				@Override
+				protected ExternalEngine initialValue(){
+					return new ExternalEngine(command);
+				}
+			};
+			return new MoverFactory(){
+				@Override
+				public Mover create(Game game){
+					return new ExternalMover(game, engines.get());
+				}
+			};
+		}
+		switch (name){
+		case "random":
+			return new MoverFactory(){
+				@Override
+				public Mover create(Game game){
+					return new RandomMover(game);
+				}
+			};
+		case "capture":
+			return new MoverFactory(){
+				@Override
+				public Mover create(Game game){
+					return new RandomCapture(game);
+				}
+			};
+		case "nextmove":
+			return new MoverFactory(){
+				@Override
+				public Mover create(Game game){
+					return new NextMove(game);
+				}
+			};
+		default:
+			throw new IllegalArgumentException("No such entrant: " + name);
+		}
+	}
+	
+	/**
+	 * Reads openings, one a line, skipping blank lines and lines starting with #.
+	 */
+	public static List<List<String>> readOpenings(Path path) throws IOException{
+		List<List<String>> openings = new ArrayList<>();
+		for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)){
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#")) continue;
+			openings.add(Arrays.asList(line.split("\\s+")));
+		}
+		return openings;
+	}
+	
+	public void addEntrant(String name, MoverFactory factory){
+		this.names.add(name);
+		this.factories.add(factory);
+	}
+	
+	/**
+	 * Plays the tournament, writing the log as games finish.
+	 *
+	 * @return the summary: a line for each pairing, with the test's line for a tested match, then the games played.
+	 * @throws IllegalArgumentException
+	 *             if there are fewer than two entrants, or an opening has a bad move
+	 */
+	public String run() throws IOException, InterruptedException{
+		if (this.names.size() < 2) throw new IllegalArgumentException("A tournament needs two entrants");
+		for (List<String> opening : this.openings){
+			try (Game game = new Game()){
+				Notation.play(game, opening);
+			}
+		}
+		int entrants = this.names.size();
+		this.pairs = new int[entrants * (entrants - 1) / 2][];
+		for (int i = 0, p = 0; i < entrants; i++){
+			for (int j = i + 1; j < entrants; j++)
+				this.pairs[p++] = new int[]{i, j};
+		}
+		this.tallies = new int[this.pairs.length][3];
+		this.played = 0;
+		this.stopped = false;
+		this.failure = null;
+		long start = System.currentTimeMillis();
+		ExecutorService pool = Executors.newFixedThreadPool(this.threads);
+		try (Writer writer = this.log == null ? null : Files.newBufferedWriter(this.log, StandardCharsets.UTF_8)){
+			this.writer = writer;
+			for (int i = 0; i < this.games; i++){
+				final int index = i;
+				pool.execute(new Runnable(){
+					@Override
+					public void run(){
+						if (!Tournament.this.stopped) playGame(index);
+					}
+				});
+			}
+			pool.shutdown();
+			while (!pool.awaitTermination(1, TimeUnit.SECONDS)){
+				// wait for the games in play
+			}
+		} finally{
+			pool.shutdownNow();
+			this.writer = null;
+		}
+		if (this.failure != null) throw this.failure;
+		return summarize(System.currentTimeMillis() - start);
+	}
+	
+	/**
+	 * @param games
+	 *            the most games to play, in all pairings
+	 */
+	public void setGames(int games){
+		this.games = games;
+	}
+	
+	/**
+	 * @param log
+	 *            the file to write a line per game to, or null for none
+	 */
+	public void setLog(Path log){
+		this.log = log;
+	}
+	
+	/**
+	 * @param maxPlies
+	 *            the plies, counting the opening, after which a game is drawn
+	 */
+	public void setMaxPlies(int maxPlies){
+		this.maxPlies = maxPlies;
+	}
+	
+	/**
+	 * @param openings
+	 *            the openings each pairing plays in turn, as moves such as e2e4
+	 */
+	public void setOpenings(List<List<String>> openings){
+		if (openings.isEmpty()) throw new IllegalArgumentException("No openings");
+		this.openings = openings;
+	}
+	
+	/**
+	 * @param sprt
+	 *            the test that ends a match of two entrants once it is decided, or null to play every game
+	 */
+	public void setSprt(Sprt sprt){
+		this.sprt = sprt;
+	}
+	
+	/**
+	 * @param tablebase
+	 *            the tablebase that adjudicates the positions it has, or null
+	 */
+	public void setTablebase(Tablebase tablebase){
+		this.tablebase = tablebase;
+	}
+	
+	public void setThreads(int threads){
+		this.threads = threads;
+	}
+	
+	/**
+	 * @param timeBudget
+	 *            the time given every mover for each move, or null to leave each mover's own
+	 */
+	public void setTimeBudget(TimeBudget timeBudget){
+		this.timeBudget = timeBudget;
+	}
+	
+	private Mover create(int entrant, Game game){
+		Mover mover = this.factories.get(entrant).create(game);
+		if (this.timeBudget != null) mover.setTimeBudget(this.timeBudget);
+		return mover;
+	}
+	
+	private static Outcome ended(Game game, int plies, CharSequence moves){
+		switch (game.getResult()){
+		case CHECKMATE:
+			return new Outcome(game.getResultPlayer() == Player.WHITE ? 1 : 0, "checkmate", plies, moves);
+		case STALEMATE:
+			return new Outcome(0.5, "stalemate", plies, moves);
+		case TIME_FORFEIT:
+			return new Outcome(game.getResultPlayer() == Player.WHITE ? 1 : 0, "time forfeit", plies, moves);
+		default:
+			return new Outcome(0.5, "declared stalemate", plies, moves);
+		}
+	}
+	
+	private Outcome play(int white, int black, List<String> opening){
+		try (Game game = new Game()){
+			Mover[] movers = {create(white, game), create(black, game)};
+			StringBuilder moves = new StringBuilder();
+			for (String move : opening){
+				Notation.play(game, move);
+				if (moves.length() > 0) moves.append(' ');
+				moves.append(move);
+			}
+			int plies = opening.size();
+			while (true){
+				Player turn = game.getTurn();
+				if (turn == Player.GAME_OVER) return ended(game, plies, moves);
+				double win = turn == Player.WHITE ? 1 : 0;
+				if (plies >= this.maxPlies) return new Outcome(0.5, "move limit", plies, moves);
+				if (this.tablebase != null){
+					int value = this.tablebase.probe(game);
+					if (Tablebase.isWin(value)) return new Outcome(win, "tablebase", plies, moves);
+					if (Tablebase.isLoss(value)) return new Outcome(1 - win, "tablebase", plies, moves);
+					if (value == Tablebase.DRAW) return new Outcome(0.5, "tablebase", plies, moves);
+				}
+				Move move;
+				try{
+					move = movers[turn == Player.WHITE ? 0 : 1].call();
+				} catch (RuntimeException e){
+					return new Outcome(1 - win, "error " + e, plies, moves);
+				}
+				if (moves.length() > 0) moves.append(' ');
+				moves.append(Notation.format(move, move.promotesPiece() ? game.getPiece(move.getNewLocation()).getType()
+						: null));
+				plies++;
+			}
+		}
+	}
+	
+	/**
+	 * Plays game index of the schedule: each round has a game per colour per opening per pairing.
+	 */
+	private void playGame(int index){
+		int perPair = this.openings.size() * 2;
+		int pair = index / perPair % this.pairs.length;
+		List<String> opening = this.openings.get(index % perPair / 2);
+		int first = this.pairs[pair][0], second = this.pairs[pair][1];
+		boolean swap = index % 2 == 1;
+		int white = swap ? second : first, black = swap ? first : second;
+		record(index, pair, white, black, play(white, black, opening));
+	}
+	
+	private synchronized void record(int index, int pair, int white, int black, Outcome outcome){
+		int[] tally = this.tallies[pair];
+		double score = white == this.pairs[pair][0] ? outcome.score : 1 - outcome.score;
+		tally[score == 1 ? WINS : score == 0 ? LOSSES : DRAWS]++;
+		this.played++;
+		if (this.writer != null){
+			try{
+				this.writer.write(index + "\t" + this.names.get(white) + "\t" + this.names.get(black) + "\t"
+						+ outcome.getResult() + "\t" + outcome.reason + "\t" + outcome.plies + "\t" + outcome.moves
+						+ System.lineSeparator());
+			} catch (IOException e){
+				this.failure = e;
+				this.stopped = true;
+			}
+		}
+		if (this.sprt != null && this.pairs.length == 1
+				&& this.sprt.decide(tally[WINS], tally[DRAWS], tally[LOSSES]) != Sprt.Decision.CONTINUE) this.stopped = true;
+	}
+	
+	private synchronized String summarize(long millis){
+		StringBuilder summary = new StringBuilder();
+		for (int p = 0; p < this.pairs.length; p++){
+			int[] tally = this.tallies[p];
+			int wins = tally[WINS], draws = tally[DRAWS], losses = tally[LOSSES];
+			int games = wins + draws + losses;
+			double score = games == 0 ? 0.5 : (wins + draws / 2.0) / games;
+			summary.append(String.format("%s vs %s: +%d =%d -%d, %.1f%%, Elo %+.0f +/- %.0f%n",
+					this.names.get(this.pairs[p][0]), this.names.get(this.pairs[p][1]), wins, draws, losses, 100 * score,
+					Sprt.elo(score), Sprt.eloMargin(wins, draws, losses)));
+			if (this.sprt != null && this.pairs.length == 1) summary.append(this.sprt.report(wins, draws, losses)).append(
+					System.lineSeparator());
+		}
+		return summary.append(String.format("%d games in %.1f s%n", this.played, millis / 1000.0)).toString();
+	}
+}
@@ -0,0 +1,214 @@
+package chess.game.ai;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A fixed-size table of search results keyed by position hash, holding for each position the depth searched, the
+ * score, whether the score is exact or a bound, and the best move. The table lives in a ByteBuffer of 16-byte buckets,
+ * which may be a memory-mapped file so that results survive from one run to the next: the file is read through the
+ * page cache as positions are probed, and written back by the operating system as they are stored.
+ * <p>
+ * Several threads may probe and store at once without locking. Each bucket holds the entry's data and the hash XORed
+ * with the data, each written as a single long; a probe that reads halves of two different stores fails the check and
+ * misses. The hit counts are not synchronized, so they are approximate when the table is shared.
+ * <p>
+ * The file starts with a 16-byte header: int magic ("JCTT"), version, base 2 logarithm of the number of buckets, and
+ * a reserved int.
+ */
+public class TranspositionTable implements Closeable{
+	public static final int MAGIC = 0x4A435454;
+	public static final int VERSION = 1;
+	/**
+	 * Returned by {@link #probe(long)} when the hash is not in the table.
+	 */
+	public static final long MISSING = 0;
+	/**
+	 * The score is at least the stored score.
+	 */
+	public static final int LOWER = 1;
+	/**
+	 * The score is at most the stored score.
+	 */
+	public static final int UPPER = 2;
+	public static final int EXACT = LOWER | UPPER;
+	private static final int BUCKET_BYTES = 16, HEADER_BYTES = 16;
+	private static final int MOVE_SHIFT = 32, BOUND_SHIFT = 44, DEPTH_SHIFT = 46;
+	private static final long VALID = 1L << 63;
+	/**
+	 * Stored in place of a best move when there is none; no move has the same from and to square.
+	 */
+	private static final int NO_MOVE = 0;
+	
+	public static int getBound(long entry){
+		return (int)(entry >>> BOUND_SHIFT) & 3;
+	}
+	
+	public static int getDepth(long entry){
+		return (int)(entry >>> DEPTH_SHIFT) & 0xFF;
+	}
+	
+	/**
+	 * @return the best move of entry, encoded as the square index it moves from times 64 plus the square index it moves
+	 *         to, or -1 if there is none.
+	 */
+	public static int getMove(long entry){
+		int move = (int)(entry >>> MOVE_SHIFT) & 0xFFF;
+		return move == NO_MOVE ? -1 : move;
+	}
+	
+	public static int getScore(long entry){
+		return (int)entry;
+	}
+	
+	/**
+	 * Opens the table stored in the file at path, creating the file if it does not exist.
+	 *
+	 * @param bits
+	 *            the base 2 logarithm of the number of buckets
+	 * @throws IOException
+	 *             if the file cannot be mapped, or holds a table of another size or version
+	 */
+	public static TranspositionTable open(Path path, int bits) throws IOException{
+		long size = size(bits);
+		if (size > Integer.MAX_VALUE) throw new IOException("Table too large: " + bits + " bits");
+		try (FileChannel channel = FileChannel.open(path,
+													StandardOpenOption.CREATE,
+													StandardOpenOption.READ,
+													StandardOpenOption.WRITE)){
+			long existing = channel.size();
+			if (existing != 0 && existing != size) throw new IOException(path + " holds a table of another size");
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+			if (existing == 0){
+				buffer.putInt(0, MAGIC);
+				buffer.putInt(4, VERSION);
+				buffer.putInt(8, bits);
+			} else if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getInt(8) != bits){
+				throw new IOException(path + " is not a table file of version " + VERSION);
+			}
+			return new TranspositionTable(buffer, bits);
+		}
+	}
+	
+	private static ByteBuffer allocate(int bits){
+		long size = size(bits);
+		if (size > Integer.MAX_VALUE) throw new IllegalArgumentException("Table too large: " + bits + " bits");
+		return ByteBuffer.allocateDirect((int)size);
+	}
+	
+	/**
+	 * @return the number of bytes of a table of bits bits, header included.
+	 */
+	private static long size(int bits){
+		return HEADER_BYTES + ((long)BUCKET_BYTES << bits);
+	}
+	
+	private final ByteBuffer buffer;
+	private long hits, probes;
+	private final int mask;
+	
+	/**
+	 * Creates a table in memory that lasts as long as the table itself.
+	 *
+	 * @param bits
+	 *            the base 2 logarithm of the number of buckets
+	 * @throws IllegalArgumentException
+	 *             if the table would not fit in a buffer
+	 */
+	public TranspositionTable(int bits){
+		this(allocate(bits), bits);
+	}
+	
+	private TranspositionTable(ByteBuffer buffer, int bits){
+		this.buffer = buffer;
+		this.mask = (1 << bits) - 1;
+	}
+	
+	/**
+	 * Empties the table.
+	 */
+	public void clear(){
+		for (int offset = HEADER_BYTES; offset < this.buffer.capacity(); offset += 8)
+			this.buffer.putLong(offset, 0);
+	}
+	
+	/**
+	 * Writes the stored entries to the table's file, if it has one. Mapped tables are also written back by the
+	 * operating system from time to time, so this is only needed to be sure that nothing is lost.
+	 */
+	public void flush(){
+		if (this.buffer instanceof MappedByteBuffer) ((MappedByteBuffer)this.buffer).force();
+	}
+	
+	/**
+	 * Flushes the table. The mapping itself is released when the table is garbage collected.
+	 */
+	@Override
+	public void close(){
+		flush();
+	}
+	
+	public long getHits(){
+		return this.hits;
+	}
+	
+	public long getProbes(){
+		return this.probes;
+	}
+	
+	/**
+	 * @return a description of how often probes have hit.
+	 */
+	public String getStats(){
+		return EvaluationCache.stats(this.hits, this.probes);
+	}
+	
+	/**
+	 * @return the entry stored for hash, to be read with the static getters, or {@link #MISSING}
+	 */
+	public long probe(long hash){
+		this.probes++;
+		int offset = offset(hash);
+		long check = this.buffer.getLong(offset);
+		long entry = this.buffer.getLong(offset + 8);
+		if (entry == MISSING || (check ^ entry) != hash) return MISSING;
+		this.hits++;
+		return entry;
+	}
+	
+	/**
+	 * Stores a search result for hash, unless the bucket holds a deeper result for the same hash.
+	 *
+	 * @param bound
+	 *            {@link #LOWER}, {@link #UPPER} or {@link #EXACT}
+	 * @param move
+	 *            the best move, encoded as for {@link #getMove(long)}
+	 */
+	public void store(long hash, int depth, int score, int bound, int move){
+		int offset = offset(hash);
+		long check = this.buffer.getLong(offset);
+		long old = this.buffer.getLong(offset + 8);
+		if (old != MISSING && (check ^ old) == hash && getDepth(old) > depth) return;
+		long entry = VALID
+				| (long)Math.min(depth, 0xFF) << DEPTH_SHIFT
+				| (long)bound << BOUND_SHIFT
+				| (long)(move < 0 ? NO_MOVE : move) << MOVE_SHIFT
+				| score & 0xFFFFFFFFL;
+		this.buffer.putLong(offset, hash ^ entry);
+		this.buffer.putLong(offset + 8, entry);
+	}
+	
+	@Override
+	public String toString(){
+		return "Transposition table " + getStats();
+	}
+	
+	private int offset(long hash){
+		return HEADER_BYTES + ((int)hash & this.mask) * BUCKET_BYTES;
+	}
+}
@@ -0,0 +1,468 @@
+package chess.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import chess.game.AnalysisLine;
+import chess.game.Board.Move;
+import chess.game.Game;
+import chess.game.Notation;
+import chess.game.Player;
+import chess.game.TimeBudget;
+import chess.game.TimingWheel;
+import chess.game.ai.NextMove;
+import chess.game.ai.TranspositionTable;
+
+/**
+ * A local HTTP service that answers questions about positions, for front ends that do not run the Swing UI. Positions
+ * are given as the moves played from the start, in {@link Notation}, in the moves parameter or the body of a POST,
+ * separated by spaces or commas. Answers are JSON objects.
+ * <ul>
+ * <li><code>/moves?moves=e2e4+e7e5</code> gives the player to move, whether they are in check, the result and the
+ * legal moves. It is answered at once.</li>
+ * <li><code>/analyze?moves=...&amp;millis=500&amp;lines=1&amp;deadline=5000</code> adds the best lines found by
+ * {@link NextMove} in millis, each with its depth, score for the player to move, and moves.</li>
+ * </ul>
+ * Analyses run on a bounded pool of workers with a bounded queue. Requests for the same analysis while one is queued or
+ * running share it. A request is answered 503 if the queue is full, and 504 if its deadline, in milliseconds from its
+ * arrival, passes before its analysis is done; analyses are cut short to finish by the deadline of the request that
+ * waits longest. Moves that are not legal are answered 400.
+ * <p>
+ * Usage: <code>AnalysisServer [-port n] [-threads n] [-queue n]</code>. The server listens on the loopback address
+ * only.
+ */
+public class AnalysisServer{
+	/**
+	 * An analysis waiting for or running on a worker, and the requests waiting for it.
+	 */
+	private class Job implements Runnable{
+		private final String key;
+		private final List<String> moves;
+		private final int lines;
+		private final long millis;
+		/**
+		 * The latest deadline of the requests waiting, by {@link System#nanoTime()}.
+		 */
+		private final AtomicLong deadline;
+		private final CompletableFuture<String> answer = new CompletableFuture<>();
+		
+		Job(String key, List<String> moves, int lines, long millis, long deadline){
+			this.key = key;
+			this.moves = moves;
+			this.lines = lines;
+			this.millis = millis;
+			this.deadline = new AtomicLong(deadline);
+		}
+		
+		@Override
+		public void run(){
+			try{
+				long left = TimeUnit.NANOSECONDS.toMillis(this.deadline.get() - System.nanoTime()) - MARGIN_MILLIS;
+				if (left <= 0) throw new DeadlineException();
+				this.answer.complete(analyze(this.moves, this.lines, Math.min(this.millis, left)));
+			} catch (RuntimeException e){
+				this.answer.completeExceptionally(e);
+			} finally{
+				AnalysisServer.this.jobs.remove(this.key, this);
+			}
+		}
+		
+		/**
+		 * Adds a request with deadline to those waiting for this job.
+		 */
+		void extend(long deadline){
+			long current;
+			do{
+				current = this.deadline.get();
+			}while(deadline - current > 0 && !this.deadline.compareAndSet(current, deadline));
+		}
+	}
+	
+	/**
+	 * Thrown when a request's deadline passes before its analysis starts.
+	 */
+	private static class DeadlineException extends RuntimeException{
+		private static final long serialVersionUID = 1L;
+	}
+	
+	/**
+	 * One request's exchange, answered once, by its analysis or its deadline, whichever comes first.
+	 */
+	private static class Reply{
+		private final HttpExchange exchange;
+		private final AtomicBoolean sent = new AtomicBoolean();
+		private TimingWheel.Timeout timeout;
+		
+		Reply(HttpExchange exchange){
+			this.exchange = exchange;
+		}
+		
+		void send(int status, String body){
+			if (!this.sent.compareAndSet(false, true)) return;
+			if (this.timeout != null) this.timeout.cancel();
+			try{
+				byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+				this.exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+				if (status == 503) this.exchange.getResponseHeaders().set("Retry-After", "1");
+				this.exchange.sendResponseHeaders(status, bytes.length);
+				try (OutputStream out = this.exchange.getResponseBody()){
+					out.write(bytes);
+				}
+			} catch (IOException e){
+				// the client has gone
+			} finally{
+				this.exchange.close();
+			}
+		}
+	}
+	
+	public static final int DEFAULT_PORT = 8765;
+	public static final int DEFAULT_QUEUE = 64;
+	public static final long DEFAULT_MILLIS = 1000, MAX_MILLIS = 30000;
+	public static final long DEFAULT_DEADLINE_MILLIS = 30000;
+	public static final int MAX_LINES = 8;
+	/**
+	 * Time kept back from a deadline to write the answer.
+	 */
+	private static final long MARGIN_MILLIS = 20;
+	/**
+	 * Threads that read requests and write replies, which do not wait for analyses.
+	 */
+	private static final int HANDLER_THREADS = 2;
+	private final HttpServer server;
+	private final ThreadPoolExecutor handlers, workers;
+	private final ConcurrentMap<String, Job> jobs = new ConcurrentHashMap<>();
+	/**
+	 * Each worker's transposition table, kept from one analysis to the next.
+	 */
+	private final ThreadLocal<TranspositionTable> tables = new ThreadLocal<TranspositionTable>(){
+		@Override
+		protected TranspositionTable initialValue(){
+			return new TranspositionTable(NextMove.DEFAULT_TABLE_BITS);
+		}
+	};
+	
+	public static void main(String[] args) throws IOException{
+		int port = DEFAULT_PORT, threads = Runtime.getRuntime().availableProcessors(), queue = DEFAULT_QUEUE;
+		try{
+			for (int i = 0; i < args.length; i += 2){
+				switch (args[i]){
+				case "-port":
+					port = Integer.parseInt(args[i + 1]);
+					break;
+				case "-threads":
+					threads = Integer.parseInt(args[i + 1]);
+					break;
+				case "-queue":
+					queue = Integer.parseInt(args[i + 1]);
+					break;
+				default:
+					throw new IllegalArgumentException("No such option: " + args[i]);
+				}
+			}
+		} catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e){
+			System.err.println(e.getMessage());
+			System.err.println("Usage: AnalysisServer [-port n] [-threads n] [-queue n]");
+			return;
+		}
+		AnalysisServer server = new AnalysisServer(port, threads, queue);
+		server.start();
+		System.out.println("Listening on http://" + server.getAddress().getHostString() + ":"
+				+ server.getAddress().getPort() + "/");
+	}
+	
+	/**
+	 * Binds the server to port on the loopback address, or to any free port if port is 0.
+	 *
+	 * @param threads
+	 *            the analyses run at once
+	 * @param queue
+	 *            the analyses that may wait for a worker before requests are refused
+	 */
+	public AnalysisServer(int port, int threads, int queue) throws IOException{
+		this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), queue);
+		this.workers = new ThreadPoolExecutor(	threads,
+												threads,
+												0,
+												TimeUnit.SECONDS,
+												new ArrayBlockingQueue<Runnable>(queue),
+												daemons("Analysis "));
+		// exchanges beyond the handlers' queue are handled on the server's own thread, as they were before
+		this.handlers = new ThreadPoolExecutor(	HANDLER_THREADS,
+												HANDLER_THREADS,
+												0,
+												TimeUnit.SECONDS,
+												new ArrayBlockingQueue<Runnable>(queue),
+												daemons("HTTP "),
+												new ThreadPoolExecutor.CallerRunsPolicy());
+		this.server.setExecutor(this.handlers);
+		this.server.createContext("/moves", new HttpHandler(){
+			@Override
+			public void handle(HttpExchange exchange) throws IOException{
+				Reply reply = new Reply(exchange);
+				try{
+					reply.send(200, describe(parseMoves(exchange), null));
+				} catch (IllegalArgumentException e){
+					reply.send(400, error(e.getMessage()));
+				}
+			}
+		});
+		this.server.createContext("/analyze", new HttpHandler(){
+			@Override
+			public void handle(HttpExchange exchange) throws IOException{
+				Reply reply = new Reply(exchange);
+				try{
+					submit(exchange, reply);
+				} catch (IllegalArgumentException e){
+					reply.send(400, error(e.getMessage()));
+				}
+			}
+		});
+	}
+	
+	/**
+	 * @return a factory of daemon threads named prefix and a count.
+	 */
+	private static ThreadFactory daemons(final String prefix){
+		final AtomicInteger count = new AtomicInteger();
+		return new ThreadFactory(){
+			@Override
+			public Thread newThread(Runnable r){
+				Thread thread = new Thread(r, prefix + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+	}
+	
+	/**
+	 * @return a JSON string holding text.
+	 */
+	private static String quote(String text){
+		StringBuilder quoted = new StringBuilder("\"");
+		for (int i = 0; i < text.length(); i++){
+			char c = text.charAt(i);
+			if (c == '"' || c == '\\') quoted.append('\\').append(c);
+			else if (c < ' ') quoted.append(String.format("\\u%04x", (int)c));
+			else quoted.append(c);
+		}
+		return quoted.append('"').toString();
+	}
+	
+	private static String error(String message){
+		return "{\"error\":" + quote(String.valueOf(message)) + "}\n";
+	}
+	
+	private static int intParameter(Map<String, String> parameters, String name, int value, int max){
+		String text = parameters.get(name);
+		if (text == null) return value;
+		try{
+			return Math.max(1, Math.min(max, Integer.parseInt(text)));
+		} catch (NumberFormatException e){
+			throw new IllegalArgumentException("Bad " + name + ": " + text);
+		}
+	}
+	
+	private static Map<String, String> parameters(HttpExchange exchange){
+		Map<String, String> parameters = new HashMap<>();
+		String query = exchange.getRequestURI().getRawQuery();
+		if (query == null) return parameters;
+		try{
+			for (String pair : query.split("&")){
+				int equals = pair.indexOf('=');
+				if (equals < 0) parameters.put(URLDecoder.decode(pair, "UTF-8"), "");
+				else parameters.put(URLDecoder.decode(pair.substring(0, equals), "UTF-8"),
+									URLDecoder.decode(pair.substring(equals + 1), "UTF-8"));
+			}
+		} catch (UnsupportedEncodingException e){
+			throw new AssertionError(e);
+		}
+		return parameters;
+	}
+	
+	/**
+	 * @return the moves of the request, from its moves parameter or else its body.
+	 */
+	private static List<String> parseMoves(HttpExchange exchange) throws IOException{
+		String text = parameters(exchange).get("moves");
+		if (text == null && "POST".equals(exchange.getRequestMethod())){
+			ByteArrayOutputStream body = new ByteArrayOutputStream();
+			try (InputStream in = exchange.getRequestBody()){
+				byte[] buffer = new byte[4096];
+				for (int n = in.read(buffer); n >= 0; n = in.read(buffer)){
+					body.write(buffer, 0, n);
+					if (body.size() > 1 << 16) throw new IllegalArgumentException("Too many moves");
+				}
+			}
+			text = new String(body.toByteArray(), StandardCharsets.UTF_8);
+		}
+		if (text == null || text.trim().isEmpty()) return Collections.emptyList();
+		return Arrays.asList(text.trim().split("[\\s,]+"));
+	}
+	
+	private static List<String> playMoves(Game game, List<String> moves){
+		Notation.play(game, moves);
+		return moves;
+	}
+	
+	/**
+	 * @return the position after moves as a JSON object, with lines, if not null, as its analysis.
+	 * @throws IllegalArgumentException
+	 *             if moves are not legal
+	 */
+	private static String describe(List<String> moves, List<AnalysisLine> lines){
+		try (Game game = new Game()){
+			playMoves(game, moves);
+			return describe(game, moves, lines);
+		}
+	}
+	
+	private static String describe(Game game, List<String> moves, List<AnalysisLine> lines){
+		Player turn = game.getTurn();
+		StringBuilder json = new StringBuilder("{\"position\":").append(quote(join(moves)));
+		json.append(",\"turn\":").append(quote(turn.toString()));
+		json.append(",\"check\":").append(Player.getPlayers().contains(turn) && game.isCheck(turn));
+		json.append(",\"result\":").append(quote(game.getResult().toString()));
+		json.append(",\"moves\":[");
+		String separator = "";
+		for (Move move : game.getAllCurrentMoves()){
+			json.append(separator).append(quote(Notation.format(move)));
+			separator = ",";
+		}
+		json.append(']');
+		if (lines != null){
+			json.append(",\"lines\":[");
+			separator = "";
+			for (AnalysisLine line : lines){
+				json.append(separator).append("{\"depth\":").append(line.getDepth());
+				json.append(",\"score\":").append(line.getScore()).append(",\"pv\":[");
+				String pvSeparator = "";
+				for (Move move : line.getLine()){
+					json.append(pvSeparator).append(quote(Notation.format(move)));
+					pvSeparator = ",";
+				}
+				json.append("]}");
+				separator = ",";
+			}
+			json.append(']');
+		}
+		return json.append("}\n").toString();
+	}
+	
+	private static String join(List<String> moves){
+		StringBuilder joined = new StringBuilder();
+		for (String move : moves)
+			joined.append(joined.length() == 0 ? "" : " ").append(move);
+		return joined.toString();
+	}
+	
+	public InetSocketAddress getAddress(){
+		return this.server.getAddress();
+	}
+	
+	/**
+	 * @return the analyses queued or running.
+	 */
+	public int getPending(){
+		return this.jobs.size();
+	}
+	
+	public void start(){
+		this.server.start();
+	}
+	
+	/**
+	 * Stops accepting requests, and abandons the analyses queued or running.
+	 */
+	public void stop(){
+		this.server.stop(0);
+		this.handlers.shutdownNow();
+		this.workers.shutdownNow();
+	}
+	
+	/**
+	 * @return the answer to an analysis of the position after moves, searched for millis.
+	 */
+	private String analyze(List<String> moves, int lines, long millis){
+		try (Game game = new Game()){
+			playMoves(game, moves);
+			NextMove analyzer = new NextMove(game, this.tables.get());
+			analyzer.setTimeBudget(TimeBudget.fixed(millis));
+			return describe(game, moves, analyzer.analyze(lines, null));
+		}
+	}
+	
+	/**
+	 * Queues the analysis asked for by exchange, or joins the same analysis if it is already queued or running, and
+	 * has reply sent when it is done or the request's deadline passes.
+	 */
+	private void submit(HttpExchange exchange, final Reply reply) throws IOException{
+		Map<String, String> parameters = parameters(exchange);
+		List<String> moves = parseMoves(exchange);
+		try (Game game = new Game()){
+			playMoves(game, moves);
+		}
+		int lines = intParameter(parameters, "lines", 1, MAX_LINES);
+		long millis = intParameter(parameters, "millis", (int)DEFAULT_MILLIS, (int)MAX_MILLIS);
+		long deadlineMillis = intParameter(parameters, "deadline", (int)DEFAULT_DEADLINE_MILLIS, Integer.MAX_VALUE);
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+		String key = join(moves) + "|" + lines + "|" + millis;
+		Job job = new Job(key, moves, lines, millis, deadline);
+		Job existing = this.jobs.putIfAbsent(key, job);
+		if (existing != null){
+			existing.extend(deadline);
+			job = existing;
+		} else{
+			try{
+				this.workers.execute(job);
+			} catch (RejectedExecutionException e){
+				this.jobs.remove(key, job);
+				reply.send(503, error("Busy"));
+				return;
+			}
+		}
+		reply.timeout = TimingWheel.getShared().schedule(new Runnable(){
+			@Override
+			public void run(){
+				reply.send(504, error("Deadline passed"));
+			}
+		}, deadlineMillis, TimeUnit.MILLISECONDS);
+		job.answer.whenComplete(new BiConsumer<String, Throwable>(){
+			@Override
+			public void accept(String answer, Throwable failure){
+				if (failure == null) reply.send(200, answer);
+				else if (failure instanceof DeadlineException || failure.getCause() instanceof DeadlineException) reply.send(	504,
+																																error("Deadline passed"));
+				else reply.send(500, error(failure.toString()));
+			}
+		});
+	}
+}
@@ -0,0 +1,501 @@
+package chess.uci;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import chess.game.AnalysisLine;
+import chess.game.AnalysisListener;
+import chess.game.Board.Move;
+import chess.game.Game;
+import chess.game.Notation;
+import chess.game.Player;
+import chess.game.TimeBudget;
+import chess.game.TimingWheel;
+import chess.game.ai.NextMove;
+import chess.game.ai.TranspositionTable;
+
+/**
+ * Plays {@link NextMove} through the Universal Chess Interface on standard input and output, so that it can be run by
+ * chess GUIs and tournament managers. Positions must be given as moves from the start position; a position given as a
+ * FEN other than the start position is reported as unsupported. When a position extends the last one given, as it
+ * does during a game, only the new moves are played.
+ * <p>
+ * Commands are read on the calling thread and searches run on a thread of their own, so that stop, ponderhit and
+ * isready are answered at once during a search. Each completed iteration of a search is reported as an info line for
+ * each of its lines. Commands are parsed in place rather than split into words.
+ */
+public class UciEngine{
+	/**
+	 * The words of a command, read one at a time without copying them out of the command.
+	 */
+	private static class Tokens{
+		private final String line;
+		private int start, end;
+		
+		Tokens(String line){
+			this.line = line;
+		}
+		
+		/**
+		 * @return if the current word is word.
+		 */
+		boolean is(String word){
+			return this.end - this.start == word.length() && this.line.regionMatches(this.start, word, 0, word.length());
+		}
+		
+		/**
+		 * Moves to the next word.
+		 *
+		 * @return false if there are no more words.
+		 */
+		boolean next(){
+			int i = this.end;
+			while (i < this.line.length() && Character.isWhitespace(this.line.charAt(i)))
+				i++;
+			this.start = i;
+			while (i < this.line.length() && !Character.isWhitespace(this.line.charAt(i)))
+				i++;
+			this.end = i;
+			return this.start < this.end;
+		}
+		
+		/**
+		 * @return the next word as a number, or 0 if it is not one.
+		 */
+		long nextNumber(){
+			if (!next()) return 0;
+			boolean negative = this.line.charAt(this.start) == '-';
+			long value = 0;
+			for (int i = negative ? this.start + 1 : this.start; i < this.end; i++){
+				char c = this.line.charAt(i);
+				if (c < '0' || c > '9') return 0;
+				value = value * 10 + c - '0';
+			}
+			return negative ? -value : value;
+		}
+		
+		int getEnd(){
+			return this.end;
+		}
+		
+		int getStart(){
+			return this.start;
+		}
+		
+		/**
+		 * Moves back to before the word at offset, so that it is read next.
+		 */
+		void reset(int offset){
+			this.start = this.end = offset;
+		}
+		
+		@Override
+		public String toString(){
+			return this.line.substring(this.start, this.end);
+		}
+	}
+	
+	public static final String NAME = "Next Move";
+	public static final String AUTHOR = "jwalkenhorst";
+	public static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+	public static final int DEFAULT_HASH_MB = 1, MAX_HASH_MB = 1024;
+	public static final int MAX_LINES = 8;
+	/**
+	 * The base 2 logarithm of the buckets in a megabyte of table.
+	 */
+	private static final int MB_BITS = 16;
+	private final BufferedReader in;
+	private final Writer out;
+	private final ExecutorService searcher = Executors.newSingleThreadExecutor(new ThreadFactory(){
+		@Override
+		public Thread newThread(Runnable r){
+			Thread thread = new Thread(r, "UCI search");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+	private TranspositionTable table = new TranspositionTable(NextMove.DEFAULT_TABLE_BITS);
+	private Game game;
+	private NextMove engine;
+	private int lines = 1;
+	/**
+	 * The last position command, if the game is in its position, or null.
+	 */
+	private String position;
+	private Future<?> search;
+	/**
+	 * Guards the state of the search in progress that commands change: whether it is waiting for stop or ponderhit
+	 * before it may give its move, whether it is pondering, and its time once a ponder is hit.
+	 */
+	private final Object lock = new Object();
+	private boolean waiting, pondering;
+	private TimeBudget ponderBudget;
+	private long softDeadline;
+	private TimingWheel.Timeout hardStop;
+	/**
+	 * Counts the searches started, so that a late timeout does not stop a later search.
+	 */
+	private int generation;
+	private volatile boolean stopped;
+	
+	public static void main(String[] args) throws IOException{
+		new UciEngine(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.US_ASCII)),
+						new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.US_ASCII))).run();
+	}
+	
+	public UciEngine(BufferedReader in, Writer out){
+		this.in = in;
+		this.out = out;
+		newGame();
+	}
+	
+	/**
+	 * Answers commands until quit or the end of input.
+	 */
+	public void run() throws IOException{
+		try{
+			for (String line = this.in.readLine(); line != null; line = this.in.readLine()){
+				if (!handle(line)) break;
+			}
+		} finally{
+			stop();
+			this.searcher.shutdownNow();
+			this.game.close();
+		}
+	}
+	
+	/**
+	 * @return mb megabytes of table as the base 2 logarithm of its buckets, rounding down.
+	 */
+	private static int toBits(long mb){
+		return MB_BITS + 63 - Long.numberOfLeadingZeros(Math.max(1, Math.min(MAX_HASH_MB, mb)));
+	}
+	
+	/**
+	 * Waits until the search may give its move: at once unless it is infinite or pondering, and otherwise once stopped
+	 * or its ponder is hit. Then stops its timeout, if any.
+	 */
+	private void awaitRelease(){
+		synchronized (this.lock){
+			while (this.waiting && !this.stopped){
+				try{
+					this.lock.wait();
+				} catch (InterruptedException e){
+					Thread.currentThread().interrupt();
+					break;
+				}
+			}
+			this.waiting = false;
+			this.generation++;
+			if (this.hardStop != null){
+				this.hardStop.cancel();
+				this.hardStop = null;
+			}
+		}
+	}
+	
+	/**
+	 * Stops the search in progress, if any, and waits for it to give its move.
+	 */
+	private void awaitSearch(){
+		if (this.search == null) return;
+		stop();
+		try{
+			this.search.get();
+		} catch (InterruptedException e){
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e){
+			e.getCause().printStackTrace();
+		}
+		this.search = null;
+	}
+	
+	/**
+	 * Sends the move of the search that found result. A search stopped before its first iteration sends the table's
+	 * move for the position if it is legal, and otherwise the first legal move, so that a null move is only sent when
+	 * there is no legal move.
+	 */
+	private void bestMove(List<AnalysisLine> result){
+		if (result.isEmpty()){
+			Move move = fallbackMove();
+			send(move == null ? "bestmove 0000" : "bestmove " + Notation.format(move));
+			return;
+		}
+		List<Move> line = result.get(0).getLine();
+		StringBuilder text = new StringBuilder("bestmove ").append(Notation.format(line.get(0)));
+		if (line.size() > 1) text.append(" ponder ").append(Notation.format(line.get(1)));
+		send(text);
+	}
+	
+	/**
+	 * @return the table's move for the current position if it is legal, otherwise the first legal move, or null if
+	 *         there is none.
+	 */
+	private Move fallbackMove(){
+		List<Move> moves = this.game.getAllCurrentMoves();
+		if (moves.isEmpty()) return null;
+		long entry = this.table.probe(this.game.getPosition().getHash());
+		if (entry != TranspositionTable.MISSING){
+			int code = TranspositionTable.getMove(entry);
+			for (Move move : moves)
+				if (move.getCode() == code) return move;
+		}
+		return moves.get(0);
+	}
+	
+	/**
+	 * Starts a search of the current position, as limited by the arguments of go in tokens.
+	 */
+	private void go(Tokens tokens){
+		awaitSearch();
+		Player turn = this.game.getTurn();
+		long time = 0, increment = 0, moveTime = 0;
+		int movesToGo = 0, depth = 0;
+		boolean infinite = false, ponder = false;
+		while (tokens.next()){
+			if (tokens.is(turn == Player.WHITE ? "wtime" : "btime")) time = Math.max(1, tokens.nextNumber());
+			else if (tokens.is(turn == Player.WHITE ? "winc" : "binc")) increment = tokens.nextNumber();
+			else if (tokens.is("movestogo")) movesToGo = (int)tokens.nextNumber();
+			else if (tokens.is("movetime")) moveTime = Math.max(1, tokens.nextNumber());
+			else if (tokens.is("depth")) depth = (int)tokens.nextNumber();
+			else if (tokens.is("infinite")) infinite = true;
+			else if (tokens.is("ponder")) ponder = true;
+		}
+		TimeBudget budget = null;
+		if (moveTime > 0) budget = new TimeBudget(moveTime, moveTime);
+		else if (time > 0) budget = TimeBudget.forClock(time, Math.max(0, increment), movesToGo);
+		final int maxDepth = this.engine.getMaxDepth();
+		if (depth > 0) this.engine.setMaxDepth(depth);
+		this.engine.setTimeBudget(infinite || ponder ? null : budget);
+		synchronized (this.lock){
+			this.generation++;
+			this.waiting = infinite || ponder;
+			this.pondering = ponder;
+			this.ponderBudget = budget;
+			this.softDeadline = 0;
+		}
+		this.stopped = false;
+		final long start = System.nanoTime();
+		final NextMove engine = this.engine;
+		this.search = this.searcher.submit(new Runnable(){
+			@Override
+			public void run(){
+				try{
+					List<AnalysisLine> result = engine.analyze(UciEngine.this.lines, new AnalysisListener(){
+						@Override
+						public void analysisUpdated(int depth, List<AnalysisLine> lines){
+							report(engine, depth, lines, start);
+							if (UciEngine.this.stopped || isSoftDeadlinePassed()) engine.stop();
+						}
+					});
+					awaitRelease();
+					bestMove(result);
+				} catch (RuntimeException e){
+					e.printStackTrace();
+				} finally{
+					engine.setMaxDepth(maxDepth);
+				}
+			}
+		});
+	}
+	
+	/**
+	 * Answers command, ignoring unknown commands as the protocol asks.
+	 *
+	 * @return false if the command is quit.
+	 */
+	private boolean handle(String command){
+		Tokens tokens = new Tokens(command);
+		if (!tokens.next()) return true;
+		if (tokens.is("isready")) send("readyok");
+		else if (tokens.is("stop")) stop();
+		else if (tokens.is("ponderhit")) ponderHit();
+		else if (tokens.is("go")) go(tokens);
+		else if (tokens.is("position")) position(command, tokens);
+		else if (tokens.is("uci")) identify();
+		else if (tokens.is("setoption")) setOption(tokens);
+		else if (tokens.is("ucinewgame")){
+			awaitSearch();
+			this.table.clear();
+			newGame();
+		} else if (tokens.is("quit")) return false;
+		else if (!tokens.is("debug") && !tokens.is("register")) send("info string Unknown command: " + command);
+		return true;
+	}
+	
+	/**
+	 * Answers uci with the engine's name and options.
+	 */
+	private void identify(){
+		send("id name " + NAME);
+		send("id author " + AUTHOR);
+		send("option name Hash type spin default " + DEFAULT_HASH_MB + " min 1 max " + MAX_HASH_MB);
+		send("option name Clear Hash type button");
+		send("option name MultiPV type spin default 1 min 1 max " + MAX_LINES);
+		send("option name Ponder type check default false");
+		send("uciok");
+	}
+	
+	private boolean isSoftDeadlinePassed(){
+		synchronized (this.lock){
+			return this.softDeadline != 0 && System.nanoTime() - this.softDeadline >= 0;
+		}
+	}
+	
+	private void newGame(){
+		if (this.game != null) this.game.close();
+		this.game = new Game();
+		this.engine = new NextMove(this.game);
+		this.engine.setTranspositionTable(this.table);
+		this.position = null;
+	}
+	
+	/**
+	 * Turns the ponder in progress into a search for the move, timed from now.
+	 */
+	private void ponderHit(){
+		synchronized (this.lock){
+			if (!this.pondering) return;
+			this.pondering = false;
+			this.waiting = false;
+			TimeBudget budget = this.ponderBudget;
+			if (budget != null){
+				long now = System.nanoTime();
+				this.softDeadline = now + TimeUnit.MILLISECONDS.toNanos(Math.max(1, budget.getSoftMillis()));
+				final int generation = this.generation;
+				this.hardStop = TimingWheel.getShared().schedule(new Runnable(){
+					@Override
+					public void run(){
+						synchronized (UciEngine.this.lock){
+							if (generation == UciEngine.this.generation) UciEngine.this.engine.stop();
+						}
+					}
+				}, budget.getHardMillis(), TimeUnit.MILLISECONDS);
+			}
+			this.lock.notifyAll();
+		}
+	}
+	
+	/**
+	 * Sets up the position of command, whose tokens have been read to its first word. When command extends the last
+	 * position command, only the moves it adds are played.
+	 */
+	private void position(String command, Tokens tokens){
+		awaitSearch();
+		String last = this.position;
+		this.position = null;
+		if (last != null && command.startsWith(last)
+				&& (command.length() == last.length() || Character.isWhitespace(command.charAt(last.length())))){
+			tokens.reset(last.length());
+		} else{
+			if (!tokens.next()) return;
+			if (tokens.is("fen")){
+				int fen = tokens.getEnd();
+				while (tokens.next() && !tokens.is("moves")){
+					// skip to the moves
+				}
+				if (!command.substring(fen, tokens.getStart()).trim().equals(START_FEN)){
+					send("info string Only positions reached from the start position are supported");
+					return;
+				}
+				tokens.reset(tokens.getStart());
+			} else if (!tokens.is("startpos")) return;
+			newGame();
+		}
+		try{
+			while (tokens.next()){
+				if (!tokens.is("moves")) Notation.play(this.game, command, tokens.getStart(), tokens.getEnd());
+			}
+			this.position = command;
+		} catch (IllegalArgumentException e){
+			send("info string " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * Sends an info line for each of lines, completed to depth.
+	 */
+	private void report(NextMove engine, int depth, List<AnalysisLine> lines, long start){
+		long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		long nodes = engine.getNodes();
+		StringBuilder text = new StringBuilder(256);
+		for (int k = 0; k < lines.size(); k++){
+			AnalysisLine line = lines.get(k);
+			text.setLength(0);
+			text.append("info depth ").append(depth);
+			if (lines.size() > 1) text.append(" multipv ").append(k + 1);
+			int mate = NextMove.getMatePlies(line.getScore());
+			if (mate == 0) text.append(" score cp ").append(line.getScore());
+			else text.append(" score mate ").append(mate > 0 ? (mate + 1) / 2 : -(-mate / 2));
+			text.append(" nodes ").append(nodes);
+			text.append(" nps ").append(nodes * 1000 / Math.max(1, millis));
+			text.append(" time ").append(millis);
+			text.append(" pv");
+			for (Move move : line.getLine())
+				text.append(' ').append(Notation.format(move));
+			send(text);
+		}
+	}
+	
+	private void send(CharSequence line){
+		synchronized (this.out){
+			try{
+				this.out.append(line).append('\n');
+				this.out.flush();
+			} catch (IOException e){
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+	
+	/**
+	 * Handles setoption name ... value ..., whose tokens have been read to its first word.
+	 */
+	private void setOption(Tokens tokens){
+		if (!tokens.next() || !tokens.is("name")) return;
+		StringBuilder name = new StringBuilder();
+		long value = 0;
+		while (tokens.next()){
+			if (tokens.is("value")){
+				value = tokens.nextNumber();
+				break;
+			}
+			if (name.length() > 0) name.append(' ');
+			name.append(tokens);
+		}
+		awaitSearch();
+		String option = name.toString();
+		if (option.equalsIgnoreCase("Hash")){
+			this.table = new TranspositionTable(toBits(value));
+			this.engine.setTranspositionTable(this.table);
+		} else if (option.equalsIgnoreCase("Clear Hash")) this.table.clear();
+		else if (option.equalsIgnoreCase("MultiPV")) this.lines = (int)Math.max(1, Math.min(MAX_LINES, value));
+		else if (!option.equalsIgnoreCase("Ponder")) send("info string No such option: " + option);
+	}
+	
+	/**
+	 * Stops the search in progress, if any, which then gives its move as soon as possible.
+	 */
+	private void stop(){
+		this.stopped = true;
+		this.engine.stop();
+		synchronized (this.lock){
+			this.pondering = false;
+			this.lock.notifyAll();
+		}
+	}
+	
+}
@@ -16,11 +16,11 @@ import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
-import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Map.Entry;
 
 import javax.swing.BorderFactory;
 import javax.swing.JLabel;
@@ -30,12 +30,11 @@ import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
 
 import chess.game.Board;
-import chess.game.BoardChangedEvent;
-import chess.game.BoardListener;
 import chess.game.Game;
 import chess.game.Location;
 import chess.game.Piece;
 import chess.game.Player;
+import chess.game.Position;
 import chess.ui.images.ImageFactory;
 
 public class BoardPanel extends SquarePanel{
@@ -85,8 +84,10 @@ public class BoardPanel extends SquarePanel{
 		@Override
 		protected void paintComponent(Graphics g){
 			super.paintComponent(g);
-			if (BoardPanel.this.game != null){
-				Image image = BoardPanel.this.images.getPiece(BoardPanel.this.game.getPiece(this.boardLocation));
+			if (BoardPanel.this.position != null){
+				Position position = BoardPanel.this.position;
+				Image image = BoardPanel.this.images.getPiece(	position.getType(this.boardLocation),
+																position.getPlayer(this.boardLocation));
 				if (image != null){
 					g.drawImage(image, 0, 0, this.getWidth(), this.getHeight(), null);
 				}
@@ -95,9 +96,9 @@ public class BoardPanel extends SquarePanel{
 		
 		private boolean isCheck(){
 			if (this.boardLocation.equals(BoardPanel.this.whiteKingLoc)
-					&& BoardPanel.this.game.isWhiteCheck()) return true;
+					&& BoardPanel.this.position.isCheck(Player.WHITE)) return true;
 			if (this.boardLocation.equals(BoardPanel.this.blackKingLoc)
-					&& BoardPanel.this.game.isBlackCheck()) return true;
+					&& BoardPanel.this.position.isCheck(Player.BLACK)) return true;
 			return false;
 		}
 	}
@@ -106,6 +107,10 @@ public class BoardPanel extends SquarePanel{
 	protected Game game;
 	protected ImageFactory images = new ImageFactory();
 	protected Map<Location, PiecePanel> pieces;
+	/**
+	 * The snapshot of the game's position being shown. Only read and replaced on the event dispatch thread.
+	 */
+	protected Position position;
 	protected Location whiteKingLoc, blackKingLoc;
 	private MouseListener controllerListener = new MouseAdapter(){
 		@Override
@@ -146,8 +151,9 @@ public class BoardPanel extends SquarePanel{
 		this.controller = controller;
 		this.orientation = orientation;
 		this.game = controller.getGame();
-		this.blackKingLoc = this.game.getBlackKing().getLocation();
-		this.whiteKingLoc = this.game.getWhiteKing().getLocation();
+		this.position = this.game.getPosition();
+		this.blackKingLoc = this.position.getKingLocation(Player.BLACK);
+		this.whiteKingLoc = this.position.getKingLocation(Player.WHITE);
 		addGameListeners();
 		addComponentListener();
 		addKeyListener();
@@ -172,7 +178,7 @@ public class BoardPanel extends SquarePanel{
 		Location old = this.blackKingLoc;
 		this.blackKingLoc = blackKingLoc;
 		this.pieces.get(old).resetColor();
-		this.pieces.get(this.whiteKingLoc).resetColor();
+		this.pieces.get(this.blackKingLoc).resetColor();
 	}
 	
 	protected void setLabelSize(int dim){
@@ -230,35 +236,19 @@ public class BoardPanel extends SquarePanel{
 	}
 	
 	private void addGameListeners(){
-		this.game.addPropertyChangeListener("whiteCheck", new PropertyChangeListener(){
+		this.game.addPropertyChangeListener("position", new PropertyChangeListener(){
 			@Override
 			public void propertyChange(PropertyChangeEvent evt){
-				BoardPanel.this.resetColor(BoardPanel.this.whiteKingLoc);
-			}
-		});
-		this.game.addPropertyChangeListener("blackCheck", new PropertyChangeListener(){
-			@Override
-			public void propertyChange(PropertyChangeEvent evt){
-				BoardPanel.this.resetColor(BoardPanel.this.blackKingLoc);
-			}
-		});
-		this.game.addBoardListener(new BoardListener(){
-			@Override
-			public void boardChanged(BoardChangedEvent e){
-				final Location[] changes = e.getLocations();
+				final Position next = (Position)evt.getNewValue();
 				if (SwingUtilities.isEventDispatchThread()){
-					updateBoard(changes);
+					updateBoard(next);
 				} else{
-					try{
-						SwingUtilities.invokeAndWait(new Runnable(){
-							@Override
-							public void run(){
-								updateBoard(changes);
-							}
-						});
-					} catch (InvocationTargetException | InterruptedException e1){
-						e1.printStackTrace();
-					}
+					SwingUtilities.invokeLater(new Runnable(){
+						@Override
+						public void run(){
+							updateBoard(next);
+						}
+					});
 				}
 			}
 		});
@@ -315,34 +305,18 @@ public class BoardPanel extends SquarePanel{
 		}
 	}
 	
-	private void resetColor(final Location location){
-		if (SwingUtilities.isEventDispatchThread()){
-			this.pieces.get(location).resetColor();
-		} else{
-			try{
-				SwingUtilities.invokeAndWait(new Runnable(){
-					@Override
-					public void run(){
-						BoardPanel.this.pieces.get(location).resetColor();
-					}
-				});
-			} catch (InvocationTargetException | InterruptedException e){
-				e.printStackTrace();
-			}
-		}
-	}
-	
-	private void updateBoard(Location[] changes){
-		if (changes == null) BoardPanel.this.repaint();
-		else for (Location loc : changes){
-			Piece piece = BoardPanel.this.game.getPiece(loc);
-			if (BoardPanel.this.game.getBlackKing().equals(piece)){
-				setBlackKingLoc(loc);
-			} else if (BoardPanel.this.game.getWhiteKing().equals(piece)){
-				setWhiteKingLoc(loc);
-			}
-			BoardPanel.this.pieces.get(loc).repaint();
+	/**
+	 * Shows next in place of the position shown, repainting only the squares that changed.
+	 */
+	private void updateBoard(Position next){
+		if (next.getVersion() < this.position.getVersion()) return;
+		Position previous = this.position;
+		this.position = next;
+		for (Entry<Location, PiecePanel> square : this.pieces.entrySet()){
+			if (!previous.samePiece(next, square.getKey())) square.getValue().repaint();
 		}
-		BoardPanel.this.controller.select(null);
+		setBlackKingLoc(next.getKingLocation(Player.BLACK));
+		setWhiteKingLoc(next.getKingLocation(Player.WHITE));
+		this.controller.select(null);
 	}
 }
@@ -6,26 +6,26 @@ import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
 import java.util.EnumSet;
 import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
+import java.util.Set;
+import java.util.TreeSet;
 
 import javax.swing.ImageIcon;
 import javax.swing.JDialog;
 import javax.swing.JOptionPane;
 
-import chess.game.Board.Move;
 import chess.game.Game;
 import chess.game.Location;
 import chess.game.Piece;
 import chess.game.PieceType;
 import chess.game.Player;
+import chess.game.Position;
 
 public class GameController{
 	private static final int ICON_SIZE = 30;
 	private final Game model;
 	private Location previewing = null;
 	private Location selLoc = null;
-	private Map<Location, Move> selMoves = null;
+	private Set<Location> selMoves = null;
 	private boolean strictOrientation = false;
 	private final GameFrame view;
 	
@@ -49,12 +49,8 @@ public class GameController{
 				this.view.raise(this.previewing);
 				this.previewing = null;
 			}
-			List<Move> moves = this.model.getMoves(loc);
-			Location[] locs = new Location[moves.size()];
-			int i = 0;
-			for (Move move : moves){
-				locs[i++] = move.getNewLocation();
-			}
+			List<Location> moves = this.model.getPosition().getMoves(loc);
+			Location[] locs = moves.toArray(new Location[moves.size()]);
 			this.view.setMoveLocations(locs);
 			if (locs.length > 0){
 				this.view.lower(loc);
@@ -65,19 +61,17 @@ public class GameController{
 	
 	protected void select(Location loc){
 		if (!acceptInput()) return;
-		List<Move> validMoves = this.model.getMoves(loc);
+		Position position = this.model.getPosition();
+		List<Location> validMoves = position.getMoves(loc);
 		if (this.selLoc == null){
 			if (validMoves.size() == 0) return;
-			Piece selPiece = this.model.getPiece(loc);
-			if (selPiece != null){
+			if (position.getType(loc) != null){
 				this.preview(loc);
 				setSelection(loc, validMoves);
 			}
 		} else{
-			Move move = loc != null ? this.selMoves.get(loc) : null;
-			if (move != null){
-				this.model.executeMove(move);
-				if (move.promotesPiece()){
+			if (loc != null && this.selMoves.contains(loc) && this.model.executeMove(this.selLoc, loc)){
+				if (this.model.getPosition().isPromoting()){
 					ImageIcon icon = getPieceIcon(loc);
 					EnumSet<PieceType> promotionSet = PieceType.getPromotionTypes();
 					PieceType[] promotions = promotionSet.toArray(new PieceType[promotionSet.size()]);
@@ -113,7 +107,8 @@ public class GameController{
 	}
 	
 	private ImageIcon getPieceIcon(Location loc){
-		Image pieceImage = this.view.getPieceImage(this.model.getPiece(loc));
+		Position position = this.model.getPosition();
+		Image pieceImage = this.view.getPieceImage(new Piece(position.getType(loc), position.getPlayer(loc), null));
 		BufferedImage scaled = new BufferedImage(ICON_SIZE, ICON_SIZE, BufferedImage.TYPE_INT_ARGB);
 		Graphics2D g2 = scaled.createGraphics();
 		g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
@@ -123,13 +118,10 @@ public class GameController{
 		return icon;
 	}
 	
-	private void setSelection(Location loc, List<Move> moves){
+	private void setSelection(Location loc, List<Location> moves){
 		this.selLoc = loc;
 		if (this.selLoc != null){
-			this.selMoves = new TreeMap<>();
-			for (Move move : moves){
-				this.selMoves.put(move.getNewLocation(), move);
-			}
+			this.selMoves = new TreeSet<>(moves);
 		} else this.selMoves = null;
 		this.view.setSelection(loc);
 	}
@@ -6,22 +6,36 @@ import java.awt.Image;
 import java.awt.Point;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.InputEvent;
 import java.awt.event.KeyEvent;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.Date;
 
 import javax.swing.JDialog;
+import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JMenu;
 import javax.swing.JMenuBar;
 import javax.swing.JMenuItem;
+import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.KeyStroke;
 import javax.swing.SwingConstants;
 import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
+import javax.swing.filechooser.FileNameExtensionFilter;
 
+import chess.core.Result;
 import chess.game.Game;
+import chess.game.GameRecord;
 import chess.game.Location;
+import chess.game.Mover;
 import chess.game.Piece;
 import chess.game.Player;
 import chess.game.ai.RandomCapture;
@@ -67,13 +81,19 @@ public class GameFrame extends JFrame{
 	private JMenuItem aboutMenuItem = null;
 	private JLabel aboutVersionLabel = null;
 	private BoardPanel boardPanel = null;
+	private JFileChooser chooser = null;
 	protected GameController controller;
 	private JMenuItem exitMenuItem = null;
+	/**
+	 * The file the game was last saved to or opened from, or null.
+	 */
+	private Path file;
 	protected Game game;
 	private JMenu gameMenu = null;
 	private JMenu helpMenu = null;
 	private JMenuBar menuBar = null;
 	private JMenuItem newMenuItem = null;
+	private JMenuItem openMenuItem = null;
 	private Player orientation;
 	private JMenuItem saveAsMenuItem = null;
 	private JMenuItem saveMenuItem = null;
@@ -90,6 +110,20 @@ public class GameFrame extends JFrame{
 		this.controller = new GameController(this);
 		this.setJMenuBar(getMainMenuBar());
 		this.setContentPane(getBoardPanel());
+		this.game.addPropertyChangeListener("result", new PropertyChangeListener(){
+			@Override
+			public void propertyChange(PropertyChangeEvent evt){
+				final Result result = (Result)evt.getNewValue();
+				final Player player = GameFrame.this.game.getResultPlayer();
+				if (!result.isOver()) return;
+				SwingUtilities.invokeLater(new Runnable(){
+					@Override
+					public void run(){
+						showResult(result, player);
+					}
+				});
+			}
+		});
 	}
 	
 	public Game getGame(){
@@ -142,6 +176,24 @@ public class GameFrame extends JFrame{
 		this.getBoardPanel().setSelection(loc);
 	}
 	
+	protected void showResult(Result result, Player player){
+		String message;
+		switch (result){
+		case CHECKMATE:
+			message = "Checkmate - " + player;
+			break;
+		case STALEMATE:
+			message = "Stalemate: no possible move for " + player;
+			break;
+		case TIME_FORFEIT:
+			message = "Time - " + player + " wins";
+			break;
+		default:
+			message = "Stalemate - " + player;
+		}
+		JOptionPane.showMessageDialog(this, message);
+	}
+	
 	/**
 	 * This method initializes aboutContentPane
 	 * 
@@ -206,6 +258,19 @@ public class GameFrame extends JFrame{
 		return this.boardPanel;
 	}
 	
+	/**
+	 * This method initializes chooser
+	 * 
+	 * @return javax.swing.JFileChooser
+	 */
+	private JFileChooser getChooser(){
+		if (this.chooser == null){
+			this.chooser = new JFileChooser();
+			this.chooser.setFileFilter(new FileNameExtensionFilter("Game records", GameRecord.EXTENSION));
+		}
+		return this.chooser;
+	}
+	
 	/**
 	 * This method initializes jMenuItem
 	 * 
@@ -236,6 +301,7 @@ public class GameFrame extends JFrame{
 			this.gameMenu.setText("Game");
 			this.gameMenu.add(getUndoMenuItem());
 			this.gameMenu.add(getNewMenuItem());
+			this.gameMenu.add(getOpenMenuItem());
 			this.gameMenu.add(getSaveMenuItem());
 			this.gameMenu.add(getSaveAsMenuItem());
 			this.gameMenu.addSeparator();
@@ -288,6 +354,28 @@ public class GameFrame extends JFrame{
 		return this.newMenuItem;
 	}
 	
+	/**
+	 * This method initializes openMenuItem
+	 * 
+	 * @return javax.swing.JMenuItem
+	 */
+	private JMenuItem getOpenMenuItem(){
+		if (this.openMenuItem == null){
+			this.openMenuItem = new JMenuItem();
+			this.openMenuItem.setText("Open...");
+			this.openMenuItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_O,
+																	InputEvent.CTRL_DOWN_MASK,
+																	true));
+			this.openMenuItem.addActionListener(new ActionListener(){
+				@Override
+				public void actionPerformed(ActionEvent e){
+					open();
+				}
+			});
+		}
+		return this.openMenuItem;
+	}
+	
 	/**
 	 * This method initializes saveAsMenuItem
 	 * 
@@ -297,6 +385,12 @@ public class GameFrame extends JFrame{
 		if (this.saveAsMenuItem == null){
 			this.saveAsMenuItem = new JMenuItem();
 			this.saveAsMenuItem.setText("Save As...");
+			this.saveAsMenuItem.addActionListener(new ActionListener(){
+				@Override
+				public void actionPerformed(ActionEvent e){
+					saveAs();
+				}
+			});
 		}
 		return this.saveAsMenuItem;
 	}
@@ -313,6 +407,13 @@ public class GameFrame extends JFrame{
 			this.saveMenuItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_S,
 																	Event.CTRL_MASK,
 																	true));
+			this.saveMenuItem.addActionListener(new ActionListener(){
+				@Override
+				public void actionPerformed(ActionEvent e){
+					if (GameFrame.this.file == null) saveAs();
+					else save(GameFrame.this.file);
+				}
+			});
 		}
 		return this.saveMenuItem;
 	}
@@ -332,4 +433,55 @@ public class GameFrame extends JFrame{
 		}
 		return this.undoMenuItem;
 	}
+	
+	/**
+	 * Opens a game record chosen by the user in a new window.
+	 */
+	private void open(){
+		if (getChooser().showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+		Path path = getChooser().getSelectedFile().toPath();
+		GameRecord record;
+		try{
+			record = GameRecord.read(path);
+		} catch (IOException e){
+			JOptionPane.showMessageDialog(this, e.getMessage(), "Open", JOptionPane.ERROR_MESSAGE);
+			return;
+		}
+		GameFrame frame = new GameFrame(record.getGame(), this.orientation);
+		frame.file = path;
+		frame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+		frame.pack();
+		frame.setVisible(true);
+	}
+	
+	/**
+	 * Writes the game as a {@link GameRecord} to path, tagged with its players and today's date.
+	 */
+	private void save(Path path){
+		GameRecord record = new GameRecord(this.game);
+		for (Player player : Player.getPlayers()){
+			Mover mover = this.game.getMover(player);
+			record.setTag(player == Player.WHITE ? GameRecord.WHITE : GameRecord.BLACK, mover == null ? "Human"
+					: mover.toString());
+		}
+		record.setTag(GameRecord.DATE, new SimpleDateFormat("yyyy.MM.dd").format(new Date()));
+		try{
+			record.write(path);
+			this.file = path;
+		} catch (IOException | RuntimeException e){
+			JOptionPane.showMessageDialog(this, "Could not save " + path + ": " + e.getMessage(), "Save",
+											JOptionPane.ERROR_MESSAGE);
+		}
+	}
+	
+	/**
+	 * Saves the game to a file chosen by the user, adding the record extension if the name has none.
+	 */
+	private void saveAs(){
+		if (this.file != null) getChooser().setSelectedFile(this.file.toFile());
+		if (getChooser().showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+		File chosen = getChooser().getSelectedFile();
+		if (!chosen.getName().contains(".")) chosen = new File(chosen.getPath() + "." + GameRecord.EXTENSION);
+		save(chosen.toPath());
+	}
 }
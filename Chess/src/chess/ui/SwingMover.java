@@ -1,5 +1,6 @@
 package chess.ui;
 
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 
 import javax.swing.SwingWorker;
@@ -19,10 +20,15 @@ public class SwingMover extends SwingWorker<Move, Void>{
 		return this.mover.call();
 	}
 	
+	/**
+	 * Reports any failure of the mover. The move itself was played by {@link Mover#call()}.
+	 */
 	@Override
 	protected void done(){
 		try{
-			this.mover.getGame().executeMove(this.get());
+			this.get();
+		} catch (CancellationException e){
+			// nothing to report
 		} catch (InterruptedException | ExecutionException e){
 			e.printStackTrace();
 		}
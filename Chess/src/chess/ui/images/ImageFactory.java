@@ -38,4 +38,8 @@ public class ImageFactory{
 	public Image getPiece(Piece piece){
 		return piece != null ? this.pieces.get(piece) : null;
 	}
+	
+	public Image getPiece(PieceType type, Player player){
+		return type != null ? this.pieces.get(new Piece(type, player, null)) : null;
+	}
 }